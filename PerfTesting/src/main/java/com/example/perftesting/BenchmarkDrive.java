@@ -0,0 +1,52 @@
+package com.example.perftesting;
+
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.MAX_ACCEL;
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.MAX_ANG_ACCEL;
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.MAX_ANG_VEL;
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.MAX_VEL;
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.TRACK_WIDTH;
+
+import com.acmerobotics.roadrunner.control.PIDCoefficients;
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.trajectory.constraints.AngularVelocityConstraint;
+import com.acmerobotics.roadrunner.trajectory.constraints.MecanumVelocityConstraint;
+import com.acmerobotics.roadrunner.trajectory.constraints.MinVelocityConstraint;
+import com.acmerobotics.roadrunner.trajectory.constraints.ProfileAccelerationConstraint;
+import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryAccelerationConstraint;
+import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryVelocityConstraint;
+
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceBuilder;
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceCache;
+
+import java.util.Arrays;
+
+/**
+ * The parameters SampleMecanumDrive follows with: the constraints it builds from DriveConstants
+ * and the dashboard defaults of its gains, which live in SampleMecanumDrive and so can't be read
+ * off the robot. The drive itself isn't copied, the benchmarks run the real
+ * MecanumWheelLocalizer and TrajectorySequenceRunner on {@link BenchmarkWheels}.
+ */
+public final class BenchmarkDrive {
+    public static final PIDCoefficients TRANSLATIONAL_PID = new PIDCoefficients(4.7, 0, 0);
+    public static final PIDCoefficients HEADING_PID = new PIDCoefficients(0, 0, 0);
+
+    public static final double LATERAL_MULTIPLIER = 1.0 * 1.256986179;
+
+    public static final TrajectoryVelocityConstraint VEL_CONSTRAINT = new MinVelocityConstraint(Arrays.asList(
+            new AngularVelocityConstraint(MAX_ANG_VEL),
+            new MecanumVelocityConstraint(MAX_VEL, TRACK_WIDTH)
+    ));
+    public static final TrajectoryAccelerationConstraint ACCEL_CONSTRAINT = new ProfileAccelerationConstraint(MAX_ACCEL);
+
+    private BenchmarkDrive() {
+    }
+
+    public static TrajectorySequenceBuilder trajectorySequenceBuilder(Pose2d startPose, TrajectorySequenceCache cache) {
+        return new TrajectorySequenceBuilder(
+                startPose, null,
+                VEL_CONSTRAINT, ACCEL_CONSTRAINT,
+                MAX_ANG_VEL, MAX_ANG_ACCEL,
+                cache
+        );
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.perftesting;
+
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.TRACK_WIDTH;
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.encoderTicksToInches;
+
+import com.acmerobotics.roadrunner.util.Angle;
+
+import org.firstinspires.ftc.teamcode.drive.MecanumWheelLocalizer;
+import org.firstinspires.ftc.teamcode.util.VelocityEstimator;
+
+/**
+ * Stand-in for the drive motors and IMU: encoder counts and a heading in plain fields, read the
+ * same way SampleMecanumDrive reads the hardware, feeding the real {@link MecanumWheelLocalizer}.
+ */
+public class BenchmarkWheels implements MecanumWheelLocalizer.WheelSource {
+    //Fake encoder counts in the order lf, lb, rb, rf
+    public final int[] encoderTicks = new int[4];
+    public final double[] encoderVelocities = new double[4];
+    public double heading = 0.0;
+
+    //Like Drive.externalHeading, setting it offsets the raw heading rather than moving the robot
+    private double headingOffset = 0.0;
+
+    private final VelocityEstimator[] wheelVelocityEstimators = {
+            new VelocityEstimator(), new VelocityEstimator(), new VelocityEstimator(), new VelocityEstimator()
+    };
+
+    public final MecanumWheelLocalizer localizer =
+            new MecanumWheelLocalizer(this, TRACK_WIDTH, TRACK_WIDTH, BenchmarkDrive.LATERAL_MULTIPLIER, true);
+
+    @Override
+    public void getWheelPositions(double[] positions) {
+        double now = System.nanoTime() / 1e9;
+        for (int i = 0; i < 4; i++) {
+            int ticks = encoderTicks[i];
+            wheelVelocityEstimators[i].addSample(now, ticks);
+            positions[i] = encoderTicksToInches(ticks);
+        }
+    }
+
+    @Override
+    public void getWheelVelocities(double[] velocities) {
+        for (int i = 0; i < 4; i++) {
+            velocities[i] = encoderTicksToInches(encoderVelocities[i]);
+        }
+    }
+
+    @Override
+    public double getExternalHeading() {
+        return Angle.norm(heading + headingOffset);
+    }
+
+    @Override
+    public void setExternalHeading(double heading) {
+        headingOffset = heading - this.heading;
+    }
+
+    @Override
+    public double getExternalHeadingVelocityRadians() {
+        return Double.NaN;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.perftesting;
+
+import org.firstinspires.ftc.teamcode.util.FieldModel;
+import org.firstinspires.ftc.teamcode.util.RelocalizationGeometry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ray casts against the Freight Frenzy field map from poses spread over the field, the way a
+ * particle filter would run them. Throughput is casts per microsecond.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FieldModelBenchmark {
+    private static final int POSES = 1024;
+
+    private final double[] xs = new double[POSES];
+    private final double[] ys = new double[POSES];
+    private final double[] headings = new double[POSES];
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1002);
+        for (int i = 0; i < POSES; i++) {
+            xs[i] = (random.nextDouble() * 2 - 1) * 60;
+            ys[i] = (random.nextDouble() * 2 - 1) * 60;
+            headings[i] = random.nextDouble() * 2 * Math.PI;
+        }
+    }
+
+    @Benchmark
+    public double cast() {
+        int i = next++ & (POSES - 1);
+        return FieldModel.FREIGHT_FRENZY.cast(xs[i], ys[i], headings[i]);
+    }
+
+    @Benchmark
+    public double expectedRange() {
+        int i = next++ & (POSES - 1);
+        return FieldModel.FREIGHT_FRENZY.expectedRange(xs[i], ys[i], headings[i], RelocalizationGeometry.FORWARD_SENSOR_MOUNT);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.perftesting;
+
+import com.acmerobotics.roadrunner.util.NanoClock;
+
+/**
+ * Clock that only moves when told to, so followers can be stepped at a fixed loop period.
+ */
+public class ManualClock extends NanoClock {
+    private double time = 0.0;
+
+    public void advance(double seconds) {
+        time += seconds;
+    }
+
+    @Override
+    public double seconds() {
+        return time;
+    }
+}
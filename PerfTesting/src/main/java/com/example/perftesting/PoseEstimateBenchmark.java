@@ -0,0 +1,133 @@
+package com.example.perftesting;
+
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.TRACK_WIDTH;
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.encoderTicksToInches;
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.kA;
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.kStatic;
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.kV;
+
+import com.acmerobotics.roadrunner.drive.MecanumDrive;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The drive encoder odometry update with the encoders moving every loop, through the primitive
+ * MecanumWheelLocalizer that SampleMecanumDrive uses and through Road Runner's boxed
+ * MecanumLocalizer for comparison. Run with the gc profiler to see the allocation difference.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PoseEstimateBenchmark {
+    private BenchmarkWheels wheels;
+    private BenchmarkWheels boxedWheels;
+    private BoxedDrive boxedDrive;
+
+    private final double[] wheelPositions = new double[4];
+
+    /**
+     * Just enough of a MecanumDrive for Road Runner's own MecanumLocalizer to read the same stand-in
+     * wheels, as the baseline.
+     */
+    private static class BoxedDrive extends MecanumDrive {
+        private final BenchmarkWheels wheels;
+
+        BoxedDrive(BenchmarkWheels wheels) {
+            super(kV, kA, kStatic, TRACK_WIDTH, TRACK_WIDTH, BenchmarkDrive.LATERAL_MULTIPLIER);
+            this.wheels = wheels;
+            setLocalizer(new MecanumDrive.MecanumLocalizer(this, true));
+        }
+
+        @Override
+        public List<Double> getWheelPositions() {
+            List<Double> wheelPositions = new ArrayList<>();
+            for (int ticks : wheels.encoderTicks) {
+                wheelPositions.add(encoderTicksToInches(ticks));
+            }
+            return wheelPositions;
+        }
+
+        @Override
+        public List<Double> getWheelVelocities() {
+            List<Double> wheelVelocities = new ArrayList<>();
+            for (double velocity : wheels.encoderVelocities) {
+                wheelVelocities.add(encoderTicksToInches(velocity));
+            }
+            return wheelVelocities;
+        }
+
+        @Override
+        public void setMotorPowers(double v, double v1, double v2, double v3) {
+        }
+
+        @Override
+        public double getRawExternalHeading() {
+            return wheels.heading;
+        }
+
+        @Override
+        public Double getExternalHeadingVelocity() {
+            return null;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        wheels = new BenchmarkWheels();
+
+        boxedWheels = new BenchmarkWheels();
+        boxedDrive = new BoxedDrive(boxedWheels);
+    }
+
+    private static void step(BenchmarkWheels wheels) {
+        //Drive forward while strafing a little and slowly turning
+        wheels.encoderTicks[0] += 7;
+        wheels.encoderTicks[1] += 5;
+        wheels.encoderTicks[2] += 7;
+        wheels.encoderTicks[3] += 5;
+        wheels.heading += 0.001;
+    }
+
+    @Benchmark
+    public double updatePoseEstimate() {
+        step(wheels);
+        wheels.localizer.update();
+        return wheels.localizer.getPoseEstimate().getX();
+    }
+
+    @Benchmark
+    public double updatePoseEstimateBoxed() {
+        step(boxedWheels);
+        boxedDrive.updatePoseEstimate();
+        return boxedDrive.getPoseEstimate().getX();
+    }
+
+    @Benchmark
+    public double[] getWheelPositions() {
+        step(wheels);
+        wheels.getWheelPositions(wheelPositions);
+        return wheelPositions;
+    }
+
+    @Benchmark
+    public List<Double> getWheelPositionsBoxed() {
+        step(boxedWheels);
+        return boxedDrive.getWheelPositions();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.perftesting;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+
+import org.firstinspires.ftc.teamcode.util.RelocalizationGeometry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The distance sensor geometry RelocalizeCommand runs, over a sweep of readings and headings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelocalizationBenchmark {
+    private int step = 0;
+
+    @Benchmark
+    public Pose2d estimatePoseBlue() {
+        step++;
+        return RelocalizationGeometry.estimatePose(
+                10 + (step % 25), 4 + (step % 7), Math.toRadians((step % 21) - 10), false
+        );
+    }
+
+    @Benchmark
+    public Pose2d estimatePoseRed() {
+        step++;
+        return RelocalizationGeometry.estimatePose(
+                10 + (step % 25), 4 + (step % 7), Math.PI + Math.toRadians((step % 21) - 10), true
+        );
+    }
+}
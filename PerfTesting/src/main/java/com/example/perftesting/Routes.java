@@ -0,0 +1,40 @@
+package com.example.perftesting;
+
+import static java.lang.Math.toRadians;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.geometry.Vector2d;
+
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceBuilder;
+
+import java.util.function.Function;
+
+/**
+ * Routes taken from the blue cycle auto (DropFreight and RetractFromFreight), plus one that
+ * covers the turn and wait segments.
+ */
+public class Routes {
+    public static final Pose2d BLUE_WAREHOUSE_POSE = new Pose2d(36, 65, toRadians(0));
+    public static final Pose2d BLUE_HUB_POSE = new Pose2d(-9, 64, toRadians(0));
+
+    public static final Function<TrajectorySequenceBuilder, TrajectorySequenceBuilder> DROP_FREIGHT = builder -> builder
+            .setReversed(true)
+            .splineToConstantHeading(new Vector2d(10.0, 65), toRadians(180.0))
+            .lineToLinearHeading(new Pose2d(-9, 64, toRadians(0)));
+
+    public static final Function<TrajectorySequenceBuilder, TrajectorySequenceBuilder> RETRACT_FROM_FREIGHT = builder -> builder
+            .lineToLinearHeading(new Pose2d(10, 65, toRadians(0)))
+            .splineToConstantHeading(new Vector2d(36, 65), toRadians(0));
+
+    /**
+     * A full cycle from the warehouse back to the warehouse, with a turn and a wait at the hub.
+     */
+    public static final Function<TrajectorySequenceBuilder, TrajectorySequenceBuilder> FULL_CYCLE = builder ->
+            RETRACT_FROM_FREIGHT.apply(
+                    DROP_FREIGHT.apply(builder)
+                            .turn(toRadians(30))
+                            .waitSeconds(0.5)
+                            .turn(toRadians(-30))
+                            .setReversed(false)
+            );
+}
@@ -0,0 +1,69 @@
+package com.example.perftesting;
+
+import static java.lang.Math.toRadians;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.geometry.Vector2d;
+
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequence;
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TrajectorySequenceBuilder.build() for the cycle auto routes, with and without a cache hit, and
+ * with only the last waypoint changing (a prefix checkpoint hit).
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrajectorySequenceBuildBenchmark {
+    private TrajectorySequenceCache cache;
+
+    //Changes the last waypoint of every build, like DropFreight's cycleNum * distanceAdd offset
+    private int cycle = 0;
+
+    @Setup
+    public void setup() {
+        cache = new TrajectorySequenceCache(8);
+        Routes.FULL_CYCLE.apply(BenchmarkDrive.trajectorySequenceBuilder(Routes.BLUE_WAREHOUSE_POSE, cache)).build();
+    }
+
+    @Benchmark
+    public TrajectorySequence dropFreightUncached() {
+        return Routes.DROP_FREIGHT.apply(BenchmarkDrive.trajectorySequenceBuilder(Routes.BLUE_WAREHOUSE_POSE, null)).build();
+    }
+
+    @Benchmark
+    public TrajectorySequence fullCycleUncached() {
+        return Routes.FULL_CYCLE.apply(BenchmarkDrive.trajectorySequenceBuilder(Routes.BLUE_WAREHOUSE_POSE, null)).build();
+    }
+
+    @Benchmark
+    public TrajectorySequence dropFreightTailChanged() {
+        double offset = (cycle++ % 64) * 0.5;
+        return BenchmarkDrive.trajectorySequenceBuilder(Routes.BLUE_WAREHOUSE_POSE, cache)
+                .setReversed(true)
+                .splineToConstantHeading(new Vector2d(10.0, 65), toRadians(180.0))
+                .lineToLinearHeading(new Pose2d(-9 + offset, 64, toRadians(0)))
+                .build();
+    }
+
+    @Benchmark
+    public TrajectorySequence fullCycleCached() {
+        return Routes.FULL_CYCLE.apply(BenchmarkDrive.trajectorySequenceBuilder(Routes.BLUE_WAREHOUSE_POSE, cache)).build();
+    }
+}
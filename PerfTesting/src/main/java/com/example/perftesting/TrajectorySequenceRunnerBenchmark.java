@@ -0,0 +1,98 @@
+package com.example.perftesting;
+
+import com.acmerobotics.roadrunner.drive.DriveSignal;
+import com.acmerobotics.roadrunner.followers.HolonomicPIDVAFollower;
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequence;
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceRunner;
+import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.SequenceSegment;
+import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.TrajectorySegment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One control loop of TrajectorySequenceRunner.update() while following a full cycle, stepped at
+ * LOOP_PERIOD on a manual clock and restarted whenever the sequence finishes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrajectorySequenceRunnerBenchmark {
+    private static final double LOOP_PERIOD = 0.01; // s
+
+    private ManualClock clock;
+    private TrajectorySequenceRunner runner;
+    private TrajectorySequence sequence;
+
+    //Poses along the sequence at every loop, fed back in as the estimate
+    private Pose2d[] poses;
+    private int loop;
+
+    private final Pose2d velocity = new Pose2d();
+
+    @Setup
+    public void setup() {
+        clock = new ManualClock();
+
+        HolonomicPIDVAFollower follower = new HolonomicPIDVAFollower(
+                BenchmarkDrive.TRANSLATIONAL_PID, BenchmarkDrive.TRANSLATIONAL_PID, BenchmarkDrive.HEADING_PID,
+                new Pose2d(0.5, 0.5, Math.toRadians(5.0)), 0.5, clock
+        );
+        runner = new TrajectorySequenceRunner(
+                follower, BenchmarkDrive.HEADING_PID, BenchmarkDrive.TRANSLATIONAL_PID, clock
+        );
+
+        sequence = Routes.FULL_CYCLE.apply(BenchmarkDrive.trajectorySequenceBuilder(Routes.BLUE_WAREHOUSE_POSE, null)).build();
+
+        int loops = (int) Math.ceil(sequence.duration() / LOOP_PERIOD) + 1;
+        poses = new Pose2d[loops];
+
+        int segmentIndex = 0;
+        double segmentStart = 0.0;
+        for (int i = 0; i < loops; i++) {
+            double t = i * LOOP_PERIOD;
+            while (segmentIndex < sequence.size() - 1 && t > segmentStart + sequence.get(segmentIndex).getDuration()) {
+                segmentStart += sequence.get(segmentIndex).getDuration();
+                segmentIndex++;
+            }
+
+            SequenceSegment segment = sequence.get(segmentIndex);
+            poses[i] = segment instanceof TrajectorySegment ?
+                    ((TrajectorySegment) segment).getTrajectory().get(t - segmentStart) :
+                    segment.getStartPose();
+        }
+
+        restart();
+    }
+
+    private void restart() {
+        runner.followTrajectorySequenceAsync(sequence);
+        loop = 0;
+    }
+
+    @Benchmark
+    public DriveSignal update() {
+        clock.advance(LOOP_PERIOD);
+
+        DriveSignal signal = runner.update(poses[Math.min(loop, poses.length - 1)], velocity);
+        loop++;
+
+        if (!runner.isBusy()) restart();
+
+        return signal;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.perftesting.sim;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+
+import org.firstinspires.ftc.teamcode.vision.HubLevel;
+
+/**
+ * Runs the models of the four autonomous routines in {@link SimAutos} in simulation and prints
+ * their timing.
+ * <p>
+ * The timings are estimates from those models, not measurements of the opmodes. Only the drive
+ * following code and the cycle routes are the real ones; a change to an auto's commands, waits or
+ * other routes shows up here only once SimAutos is changed to match.
+ * <p>
+ * ./gradlew :PerfTesting:simulate [-Phub=TOP|MIDDLE|BOTTOM]
+ */
+public class AutoSimulator {
+
+    private static void simulate(String name, Pose2d startPose, SimCommand auto) {
+        Simulation simulation = new Simulation(startPose);
+        simulation.run(auto);
+        System.out.println(simulation.report(name));
+    }
+
+    public static void main(String[] args) {
+        HubLevel hubLevel = args.length > 0 ? HubLevel.valueOf(args[0]) : HubLevel.TOP;
+
+        System.out.println("Models of the autos (see SimAutos), not measurements of the opmodes");
+
+        //Once untimed so the JIT has warmed up before the runs that are reported
+        new Simulation(SimAutos.BLUE_CYCLE_START).run(SimAutos.cycleAuto(hubLevel, false));
+
+        simulate("BlueCycleAuto model", SimAutos.BLUE_CYCLE_START, SimAutos.cycleAuto(hubLevel, false));
+        simulate("RedCycleAuto model", SimAutos.RED_CYCLE_START, SimAutos.cycleAuto(hubLevel, true));
+        simulate("BlueDuckAuto model", SimAutos.BLUE_DUCK_START, SimAutos.duckAuto(hubLevel, false));
+        simulate("RedDuckAuto model", SimAutos.RED_DUCK_START, SimAutos.duckAuto(hubLevel, true));
+    }
+}
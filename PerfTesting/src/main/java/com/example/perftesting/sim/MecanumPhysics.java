@@ -0,0 +1,83 @@
+package com.example.perftesting.sim;
+
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.GEAR_RATIO;
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.TICKS_PER_REV;
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.TRACK_WIDTH;
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.WHEEL_RADIUS;
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.kStatic;
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.kV;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.kinematics.Kinematics;
+import com.acmerobotics.roadrunner.kinematics.MecanumKinematics;
+
+import com.example.perftesting.BenchmarkDrive;
+import com.example.perftesting.BenchmarkWheels;
+
+import java.util.Arrays;
+
+/**
+ * Mecanum drive base model driven by motor powers, parameterized from DriveConstants.
+ * <p>
+ * Each wheel approaches the speed its power would hold against the feedforward model
+ * ((power - kStatic) / kV) with a first order lag, and the wheel motion is integrated into the
+ * true field pose, the encoder counts and the IMU heading of {@link BenchmarkWheels}.
+ */
+public class MecanumPhysics {
+    public static double WHEEL_TIME_CONSTANT = 0.08; // s, time for a wheel to reach ~63% of a speed step
+
+    private final BenchmarkWheels wheels;
+
+    private final double[] powers = new double[4];
+    private final double[] wheelVelocities = new double[4]; // in/s
+    private final double[] encoderPositions = new double[4]; // ticks, fractional
+
+    private Pose2d pose;
+
+    public MecanumPhysics(BenchmarkWheels wheels, Pose2d startPose) {
+        this.wheels = wheels;
+        this.pose = startPose;
+        wheels.heading = startPose.getHeading();
+    }
+
+    /**
+     * Order of lf, lb, rb, rf
+     */
+    public void setMotorPowers(double v, double v1, double v2, double v3) {
+        powers[0] = v;
+        powers[1] = v1;
+        powers[2] = v2;
+        powers[3] = v3;
+    }
+
+    public Pose2d getPose() {
+        return pose;
+    }
+
+    public void step(double dt) {
+        double alpha = 1.0 - Math.exp(-dt / WHEEL_TIME_CONSTANT);
+        double ticksPerInch = TICKS_PER_REV / (WHEEL_RADIUS * 2 * Math.PI * GEAR_RATIO);
+
+        Double[] wheelDeltas = new Double[4];
+        for (int i = 0; i < 4; i++) {
+            double power = Math.max(-1.0, Math.min(powers[i], 1.0));
+            double drivenPower = Math.signum(power) * Math.max(Math.abs(power) - kStatic, 0.0);
+            double targetVelocity = drivenPower / kV;
+
+            double lastVelocity = wheelVelocities[i];
+            wheelVelocities[i] += alpha * (targetVelocity - lastVelocity);
+            wheelDeltas[i] = 0.5 * (lastVelocity + wheelVelocities[i]) * dt;
+
+            encoderPositions[i] += wheelDeltas[i] * ticksPerInch;
+            wheels.encoderTicks[i] = (int) Math.round(encoderPositions[i]);
+            wheels.encoderVelocities[i] = wheelVelocities[i] * ticksPerInch;
+        }
+
+        Pose2d robotDelta = MecanumKinematics.wheelToRobotVelocities(
+                Arrays.asList(wheelDeltas), TRACK_WIDTH, TRACK_WIDTH, BenchmarkDrive.LATERAL_MULTIPLIER
+        );
+        pose = Kinematics.relativeOdometryUpdate(pose, robotDelta);
+
+        wheels.heading = pose.getHeading();
+    }
+}
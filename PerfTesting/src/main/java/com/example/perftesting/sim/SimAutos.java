@@ -0,0 +1,267 @@
+package com.example.perftesting.sim;
+
+import static com.example.perftesting.sim.SimCommands.followSequence;
+import static com.example.perftesting.sim.SimCommands.followTrajectory;
+import static com.example.perftesting.sim.SimCommands.instant;
+import static com.example.perftesting.sim.SimCommands.liftPosition;
+import static com.example.perftesting.sim.SimCommands.parallel;
+import static com.example.perftesting.sim.SimCommands.sequential;
+import static com.example.perftesting.sim.SimCommands.waitMillis;
+import static java.lang.Math.toRadians;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.geometry.Vector2d;
+import com.acmerobotics.roadrunner.trajectory.Trajectory;
+import com.acmerobotics.roadrunner.trajectory.TrajectoryBuilder;
+
+import com.example.perftesting.BenchmarkDrive;
+
+import org.firstinspires.ftc.teamcode.commands.autocommands.cycle.CycleRoutes;
+import org.firstinspires.ftc.teamcode.vision.HubLevel;
+
+/**
+ * Models of the command trees of BlueCycleAuto, RedCycleAuto, BlueDuckAuto and RedDuckAuto. The
+ * cycle routes come from the real CycleRoutes; the other routes, the waits and the lift moves are
+ * copied by hand, so keep them in sync with the autos and their commands. What the simulator
+ * reports is how long this model takes, not a measurement of the autos themselves.
+ * <p>
+ * These are not the opmodes: FTCLib and the FTC SDK only ship for Android, so the scheduler, the
+ * FixedRateScheduler tiers, the HubIoDispatcher and the hardware aren't part of the loop, only the
+ * drive following code is.
+ */
+public class SimAutos {
+    public static final Pose2d BLUE_CYCLE_START = new Pose2d(8, 65, toRadians(0.0));
+    public static final Pose2d RED_CYCLE_START = new Pose2d(8, -65, toRadians(180.0));
+    public static final Pose2d BLUE_DUCK_START = new Pose2d(-30.5, 65, toRadians(0.0));
+    public static final Pose2d RED_DUCK_START = new Pose2d(-30.5, -65, toRadians(180.0));
+
+    private static Trajectory lineTo(Pose2d startPose, Vector2d end) {
+        return new TrajectoryBuilder(startPose, BenchmarkDrive.VEL_CONSTRAINT, BenchmarkDrive.ACCEL_CONSTRAINT)
+                .lineTo(end)
+                .build();
+    }
+
+    private static int liftTarget(HubLevel hubLevel) {
+        switch (hubLevel) {
+            case BOTTOM:
+                return 300;
+            case MIDDLE:
+                return 400;
+            default:
+                return 575;
+        }
+    }
+
+    //MoveLiftToScoringPositionCommand
+    private static SimCommand moveLiftToScoringPosition(HubLevel hubLevel) {
+        return parallel("MoveLiftToScoringPositionCommand", liftPosition(liftTarget(hubLevel)), instant());
+    }
+
+    //MoveLiftToLoadingPositionCommand
+    private static SimCommand moveLiftToLoadingPosition() {
+        return parallel("MoveLiftToLoadingPositionCommand", liftPosition(0, 7), instant());
+    }
+
+    /*
+     * Cycle autos
+     */
+
+    private static SimCommand cycleDropPreloadFreight(Pose2d startPose, HubLevel hubLevel, boolean redSide) {
+        Vector2d end;
+        switch (hubLevel) {
+            case BOTTOM:
+                end = redSide ? new Vector2d(-12, -46) : new Vector2d(-12, 44.5);
+                break;
+            case MIDDLE:
+                end = redSide ? new Vector2d(-10, -57) : new Vector2d(-10, 58);
+                break;
+            default:
+                end = redSide ? new Vector2d(-10, -60) : new Vector2d(-9, 64);
+        }
+
+        return parallel("DropPreloadFreight",
+                sequential(null, waitMillis(500), followTrajectory("preload trajectory", lineTo(startPose, end))),
+                hubLevel == HubLevel.BOTTOM ? instant() : moveLiftToScoringPosition(hubLevel),
+                sequential(null, waitMillis(2300), instant())
+        );
+    }
+
+    private static SimCommand dropFreight(boolean redSide) {
+        return parallel("DropFreight",
+                followSequence("DropFreight trajectory", builder -> CycleRoutes.dropFreight(builder, redSide)),
+                sequential(null,
+                        waitMillis(100), instant(),
+                        waitMillis(300), instant(),
+                        waitMillis(1600), instant()
+                ),
+                sequential(null,
+                        waitMillis(1500),
+                        moveLiftToScoringPosition(HubLevel.TOP),
+                        waitMillis(1400), instant(),
+                        waitMillis(400)
+                )
+        );
+    }
+
+    private static SimCommand retractFromFreight(boolean redSide, int cycleNum) {
+        return parallel("RetractFromFreight",
+                followSequence("RetractFromFreight trajectory",
+                        builder -> CycleRoutes.retractFromFreight(builder, redSide, cycleNum)),
+                sequential(null, waitMillis(500), moveLiftToLoadingPosition()),
+                instant()
+        );
+    }
+
+    public static SimCommand cycleAuto(HubLevel hubLevel, boolean redSide) {
+        return sequential(redSide ? "RedCycleAuto" : "BlueCycleAuto",
+                waitMillis(500),
+                cycleDropPreloadFreight(redSide ? RED_CYCLE_START : BLUE_CYCLE_START, hubLevel, redSide),
+                waitMillis(100),
+                retractFromFreight(redSide, 0),
+
+                waitMillis(100),
+                dropFreight(redSide),
+                waitMillis(100),
+                retractFromFreight(redSide, 1),
+
+                waitMillis(100),
+                dropFreight(redSide),
+                waitMillis(100),
+                retractFromFreight(redSide, 2),
+
+                waitMillis(100),
+                dropFreight(redSide),
+                waitMillis(100),
+                retractFromFreight(redSide, 3),
+
+                instant()
+        );
+    }
+
+    /*
+     * Duck autos
+     */
+
+    private static SimCommand duckDropPreloadFreight(Pose2d startPose, HubLevel hubLevel, boolean redSide) {
+        Vector2d end;
+        switch (hubLevel) {
+            case BOTTOM:
+                end = redSide ? new Vector2d(-12, -44) : new Vector2d(-14, 44.5);
+                break;
+            case MIDDLE:
+                end = redSide ? new Vector2d(-12, -56) : new Vector2d(-10, 57);
+                break;
+            default:
+                end = redSide ? new Vector2d(-7, -60) : new Vector2d(-12, 60);
+        }
+
+        SimCommand followPreload = sequential(null, waitMillis(300), followTrajectory("preload trajectory", lineTo(startPose, end)));
+
+        if (hubLevel == HubLevel.BOTTOM) {
+            return parallel("DropPreloadFreight",
+                    followPreload,
+                    instant(),
+                    sequential(null, waitMillis(2300), instant())
+            );
+        }
+
+        return parallel("DropPreloadFreight",
+                followPreload,
+                waitMillis(200),
+                moveLiftToScoringPosition(hubLevel),
+                sequential(null, waitMillis(2300), instant())
+        );
+    }
+
+    private static SimCommand goToCarousel(boolean redSide) {
+        return parallel("GoToCarousel",
+                instant(),
+                sequential(null,
+                        followSequence("GoToCarousel trajectory", redSide ?
+                                builder -> builder
+                                        .lineTo(new Vector2d(-50, -40))
+                                        .turn(toRadians(-178))
+                                        .lineTo(new Vector2d(-60, -58)) :
+                                builder -> builder
+                                        .lineTo(new Vector2d(-50, 40))
+                                        .turn(toRadians(-120))
+                                        .lineTo(new Vector2d(-62, 60))
+                        ),
+                        instant(),
+                        waitMillis(3000),
+                        instant()
+                ),
+                sequential(null, waitMillis(300), moveLiftToLoadingPosition()),
+                sequential(null, waitMillis(1400), instant())
+        );
+    }
+
+    private static SimCommand retractFromCarousel(boolean redSide) {
+        return parallel("RetractFromCarousel",
+                followSequence("RetractFromCarousel trajectory", redSide ?
+                        builder -> builder.lineToLinearHeading(new Pose2d(-60, -45, toRadians(-40))) :
+                        builder -> builder.lineToLinearHeading(new Pose2d(-60, 47, toRadians(40)))
+                ),
+                sequential(null, waitMillis(300), instant())
+        );
+    }
+
+    private static SimCommand scanForDuck(boolean redSide) {
+        return parallel("ScanForDuck",
+                followSequence("ScanForDuck trajectory", redSide ?
+                        builder -> builder
+                                .lineToConstantHeading(new Vector2d(-45, -45))
+                                .lineToLinearHeading(new Pose2d(-45, -54, toRadians(-140)))
+                                .lineToConstantHeading(new Vector2d(-57, -54)) :
+                        builder -> builder
+                                .lineToConstantHeading(new Vector2d(-45, 45))
+                                .lineToLinearHeading(new Pose2d(-45, 58.5, toRadians(130)))
+                                .lineToConstantHeading(new Vector2d(-57, 58.5))
+                )
+        );
+    }
+
+    private static SimCommand dropDuck(boolean redSide) {
+        return parallel("DropDuck",
+                sequential(null, waitMillis(500), instant()),
+                followSequence("DropDuck trajectory", redSide ?
+                        builder -> builder.lineToLinearHeading(new Pose2d(-40, -47, toRadians(135))) :
+                        builder -> builder.lineToLinearHeading(new Pose2d(-42, 48, toRadians(45)))
+                ),
+                sequential(null,
+                        waitMillis(1500),
+                        moveLiftToScoringPosition(HubLevel.MIDDLE),
+                        waitMillis(300), instant(),
+                        waitMillis(1000)
+                )
+        );
+    }
+
+    private static SimCommand parkInStorageUnit(boolean redSide) {
+        return parallel("ParkInStorageUnit",
+                followSequence("ParkInStorageUnit trajectory", redSide ?
+                        builder -> builder.lineToLinearHeading(new Pose2d(-65, -38, toRadians(90))) :
+                        builder -> builder.lineToLinearHeading(new Pose2d(-65, 40.1, toRadians(90)))
+                ),
+                moveLiftToLoadingPosition(),
+                instant()
+        );
+    }
+
+    public static SimCommand duckAuto(HubLevel hubLevel, boolean redSide) {
+        return sequential(redSide ? "RedDuckAuto" : "BlueDuckAuto",
+                waitMillis(redSide ? 2000 : 3500),
+                duckDropPreloadFreight(redSide ? RED_DUCK_START : BLUE_DUCK_START, hubLevel, redSide),
+                waitMillis(100),
+                goToCarousel(redSide),
+                waitMillis(100),
+                retractFromCarousel(redSide),
+                waitMillis(100),
+                scanForDuck(redSide),
+                waitMillis(100),
+                dropDuck(redSide),
+                waitMillis(100),
+                parkInStorageUnit(redSide)
+        );
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.perftesting.sim;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Minimal stand-in for an FTCLib command, run by a {@link Simulation} with the same
+ * initialize / execute / isFinished / end order as the command scheduler.
+ */
+public abstract class SimCommand {
+    private final String name;
+
+    double startTime;
+
+    /**
+     * @param name Name the command's duration is reported under, or null to leave it out.
+     */
+    protected SimCommand(@Nullable String name) {
+        this.name = name;
+    }
+
+    public @Nullable
+    String getName() {
+        return name;
+    }
+
+    public void initialize(Simulation sim) {
+    }
+
+    public void execute(Simulation sim) {
+    }
+
+    public abstract boolean isFinished(Simulation sim);
+
+    public void end(Simulation sim) {
+    }
+}
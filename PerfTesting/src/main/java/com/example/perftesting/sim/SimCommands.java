@@ -0,0 +1,171 @@
+package com.example.perftesting.sim;
+
+import androidx.annotation.Nullable;
+
+import com.acmerobotics.roadrunner.control.PIDCoefficients;
+import com.acmerobotics.roadrunner.control.PIDFController;
+import com.acmerobotics.roadrunner.trajectory.Trajectory;
+
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequence;
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Stand-ins for the FTCLib command groups and the TeamCode commands the autos are built from.
+ */
+public class SimCommands {
+
+    public static SimCommand sequential(@Nullable String name, SimCommand... commands) {
+        return new SimCommand(name) {
+            private int index;
+
+            @Override
+            public void initialize(Simulation sim) {
+                index = 0;
+                if (commands.length > 0) sim.start(commands[0]);
+            }
+
+            @Override
+            public void execute(Simulation sim) {
+                if (index < commands.length && sim.step(commands[index])) {
+                    index++;
+                    if (index < commands.length) sim.start(commands[index]);
+                }
+            }
+
+            @Override
+            public boolean isFinished(Simulation sim) {
+                return index >= commands.length;
+            }
+        };
+    }
+
+    public static SimCommand parallel(@Nullable String name, SimCommand... commands) {
+        return new SimCommand(name) {
+            private final List<SimCommand> running = new ArrayList<>();
+
+            @Override
+            public void initialize(Simulation sim) {
+                running.clear();
+                running.addAll(Arrays.asList(commands));
+                for (SimCommand command : commands) sim.start(command);
+            }
+
+            @Override
+            public void execute(Simulation sim) {
+                running.removeIf(sim::step);
+            }
+
+            @Override
+            public boolean isFinished(Simulation sim) {
+                return running.isEmpty();
+            }
+        };
+    }
+
+    public static SimCommand waitMillis(long millis) {
+        return new SimCommand(null) {
+            private double endTime;
+
+            @Override
+            public void initialize(Simulation sim) {
+                endTime = sim.seconds() + millis / 1000.0;
+            }
+
+            @Override
+            public boolean isFinished(Simulation sim) {
+                return sim.seconds() >= endTime;
+            }
+        };
+    }
+
+    /**
+     * An InstantCommand; the mechanism it would move isn't modelled, so it only takes a loop.
+     */
+    public static SimCommand instant() {
+        return new SimCommand(null) {
+            @Override
+            public boolean isFinished(Simulation sim) {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * FollowTrajectorySequenceCommand with the route built from the pose estimate when it starts.
+     */
+    public static SimCommand followSequence(String name, Function<TrajectorySequenceBuilder, TrajectorySequenceBuilder> route) {
+        return new SimCommand(name) {
+            @Override
+            public void initialize(Simulation sim) {
+                SimDrive drive = sim.getDrive();
+                TrajectorySequence sequence = route.apply(drive.trajectorySequenceBuilder(drive.getPoseEstimate())).build();
+                drive.followTrajectorySequenceAsync(sequence);
+            }
+
+            @Override
+            public boolean isFinished(Simulation sim) {
+                return !sim.getDrive().isBusy();
+            }
+        };
+    }
+
+    /**
+     * FollowTrajectoryCommand.
+     */
+    public static SimCommand followTrajectory(String name, Trajectory trajectory) {
+        return new SimCommand(name) {
+            @Override
+            public void initialize(Simulation sim) {
+                sim.getDrive().followTrajectoryAsync(trajectory);
+            }
+
+            @Override
+            public boolean isFinished(Simulation sim) {
+                return !sim.getDrive().isBusy();
+            }
+        };
+    }
+
+    /**
+     * LiftPositionCommand, with the same controller.
+     */
+    public static SimCommand liftPosition(double targetPosition, double tolerance) {
+        return new SimCommand("LiftPositionCommand") {
+            private final PIDFController liftController = new PIDFController(new PIDCoefficients(0.024, 0.001, 0.001), 0, 0, 0.0);
+            private double liftPosition;
+
+            @Override
+            public void initialize(Simulation sim) {
+                sim.getLift().setPower(0);
+                liftController.setOutputBounds(-0.6, 1);
+                liftController.reset();
+                liftController.setTargetPosition(targetPosition);
+            }
+
+            @Override
+            public void execute(Simulation sim) {
+                liftPosition = sim.getLift().getPosition();
+                sim.getLift().setPower(liftController.update(liftPosition));
+            }
+
+            @Override
+            public boolean isFinished(Simulation sim) {
+                return Math.abs(liftPosition - targetPosition) < tolerance;
+            }
+
+            @Override
+            public void end(Simulation sim) {
+                sim.getLift().setPower(0);
+            }
+        };
+    }
+
+    public static SimCommand liftPosition(double targetPosition) {
+        return liftPosition(targetPosition, 5);
+    }
+}
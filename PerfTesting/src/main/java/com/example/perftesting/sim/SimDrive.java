@@ -0,0 +1,99 @@
+package com.example.perftesting.sim;
+
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.TRACK_WIDTH;
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.kA;
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.kStatic;
+import static org.firstinspires.ftc.teamcode.drive.DriveConstants.kV;
+
+import com.acmerobotics.roadrunner.drive.DriveSignal;
+import com.acmerobotics.roadrunner.followers.HolonomicPIDVAFollower;
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.kinematics.Kinematics;
+import com.acmerobotics.roadrunner.kinematics.MecanumKinematics;
+import com.acmerobotics.roadrunner.trajectory.Trajectory;
+
+import com.example.perftesting.BenchmarkDrive;
+import com.example.perftesting.BenchmarkWheels;
+import com.example.perftesting.ManualClock;
+
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequence;
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceBuilder;
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceCache;
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceRunner;
+
+import java.util.List;
+
+/**
+ * The SampleMecanumDrive following loop on top of {@link MecanumPhysics} and a virtual clock:
+ * the real MecanumWheelLocalizer and TrajectorySequenceRunner, with the signal turned into motor
+ * powers by Road Runner's kinematics like MecanumDrive.setDriveSignal does.
+ */
+public class SimDrive {
+    private final TrajectorySequenceCache cache = new TrajectorySequenceCache(32);
+    private final TrajectorySequenceRunner runner;
+    private final BenchmarkWheels wheels = new BenchmarkWheels();
+
+    private MecanumPhysics physics;
+
+    public SimDrive(ManualClock clock) {
+        Pose2d admissibleError = new Pose2d(0.5, 0.5, Math.toRadians(5.0));
+        double timeout = 0.5;
+        HolonomicPIDVAFollower follower = new HolonomicPIDVAFollower(
+                BenchmarkDrive.TRANSLATIONAL_PID, BenchmarkDrive.TRANSLATIONAL_PID, BenchmarkDrive.HEADING_PID,
+                admissibleError, timeout, clock
+        );
+        runner = new TrajectorySequenceRunner(follower, BenchmarkDrive.HEADING_PID, BenchmarkDrive.TRANSLATIONAL_PID, clock);
+        runner.setAdmissibleError(admissibleError, timeout);
+    }
+
+    public BenchmarkWheels getWheels() {
+        return wheels;
+    }
+
+    public void setPhysics(MecanumPhysics physics) {
+        this.physics = physics;
+    }
+
+    public TrajectorySequenceBuilder trajectorySequenceBuilder(Pose2d startPose) {
+        return BenchmarkDrive.trajectorySequenceBuilder(startPose, cache);
+    }
+
+    public void followTrajectoryAsync(Trajectory trajectory) {
+        followTrajectorySequenceAsync(
+                trajectorySequenceBuilder(trajectory.start())
+                        .addTrajectory(trajectory)
+                        .build()
+        );
+    }
+
+    public void followTrajectorySequenceAsync(TrajectorySequence trajectorySequence) {
+        runner.followTrajectorySequenceAsync(trajectorySequence);
+    }
+
+    public Pose2d getPoseEstimate() {
+        return wheels.localizer.getPoseEstimate();
+    }
+
+    public void setPoseEstimate(Pose2d pose) {
+        wheels.localizer.setPoseEstimate(pose);
+    }
+
+    public void update() {
+        wheels.localizer.update();
+        DriveSignal signal = runner.update(wheels.localizer.getPoseEstimate(), wheels.localizer.getPoseVelocity());
+        if (signal != null) setDriveSignal(signal);
+    }
+
+    private void setDriveSignal(DriveSignal signal) {
+        List<Double> velocities = MecanumKinematics.robotToWheelVelocities(
+                signal.getVel(), TRACK_WIDTH, TRACK_WIDTH, BenchmarkDrive.LATERAL_MULTIPLIER);
+        List<Double> accelerations = MecanumKinematics.robotToWheelAccelerations(
+                signal.getAccel(), TRACK_WIDTH, TRACK_WIDTH, BenchmarkDrive.LATERAL_MULTIPLIER);
+        List<Double> powers = Kinematics.calculateMotorFeedforward(velocities, accelerations, kV, kA, kStatic);
+        physics.setMotorPowers(powers.get(0), powers.get(1), powers.get(2), powers.get(3));
+    }
+
+    public boolean isBusy() {
+        return runner.isBusy();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.perftesting.sim;
+
+/**
+ * Lift motor model: encoder ticks moving at a speed that lags the commanded power.
+ */
+public class SimLift {
+    public static double MAX_SPEED = 2796; // ticks/s, free speed of a 312 rpm motor
+    public static double TIME_CONSTANT = 0.1; // s
+    public static double GRAVITY_POWER = 0.05; // power needed to hold the lift still
+
+    private double power = 0.0;
+    private double velocity = 0.0;
+    private double position = 0.0;
+
+    public void setPower(double power) {
+        this.power = Math.max(-1.0, Math.min(power, 1.0));
+    }
+
+    public double getPosition() {
+        return Math.round(position);
+    }
+
+    public void step(double dt) {
+        double targetVelocity = (power - GRAVITY_POWER) * MAX_SPEED;
+        velocity += (1.0 - Math.exp(-dt / TIME_CONSTANT)) * (targetVelocity - velocity);
+        position += velocity * dt;
+
+        //Bottomed out
+        if (position < 0) {
+            position = 0;
+            velocity = Math.max(velocity, 0);
+        }
+    }
+}
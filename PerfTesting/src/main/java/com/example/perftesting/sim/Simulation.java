@@ -0,0 +1,152 @@
+package com.example.perftesting.sim;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+
+import com.example.perftesting.ManualClock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs one modelled autonomous command tree (see {@link SimAutos}) against the drive and lift
+ * models on a virtual clock, as fast as the loop can go, and records how long each named command
+ * and each loop took.
+ */
+public class Simulation {
+    public static double LOOP_PERIOD = 0.015; // s of virtual time per loop
+    public static double TIME_LIMIT = 30.0; // s, length of the autonomous period
+
+    private static class CommandTiming {
+        private final String name;
+        private final double start;
+        private final double end;
+
+        private CommandTiming(String name, double start, double end) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private final ManualClock clock = new ManualClock();
+    private final SimDrive drive;
+    private final MecanumPhysics physics;
+    private final SimLift lift = new SimLift();
+
+    private final List<CommandTiming> commandTimings = new ArrayList<>();
+    private long[] loopTimes = new long[0];
+    private int loopCount = 0;
+    private double wallSeconds = 0.0;
+    private boolean timedOut = false;
+
+    public Simulation(Pose2d startPose) {
+        drive = new SimDrive(clock);
+        physics = new MecanumPhysics(drive.getWheels(), startPose);
+        drive.setPhysics(physics);
+        drive.setPoseEstimate(startPose);
+    }
+
+    public double seconds() {
+        return clock.seconds();
+    }
+
+    public SimDrive getDrive() {
+        return drive;
+    }
+
+    public SimLift getLift() {
+        return lift;
+    }
+
+    void start(SimCommand command) {
+        command.startTime = clock.seconds();
+        command.initialize(this);
+    }
+
+    /**
+     * Executes the command once, ending it if it's done.
+     *
+     * @return If the command ended.
+     */
+    boolean step(SimCommand command) {
+        command.execute(this);
+        if (!command.isFinished(this)) return false;
+
+        command.end(this);
+        if (command.getName() != null) {
+            commandTimings.add(new CommandTiming(command.getName(), command.startTime, clock.seconds()));
+        }
+        return true;
+    }
+
+    public void run(SimCommand auto) {
+        loopTimes = new long[(int) Math.ceil(TIME_LIMIT / LOOP_PERIOD) + 1];
+        long wallStart = System.nanoTime();
+
+        start(auto);
+
+        boolean done = false;
+        while (!done) {
+            if (clock.seconds() >= TIME_LIMIT) {
+                timedOut = true;
+                break;
+            }
+
+            long loopStart = System.nanoTime();
+
+            //Same order as the opmode loop: bulk read, drive update, then the scheduled commands
+            drive.update();
+            done = step(auto);
+
+            loopTimes[loopCount++] = System.nanoTime() - loopStart;
+
+            physics.step(LOOP_PERIOD);
+            lift.step(LOOP_PERIOD);
+            clock.advance(LOOP_PERIOD);
+        }
+
+        wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+    }
+
+    public String report(String autoName) {
+        StringBuilder report = new StringBuilder();
+
+        report.append(String.format(Locale.US, "%s: %.2f s%s, simulated %.0fx faster than real time%n",
+                autoName, clock.seconds(), timedOut ? " (did not finish)" : "",
+                clock.seconds() / Math.max(wallSeconds, 1e-9)));
+
+        Pose2d truePose = physics.getPose();
+        Pose2d estimate = drive.getPoseEstimate();
+        report.append(String.format(Locale.US, "  end pose %s, estimate error %.2f in%n",
+                truePose, truePose.vec().distTo(estimate.vec())));
+
+        for (CommandTiming timing : commandTimings) {
+            report.append(String.format(Locale.US, "  %7.2f - %7.2f s  %6.2f s  %s%n",
+                    timing.start, timing.end, timing.end - timing.start, timing.name));
+        }
+
+        long[] sorted = Arrays.copyOf(loopTimes, loopCount);
+        Arrays.sort(sorted);
+
+        double total = 0;
+        for (long time : sorted) total += time;
+
+        report.append(String.format(Locale.US,
+                "  loop time (us): mean %.1f, p50 %.1f, p90 %.1f, p99 %.1f, max %.1f over %d loops%n",
+                total / Math.max(loopCount, 1) / 1e3,
+                percentile(sorted, 0.50) / 1e3,
+                percentile(sorted, 0.90) / 1e3,
+                percentile(sorted, 0.99) / 1e3,
+                percentile(sorted, 1.00) / 1e3,
+                loopCount));
+
+        return report.toString();
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min((int) Math.ceil(fraction * sorted.length) - 1, sorted.length - 1)];
+    }
+}
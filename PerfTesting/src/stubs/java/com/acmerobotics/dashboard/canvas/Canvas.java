@@ -0,0 +1,47 @@
+package com.acmerobotics.dashboard.canvas;
+
+/**
+ * Stand-in for the dashboard canvas that only counts the drawing operations.
+ */
+public class Canvas {
+    private int operationCount = 0;
+
+    public int getOperationCount() {
+        return operationCount;
+    }
+
+    public Canvas strokeCircle(double x, double y, double radius) {
+        operationCount++;
+        return this;
+    }
+
+    public Canvas fillCircle(double x, double y, double radius) {
+        operationCount++;
+        return this;
+    }
+
+    public Canvas strokeLine(double x1, double y1, double x2, double y2) {
+        operationCount++;
+        return this;
+    }
+
+    public Canvas strokePolyline(double[] xPoints, double[] yPoints) {
+        operationCount++;
+        return this;
+    }
+
+    public Canvas setStroke(String color) {
+        operationCount++;
+        return this;
+    }
+
+    public Canvas setFill(String color) {
+        operationCount++;
+        return this;
+    }
+
+    public Canvas setStrokeWidth(int width) {
+        operationCount++;
+        return this;
+    }
+}
@@ -0,0 +1,22 @@
+package com.acmerobotics.dashboard.telemetry;
+
+import com.acmerobotics.dashboard.canvas.Canvas;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stand-in for the dashboard telemetry packet.
+ */
+public class TelemetryPacket {
+    private final Map<String, Object> data = new LinkedHashMap<>();
+    private final Canvas fieldOverlay = new Canvas();
+
+    public void put(String key, Object value) {
+        data.put(key, value);
+    }
+
+    public Canvas fieldOverlay() {
+        return fieldOverlay;
+    }
+}
@@ -0,0 +1,15 @@
+package com.qualcomm.robotcore.hardware;
+
+/**
+ * Stand-in for the SDK's PIDF coefficients, only used by DriveConstants.
+ */
+public class PIDFCoefficients {
+    public double p, i, d, f;
+
+    public PIDFCoefficients(double p, double i, double d, double f) {
+        this.p = p;
+        this.i = i;
+        this.d = d;
+        this.f = f;
+    }
+}
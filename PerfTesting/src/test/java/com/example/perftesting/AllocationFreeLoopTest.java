@@ -0,0 +1,218 @@
+package com.example.perftesting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.acmerobotics.roadrunner.followers.HolonomicPIDVAFollower;
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+
+import org.firstinspires.ftc.teamcode.drive.MecanumWheelLocalizer;
+import org.firstinspires.ftc.teamcode.drive.PosePublisher;
+import org.firstinspires.ftc.teamcode.drive.PoseSnapshot;
+import org.firstinspires.ftc.teamcode.trajectorysequence.MutableDriveSignal;
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequence;
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Drives a full cycle through the drive loop of TrajectorySequenceRunner.ALLOCATION_FREE mode,
+ * SampleMecanumDrive.update() short of the hardware: MecanumWheelLocalizer.update(), the pose
+ * published through PosePublisher, then TrajectorySequenceRunner.update(x, y, heading, signal), on
+ * wheels that follow the signal exactly. Checks the loop allocates nothing once the sequence has
+ * been sampled, and that other threads read whole poses while it runs.
+ * <p>
+ * Run with escape analysis off (see build.gradle) so the check can't pass only because the JIT
+ * happened to scalar replace something.
+ */
+public class AllocationFreeLoopTest {
+    private static final double LOOP_PERIOD = 0.01; // s
+    private static final double TIMEOUT = 0.5; // s
+    private static final double TRACK_WIDTH = 15.0;
+    private static final double LATERAL_MULTIPLIER = 1.0;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private ManualClock clock;
+    private IdealWheels wheels;
+    private MecanumWheelLocalizer localizer;
+    private PosePublisher publisher;
+    private TrajectorySequenceRunner runner;
+    private TrajectorySequence sequence;
+    private final MutableDriveSignal signal = new MutableDriveSignal();
+
+    /**
+     * Wheels that move exactly as the last signal asks, integrated over each loop.
+     */
+    private static class IdealWheels implements MecanumWheelLocalizer.WheelSource {
+        final double[] positions = new double[4];
+        final double[] velocities = new double[4];
+        //Fraction of the signal the wheels actually do
+        double gain = 1.0;
+
+        void drive(MutableDriveSignal signal, double dt) {
+            double k = TRACK_WIDTH;
+            double velY = LATERAL_MULTIPLIER * signal.velY, velHeading = k * signal.velHeading;
+            velocities[0] = gain * (signal.velX - velY - velHeading);
+            velocities[1] = gain * (signal.velX + velY - velHeading);
+            velocities[2] = gain * (signal.velX - velY + velHeading);
+            velocities[3] = gain * (signal.velX + velY + velHeading);
+            for (int i = 0; i < 4; i++) positions[i] += velocities[i] * dt;
+        }
+
+        @Override
+        public void getWheelPositions(double[] positions) {
+            System.arraycopy(this.positions, 0, positions, 0, 4);
+        }
+
+        @Override
+        public void getWheelVelocities(double[] velocities) {
+            System.arraycopy(this.velocities, 0, velocities, 0, 4);
+        }
+
+        @Override
+        public double getExternalHeading() {
+            return 0.0;
+        }
+
+        @Override
+        public void setExternalHeading(double heading) {
+        }
+
+        @Override
+        public double getExternalHeadingVelocityRadians() {
+            return Double.NaN;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        TrajectorySequenceRunner.ALLOCATION_FREE = true;
+
+        clock = new ManualClock();
+        wheels = new IdealWheels();
+        localizer = new MecanumWheelLocalizer(wheels, TRACK_WIDTH, TRACK_WIDTH, LATERAL_MULTIPLIER, false);
+        publisher = new PosePublisher();
+        localizer.setPoseResetListener(publisher::publishPose);
+
+        Pose2d admissibleError = new Pose2d(0.5, 0.5, Math.toRadians(5.0));
+        HolonomicPIDVAFollower follower = new HolonomicPIDVAFollower(
+                BenchmarkDrive.TRANSLATIONAL_PID, BenchmarkDrive.TRANSLATIONAL_PID, BenchmarkDrive.HEADING_PID,
+                admissibleError, TIMEOUT, clock
+        );
+        runner = new TrajectorySequenceRunner(
+                follower, BenchmarkDrive.HEADING_PID, BenchmarkDrive.TRANSLATIONAL_PID, clock
+        );
+        runner.setAdmissibleError(admissibleError, TIMEOUT);
+
+        sequence = Routes.FULL_CYCLE.apply(BenchmarkDrive.trajectorySequenceBuilder(Routes.BLUE_WAREHOUSE_POSE, null)).build();
+    }
+
+    @After
+    public void tearDown() {
+        TrajectorySequenceRunner.ALLOCATION_FREE = false;
+    }
+
+    private int runSequence() {
+        localizer.setPoseEstimate(sequence.start());
+        runner.followTrajectorySequenceAsync(sequence);
+
+        int loops = 0;
+        while (runner.isBusy()) {
+            clock.advance(LOOP_PERIOD);
+            update();
+            wheels.drive(signal, LOOP_PERIOD);
+            loops++;
+        }
+        return loops;
+    }
+
+    //SampleMecanumDrive.update() then updateAllocationFree(), without the voltage and motors
+    private void update() {
+        localizer.update();
+        publisher.publish(localizer);
+        double x = localizer.getX(), y = localizer.getY(), heading = localizer.getHeading();
+        runner.update(x, y, heading, signal);
+    }
+
+    @Test
+    public void followsTheSequence() {
+        int loops = runSequence();
+
+        assertTrue(loops >= sequence.duration() / LOOP_PERIOD);
+        assertEquals(sequence.end().getX(), localizer.getX(), 1.0);
+        assertEquals(sequence.end().getY(), localizer.getY(), 1.0);
+        assertFalse(runner.update(localizer.getX(), localizer.getY(), localizer.getHeading(), signal));
+
+        PoseSnapshot snapshot = publisher.getSnapshot();
+        assertTrue(snapshot.isValid());
+        assertEquals(localizer.getX(), snapshot.x, 0.0);
+        assertEquals(localizer.getY(), snapshot.y, 0.0);
+        assertEquals(localizer.getHeading(), snapshot.heading, 0.0);
+        assertEquals(localizer.getVelocityX(), snapshot.velocityX, 0.0);
+    }
+
+    @Test
+    public void stuckRobotWaitsOutTheTimeout() {
+        //The robot never leaves the start, so at least the first trajectory ends out of reach
+        wheels.gain = 0.0;
+        int loops = runSequence();
+
+        assertTrue(loops * LOOP_PERIOD >= sequence.duration() + TIMEOUT);
+        assertFalse(runner.isBusy());
+    }
+
+    @Test
+    public void readersSeeWholePoses() throws InterruptedException {
+        AtomicReference<String> torn = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            long lastSequence = 0;
+            while (!Thread.currentThread().isInterrupted() && torn.get() == null) {
+                PoseSnapshot snapshot = publisher.getSnapshot();
+                if (snapshot.sequence < lastSequence) torn.set("sequence went back at " + snapshot.sequence);
+                //Published below as (i, 2i, 3i, -i, -2i, -3i)
+                if (snapshot.y != 2 * snapshot.x || snapshot.heading != 3 * snapshot.x
+                        || snapshot.velocityX != -snapshot.x || snapshot.velocityHeading != -3 * snapshot.x) {
+                    torn.set("torn snapshot " + snapshot.getPose() + " " + snapshot.getVelocity());
+                }
+                lastSequence = snapshot.sequence;
+            }
+        });
+        reader.start();
+
+        for (int i = 1; i <= 1_000_000 && torn.get() == null; i++) {
+            publisher.publish(i, 2 * i, 3 * i, -i, -2 * i, -3 * i);
+        }
+        reader.interrupt();
+        reader.join();
+
+        assertNull(torn.get());
+        assertEquals(1_000_000, publisher.getSnapshot().sequence);
+    }
+
+    @Test
+    public void loopDoesNotAllocate() {
+        //The first run samples the sequence and sizes the renderer's history buffers
+        runSequence();
+
+        long thread = Thread.currentThread().getId();
+
+        //What reading the counter itself costs
+        long overheadStart = threads.getThreadAllocatedBytes(thread);
+        long overhead = threads.getThreadAllocatedBytes(thread) - overheadStart;
+
+        long start = threads.getThreadAllocatedBytes(thread);
+        int loops = runSequence();
+        long allocated = threads.getThreadAllocatedBytes(thread) - start - overhead;
+
+        assertTrue(loops > 0);
+        assertEquals("bytes allocated over " + loops + " loops", 0, allocated);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.perftesting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+
+import org.firstinspires.ftc.teamcode.util.FieldModel;
+import org.firstinspires.ftc.teamcode.util.RelocalizationGeometry;
+import org.junit.Test;
+
+/**
+ * Checks the range model EkfLocalizer corrects with, RelocalizationGeometry's field heading
+ * functions, on both alliances at the poses the cycle autos drive along the wall: the robot facing
+ * the warehouse on blue and backing into it on red.
+ */
+public class RelocalizationGeometryTest {
+    //The calibrated base distances sit a few inches off the nominal 72 inch walls FieldModel casts to
+    private static final double CALIBRATION_TOLERANCE = 8.0; // in
+    private static final double POSE_TOLERANCE = 1e-9;
+    private static final double STEP = 1e-3;
+
+    private static final double[] XS = {10, 25, 40};
+    private static final double[] HEADING_OFFSETS = {Math.toRadians(-5), 0, Math.toRadians(5)};
+    //Close enough to the wall that the forward beam clears the barrier by the warehouse
+    private static final double WALL_Y = 60;
+
+    private static void checkAlliance(boolean redSide) {
+        double y = redSide ? -WALL_Y : WALL_Y;
+        Pose2d forwardMount = redSide ? RelocalizationGeometry.BACKWARD_SENSOR_MOUNT : RelocalizationGeometry.FORWARD_SENSOR_MOUNT;
+        Pose2d sideMount = redSide ? RelocalizationGeometry.LEFT_SENSOR_MOUNT : RelocalizationGeometry.RIGHT_SENSOR_MOUNT;
+
+        for (double x : XS) {
+            for (double offset : HEADING_OFFSETS) {
+                double heading = (redSide ? Math.PI : 0.0) + offset;
+                String pose = (redSide ? "red" : "blue") + " at (" + x + ", " + y + ", " + Math.toDegrees(heading) + " deg)";
+
+                double forward = RelocalizationGeometry.expectedForwardRange(x, heading, redSide);
+                double side = RelocalizationGeometry.expectedSideRange(y, heading, redSide);
+
+                //The ranges the sensors would see, give or take the calibration
+                assertEquals(pose + " forward", FieldModel.FREIGHT_FRENZY.expectedRange(x, y, heading, forwardMount), forward, CALIBRATION_TOLERANCE);
+                assertEquals(pose + " side", FieldModel.FREIGHT_FRENZY.expectedRange(x, y, heading, sideMount), side, CALIBRATION_TOLERANCE);
+
+                //And exactly what RelocalizeCommand turns back into this pose
+                Pose2d estimate = RelocalizationGeometry.estimatePose(
+                        forward, side, RelocalizationGeometry.geometryHeading(heading, redSide), redSide);
+                assertEquals(pose + " x", x, estimate.getX(), POSE_TOLERANCE);
+                assertEquals(pose + " y", y, estimate.getY(), POSE_TOLERANCE);
+
+                //Driving towards the warehouse wall shortens the forward range, towards the alliance wall the side range
+                assertTrue(pose + " forward slope", RelocalizationGeometry.expectedForwardRange(x + STEP, heading, redSide) < forward);
+                double towardsWall = redSide ? -STEP : STEP;
+                assertTrue(pose + " side slope", RelocalizationGeometry.expectedSideRange(y + towardsWall, heading, redSide) < side);
+            }
+        }
+    }
+
+    /**
+     * RelocalizeCommand's gate, given the heading the way estimatePose takes it. By the wall the
+     * beams reach the walls; further out the forward (backward on red) beam hits the barrier in
+     * front of the warehouse.
+     */
+    private static void checkGate(boolean redSide) {
+        double side = redSide ? -1 : 1;
+        double heading = redSide ? Math.PI : 0.0;
+        double geometryHeading = RelocalizationGeometry.geometryHeading(heading, redSide);
+
+        assertEquals(Math.cos(heading), Math.cos(RelocalizationGeometry.fieldHeading(geometryHeading, redSide)), 1e-12);
+        assertTrue(RelocalizationGeometry.beamsReachWalls(FieldModel.FREIGHT_FRENZY, 25, side * WALL_Y, geometryHeading, redSide, 3));
+        assertFalse(RelocalizationGeometry.beamsReachWalls(FieldModel.FREIGHT_FRENZY, 10, side * 40, geometryHeading, redSide, 3));
+    }
+
+    @Test
+    public void blueRangesMatchTheField() {
+        checkAlliance(false);
+    }
+
+    @Test
+    public void redRangesMatchTheField() {
+        checkAlliance(true);
+    }
+
+    @Test
+    public void blueGateChecksTheWallsItMeasures() {
+        checkGate(false);
+    }
+
+    @Test
+    public void redGateChecksTheWallsItMeasures() {
+        checkGate(true);
+    }
+}
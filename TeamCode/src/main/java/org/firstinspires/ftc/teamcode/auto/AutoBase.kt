@@ -5,16 +5,39 @@ import com.arcrobotics.ftclib.command.CommandScheduler
 import com.arcrobotics.ftclib.command.RunCommand
 import com.arcrobotics.ftclib.command.WaitCommand
 import com.qualcomm.hardware.lynx.LynxModule
+import com.qualcomm.robotcore.util.RobotLog
 import org.firstinspires.ftc.teamcode.commands.BulkCacheCommand
 import org.firstinspires.ftc.teamcode.drive.SampleMecanumDrive
+import org.firstinspires.ftc.teamcode.hardware.HardwareAccounting
+import org.firstinspires.ftc.teamcode.hardware.HubIoDispatcher
+import org.firstinspires.ftc.teamcode.util.FixedRateScheduler
+import org.firstinspires.ftc.teamcode.util.LoopProfiler
 
 abstract class AutoBase : CommandOpMode() {
 
+    //times every command and tracked subsystem, see LoopProfiler
+    protected lateinit var profiler: LoopProfiler
+
+    //runs the loop on a fixed tick, with slower subsystems and telemetry every few ticks
+    protected lateinit var rate: FixedRateScheduler
+
+    //sends each hub's motor and servo writes on its own thread at the end of the loop
+    private lateinit var io: HubIoDispatcher
+
+    //counts hardware calls per device and hub when HardwareAccounting.ENABLED is on, null otherwise
+    private var accounting: HardwareAccounting? = null
+
     //convenience command for a pause
     fun waitFor(millis: Long): WaitCommand = WaitCommand(millis);
 
     //start bulk caching
     override fun initialize() {
+        hardwareMap = HardwareAccounting.wrap(hardwareMap)
+        accounting = hardwareMap as? HardwareAccounting
+
+        profiler = LoopProfiler()
+        rate = FixedRateScheduler(profiler)
+        io = HubIoDispatcher.get(hardwareMap)
 
         //Clear the bulk read cache every iteration
         schedule(BulkCacheCommand(hardwareMap))
@@ -22,9 +45,28 @@ abstract class AutoBase : CommandOpMode() {
 
     //update the telemetry in the background as well
     override fun run() {
-        super.run()
+        rate.waitForNextTick()
+
+        io.beginLoop()
+        profiler.run()
+        io.flush()
+        accounting?.endLoop()
+
+        if (rate.isDue(FixedRateScheduler.Tier.TELEMETRY)) {
+            telemetry.addData("Loop overruns", rate.overruns)
+            telemetry.update()
+        }
+    }
+
+    //dump the loop timings once the opmode stops
+    override fun reset() {
+        super.reset()
+
+        profiler.writeSummary(javaClass.simpleName)
 
-        telemetry.update()
+        //the cache lives as long as the app, so these count every auto since it started
+        val cache = SampleMecanumDrive.getSequenceCache()
+        RobotLog.ii("TrajectorySequenceCache", "%d hits, %d misses", cache.hits, cache.misses)
     }
 
 }
@@ -20,6 +20,7 @@ import org.firstinspires.ftc.teamcode.subsystems.Lift;
 import org.firstinspires.ftc.teamcode.subsystems.RightIntake;
 import org.firstinspires.ftc.teamcode.subsystems.ScoringArm;
 import org.firstinspires.ftc.teamcode.util.Extensions;
+import org.firstinspires.ftc.teamcode.util.InitOrchestrator;
 import org.firstinspires.ftc.teamcode.vision.HubLevel;
 import org.firstinspires.ftc.teamcode.vision.TeamMarkerDetector;
 
@@ -45,17 +46,39 @@ public class BlueCycleAuto extends AutoBase {
     public void initialize() {
         super.initialize();
 
-        drive = new SampleMecanumDrive(hardwareMap);
-        drive.setPoseEstimate(startPose);
-
-        leftIntake = new LeftIntake(hardwareMap);
-        rightIntake = new RightIntake(hardwareMap);
-        scoringArm = new ScoringArm(hardwareMap);
-        bucket = new Bucket(hardwareMap);
-        lift = new Lift(hardwareMap);
-        teamMarkerDetector = new TeamMarkerDetector(hardwareMap, false, false);
+        //build everything at once, the drive (IMU) and the camera take the longest
+        InitOrchestrator init = new InitOrchestrator();
+        init.add("Drive", () -> drive = new SampleMecanumDrive(hardwareMap));
+        init.add("Camera", () -> {
+            teamMarkerDetector = new TeamMarkerDetector(hardwareMap, false, false);
+            teamMarkerDetector.init();
+            return teamMarkerDetector;
+        });
+        InitOrchestrator.Step<LeftIntake> leftIntakeStep =
+                init.addOnMainThread("LeftIntake", () -> leftIntake = new LeftIntake(hardwareMap, false));
+        InitOrchestrator.Step<RightIntake> rightIntakeStep =
+                init.addOnMainThread("RightIntake", () -> rightIntake = new RightIntake(hardwareMap, false));
+        init.addOnMainThread("ScoringArm", () -> scoringArm = new ScoringArm(hardwareMap));
+        init.addOnMainThread("Bucket", () -> bucket = new Bucket(hardwareMap));
+        InitOrchestrator.Step<Lift> liftStep =
+                init.addOnMainThread("Lift", () -> lift = new Lift(hardwareMap, false));
+        //the encoder resets are hub transactions, only building the subsystems has to be on this thread
+        init.add("LeftIntake motor", () -> {
+            leftIntake.setUpMotor();
+            return null;
+        }, leftIntakeStep);
+        init.add("RightIntake motor", () -> {
+            rightIntake.setUpMotor();
+            return null;
+        }, rightIntakeStep);
+        init.add("Lift motor", () -> {
+            lift.setUpMotor();
+            return null;
+        }, liftStep);
+        init.run();
 
-        teamMarkerDetector.init();
+        drive.setPoseEstimate(startPose);
+        profiler.trackSubsystems(leftIntake, rightIntake, scoringArm, bucket, lift);
 
         telemetry = new MultipleTelemetry(telemetry);
 
@@ -64,14 +87,26 @@ public class BlueCycleAuto extends AutoBase {
                 drive, lift, leftIntake, scoringArm, bucket, startPose, () -> hubLevel, false
         );
 
-        DropFreight dropFreight = new DropFreight(
-                drive, lift, leftIntake, scoringArm, bucket, false
-        );
-
         RetractFromFreight retractFromFreight = new RetractFromFreight(
-                drive, lift, leftIntake, scoringArm, bucket, false
+                drive, lift, leftIntake, scoringArm, bucket, false, 0
         );
 
+        DropFreight dropFreight1 = new DropFreight(drive, lift, leftIntake, scoringArm, bucket, false, 1);
+        RetractFromFreight retractFromFreight1 = new RetractFromFreight(drive, lift, leftIntake, scoringArm, bucket, false, 1);
+        DropFreight dropFreight2 = new DropFreight(drive, lift, leftIntake, scoringArm, bucket, false, 2);
+        RetractFromFreight retractFromFreight2 = new RetractFromFreight(drive, lift, leftIntake, scoringArm, bucket, false, 2);
+        DropFreight dropFreight3 = new DropFreight(drive, lift, leftIntake, scoringArm, bucket, false, 3);
+        RetractFromFreight retractFromFreight3 = new RetractFromFreight(drive, lift, leftIntake, scoringArm, bucket, false, 3);
+
+        //while each command drives, the next one's trajectory is built on the planning thread
+        dropPreloadFreight.thenPlan(retractFromFreight);
+        retractFromFreight.thenPlan(dropFreight1);
+        dropFreight1.thenPlan(retractFromFreight1);
+        retractFromFreight1.thenPlan(dropFreight2);
+        dropFreight2.thenPlan(retractFromFreight2);
+        retractFromFreight2.thenPlan(dropFreight3);
+        dropFreight3.thenPlan(retractFromFreight3);
+
 
         //start vision
         teamMarkerDetector.startStream();
@@ -79,6 +114,7 @@ public class BlueCycleAuto extends AutoBase {
             hubLevel = HubLevel.valueOf(teamMarkerDetector.getHubLevel().toString());
             telemetry.addLine("Ready For Start!");
             telemetry.addData("Hub Level", hubLevel);
+            init.report(telemetry);
             telemetry.update();
         }
 
@@ -95,21 +131,21 @@ public class BlueCycleAuto extends AutoBase {
 
                         //cycle 1
                         new WaitCommand(100),
-                        new DropFreight(drive, lift, leftIntake, scoringArm, bucket, false),
+                        dropFreight1,
                         new WaitCommand(100),
-                        new RetractFromFreight(drive, lift, leftIntake, scoringArm, bucket, false),
+                        retractFromFreight1,
 
                         //cycle 2
                         new WaitCommand(100),
-                        new DropFreight(drive, lift, leftIntake, scoringArm, bucket, false),
+                        dropFreight2,
                         new WaitCommand(100),
-                        new RetractFromFreight(drive, lift, leftIntake, scoringArm, bucket, false),
+                        retractFromFreight2,
 
                         //cycle 3
                         new WaitCommand(100),
-                        new DropFreight(drive, lift, leftIntake, scoringArm, bucket, false),
+                        dropFreight3,
                         new WaitCommand(100),
-                        new RetractFromFreight(drive, lift, leftIntake, scoringArm, bucket, false),
+                        retractFromFreight3,
 
 
 
@@ -20,6 +20,7 @@ import org.firstinspires.ftc.teamcode.subsystems.Lift;
 import org.firstinspires.ftc.teamcode.subsystems.RightIntake;
 import org.firstinspires.ftc.teamcode.subsystems.ScoringArm;
 import org.firstinspires.ftc.teamcode.util.Extensions;
+import org.firstinspires.ftc.teamcode.util.InitOrchestrator;
 import org.firstinspires.ftc.teamcode.vision.HubLevel;
 import org.firstinspires.ftc.teamcode.vision.TeamMarkerDetector;
 
@@ -44,18 +45,39 @@ public class RedCycleAuto extends AutoBase {
     public void initialize() {
         super.initialize();
 
-        drive = new SampleMecanumDrive(hardwareMap);
-        drive.setPoseEstimate(startPose);
-
+        //build everything at once, the drive (IMU) and the camera take the longest
+        InitOrchestrator init = new InitOrchestrator();
+        init.add("Drive", () -> drive = new SampleMecanumDrive(hardwareMap));
+        init.add("Camera", () -> {
+            teamMarkerDetector = new TeamMarkerDetector(hardwareMap, true, false);
+            teamMarkerDetector.init();
+            return teamMarkerDetector;
+        });
+        InitOrchestrator.Step<LeftIntake> leftIntakeStep =
+                init.addOnMainThread("LeftIntake", () -> leftIntake = new LeftIntake(hardwareMap, false));
+        InitOrchestrator.Step<RightIntake> rightIntakeStep =
+                init.addOnMainThread("RightIntake", () -> rightIntake = new RightIntake(hardwareMap, false));
+        init.addOnMainThread("ScoringArm", () -> scoringArm = new ScoringArm(hardwareMap));
+        init.addOnMainThread("Bucket", () -> bucket = new Bucket(hardwareMap));
+        InitOrchestrator.Step<Lift> liftStep =
+                init.addOnMainThread("Lift", () -> lift = new Lift(hardwareMap, false));
+        //the encoder resets are hub transactions, only building the subsystems has to be on this thread
+        init.add("LeftIntake motor", () -> {
+            leftIntake.setUpMotor();
+            return null;
+        }, leftIntakeStep);
+        init.add("RightIntake motor", () -> {
+            rightIntake.setUpMotor();
+            return null;
+        }, rightIntakeStep);
+        init.add("Lift motor", () -> {
+            lift.setUpMotor();
+            return null;
+        }, liftStep);
+        init.run();
 
-        leftIntake = new LeftIntake(hardwareMap);
-        rightIntake = new RightIntake(hardwareMap);
-        scoringArm = new ScoringArm(hardwareMap);
-        bucket = new Bucket(hardwareMap);
-        lift = new Lift(hardwareMap);
-        teamMarkerDetector = new TeamMarkerDetector(hardwareMap, true, false);
-
-        teamMarkerDetector.init();
+        drive.setPoseEstimate(startPose);
+        profiler.trackSubsystems(leftIntake, rightIntake, scoringArm, bucket, lift);
 
 
         //commands here ig lol
@@ -63,14 +85,26 @@ public class RedCycleAuto extends AutoBase {
                 drive, lift, leftIntake, scoringArm, bucket, startPose, () -> hubLevel, true
         );
 
-        DropFreight dropFreight = new DropFreight(
-                drive, lift, rightIntake, scoringArm, bucket, true
-        );
-
         RetractFromFreight retractFromFreight = new RetractFromFreight(
-                drive, lift, rightIntake, scoringArm, bucket, true
+                drive, lift, rightIntake, scoringArm, bucket, true, 0
         );
 
+        DropFreight dropFreight1 = new DropFreight(drive, lift, rightIntake, scoringArm, bucket, true, 1);
+        RetractFromFreight retractFromFreight1 = new RetractFromFreight(drive, lift, rightIntake, scoringArm, bucket, true, 1);
+        DropFreight dropFreight2 = new DropFreight(drive, lift, rightIntake, scoringArm, bucket, true, 2);
+        RetractFromFreight retractFromFreight2 = new RetractFromFreight(drive, lift, rightIntake, scoringArm, bucket, true, 2);
+        DropFreight dropFreight3 = new DropFreight(drive, lift, rightIntake, scoringArm, bucket, true, 3);
+        RetractFromFreight retractFromFreight3 = new RetractFromFreight(drive, lift, rightIntake, scoringArm, bucket, true, 3);
+
+        //while each command drives, the next one's trajectory is built on the planning thread
+        dropPreloadFreight.thenPlan(retractFromFreight);
+        retractFromFreight.thenPlan(dropFreight1);
+        dropFreight1.thenPlan(retractFromFreight1);
+        retractFromFreight1.thenPlan(dropFreight2);
+        dropFreight2.thenPlan(retractFromFreight2);
+        retractFromFreight2.thenPlan(dropFreight3);
+        dropFreight3.thenPlan(retractFromFreight3);
+
 
         //start vision
         teamMarkerDetector.startStream();
@@ -78,6 +112,7 @@ public class RedCycleAuto extends AutoBase {
             hubLevel = HubLevel.valueOf(teamMarkerDetector.getHubLevel().toString());
             telemetry.addLine("Ready For Start!");
             telemetry.addData("Hub Level", hubLevel);
+            init.report(telemetry);
             telemetry.update();
         }
 
@@ -94,21 +129,21 @@ public class RedCycleAuto extends AutoBase {
 
                         //cycle 1
                         new WaitCommand(100),
-                        new DropFreight(drive, lift, rightIntake, scoringArm, bucket, true),
+                        dropFreight1,
                         new WaitCommand(100),
-                        new RetractFromFreight(drive, lift, rightIntake, scoringArm, bucket, true),
+                        retractFromFreight1,
 
                         //cycle 2
                         new WaitCommand(100),
-                        new DropFreight(drive, lift, rightIntake, scoringArm, bucket, true),
+                        dropFreight2,
                         new WaitCommand(100),
-                        new RetractFromFreight(drive, lift, rightIntake, scoringArm, bucket, true),
+                        retractFromFreight2,
 
                         //cycle 3
                         new WaitCommand(100),
-                        new DropFreight(drive, lift, rightIntake, scoringArm, bucket, true),
+                        dropFreight3,
                         new WaitCommand(100),
-                        new RetractFromFreight(drive, lift, rightIntake, scoringArm, bucket, true),
+                        retractFromFreight3,
 
                         new InstantCommand(() -> rightIntake.stop())
                 )
@@ -24,6 +24,8 @@ import org.firstinspires.ftc.teamcode.subsystems.Lift;
 import org.firstinspires.ftc.teamcode.subsystems.RightIntake;
 import org.firstinspires.ftc.teamcode.subsystems.ScoringArm;
 import org.firstinspires.ftc.teamcode.util.Extensions;
+import org.firstinspires.ftc.teamcode.util.FixedRateScheduler;
+import org.firstinspires.ftc.teamcode.util.InitOrchestrator;
 import org.firstinspires.ftc.teamcode.vision.HubLevel;
 import org.firstinspires.ftc.teamcode.vision.TeamMarkerDetector;
 
@@ -50,18 +52,42 @@ public class RedDuckAuto extends AutoBase {
     public void initialize() {
         super.initialize();
 
-        drive = new SampleMecanumDrive(hardwareMap);
-        drive.setPoseEstimate(startPose);
-
-        leftIntake = new LeftIntake(hardwareMap);
-        rightIntake = new RightIntake(hardwareMap);
-        scoringArm = new ScoringArm(hardwareMap);
-        bucket = new Bucket(hardwareMap);
-        lift = new Lift(hardwareMap);
-        carouselWheel = new CarouselWheel(hardwareMap);
-        teamMarkerDetector = new TeamMarkerDetector(hardwareMap, true, true);
+        //build everything at once, the drive (IMU) and the camera take the longest
+        InitOrchestrator init = new InitOrchestrator();
+        init.add("Drive", () -> drive = new SampleMecanumDrive(hardwareMap));
+        init.add("Camera", () -> {
+            teamMarkerDetector = new TeamMarkerDetector(hardwareMap, true, true);
+            teamMarkerDetector.init();
+            return teamMarkerDetector;
+        });
+        InitOrchestrator.Step<LeftIntake> leftIntakeStep =
+                init.addOnMainThread("LeftIntake", () -> leftIntake = new LeftIntake(hardwareMap, false));
+        InitOrchestrator.Step<RightIntake> rightIntakeStep =
+                init.addOnMainThread("RightIntake", () -> rightIntake = new RightIntake(hardwareMap, false));
+        init.addOnMainThread("ScoringArm", () -> scoringArm = new ScoringArm(hardwareMap));
+        init.addOnMainThread("Bucket", () -> bucket = new Bucket(hardwareMap));
+        InitOrchestrator.Step<Lift> liftStep =
+                init.addOnMainThread("Lift", () -> lift = new Lift(hardwareMap, false));
+        init.addOnMainThread("CarouselWheel", () -> carouselWheel = new CarouselWheel(hardwareMap));
+        //the encoder resets are hub transactions, only building the subsystems has to be on this thread
+        init.add("LeftIntake motor", () -> {
+            leftIntake.setUpMotor();
+            return null;
+        }, leftIntakeStep);
+        init.add("RightIntake motor", () -> {
+            rightIntake.setUpMotor();
+            return null;
+        }, rightIntakeStep);
+        init.add("Lift motor", () -> {
+            lift.setUpMotor();
+            return null;
+        }, liftStep);
+        init.run();
 
-        teamMarkerDetector.init();
+        drive.setPoseEstimate(startPose);
+        profiler.trackSubsystems(leftIntake, rightIntake, scoringArm, bucket, lift, carouselWheel);
+        //its periodic() only reports telemetry
+        rate.setTier(carouselWheel, FixedRateScheduler.Tier.TELEMETRY);
 
         //commands here ig lol
         DropPreloadFreight dropPreloadFreight = new DropPreloadFreight(
@@ -94,6 +120,7 @@ public class RedDuckAuto extends AutoBase {
             hubLevel = HubLevel.valueOf(teamMarkerDetector.getHubLevel().toString());
             telemetry.addLine("Ready For Start!");
             telemetry.addData("Hub Level", hubLevel);
+            init.report(telemetry);
             telemetry.update();
         }
 
@@ -4,19 +4,26 @@ import com.arcrobotics.ftclib.command.CommandBase;
 import com.qualcomm.hardware.lynx.LynxModule;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 
+import org.firstinspires.ftc.teamcode.hardware.HubIoDispatcher;
+
 import java.util.List;
 
 /**
  * Command that runs infinitely and will constantly clear the bulk cache each loop.
+ * <p>
+ * Every hub's bulk read is started at the same time through the {@link HubIoDispatcher}, so the
+ * reads take as long as the slowest hub rather than all of them added up.
  */
 public class BulkCacheCommand extends CommandBase {
 
 
     private final List<LynxModule> allHubs;
+    private final HubIoDispatcher dispatcher;
 
 
     public BulkCacheCommand(HardwareMap hardwareMap) {
         allHubs = hardwareMap.getAll(LynxModule.class);
+        dispatcher = HubIoDispatcher.get(hardwareMap);
     }
 
     @Override
@@ -26,6 +33,6 @@ public class BulkCacheCommand extends CommandBase {
 
     @Override
     public void execute() {
-        allHubs.forEach(LynxModule::clearBulkCache);
+        dispatcher.bulkReadAll();
     }
 }
@@ -3,6 +3,7 @@ package org.firstinspires.ftc.teamcode.commands
 import com.arcrobotics.ftclib.command.CommandBase
 import com.qualcomm.robotcore.util.ElapsedTime
 import org.firstinspires.ftc.teamcode.drive.SampleMecanumDrive
+import org.firstinspires.ftc.teamcode.trajectorysequence.PlannedTrajectorySequence
 import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequence
 import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceBuilder
 
@@ -10,13 +11,25 @@ import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceBuild
 Command to follow a RR trajectory sequence
 
 Comments omitted as they are identical to the regular trajectory command
+
+Can also be given a sequence planned in the background with drive.planTrajectorySequenceAsync(),
+which is handed off (or rebuilt if it isn't ready) when the command starts.
  */
-class FollowTrajectorySequenceCommand(private val drive: SampleMecanumDrive,
-                                      private val trajectorySequence: TrajectorySequence
+class FollowTrajectorySequenceCommand private constructor(private val drive: SampleMecanumDrive,
+                                                          private var trajectorySequence: TrajectorySequence?,
+                                                          private val plannedSequence: PlannedTrajectorySequence?
                                       ) : CommandBase() {
 
+    constructor(drive: SampleMecanumDrive, trajectorySequence: TrajectorySequence) :
+            this(drive, trajectorySequence, null)
+
+    constructor(drive: SampleMecanumDrive, plannedSequence: PlannedTrajectorySequence) :
+            this(drive, null, plannedSequence)
+
 
     override fun initialize() {
+        if (plannedSequence != null) trajectorySequence = plannedSequence.resolve(drive.poseEstimate)
+
         drive.followTrajectorySequenceAsync(trajectorySequence)
     }
 
@@ -32,4 +45,4 @@ class FollowTrajectorySequenceCommand(private val drive: SampleMecanumDrive,
     override fun end(interrupted: Boolean){
         drive.breakFollowing()
     }
-}
\ No newline at end of file
+}
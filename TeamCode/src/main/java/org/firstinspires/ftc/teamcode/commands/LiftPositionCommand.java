@@ -51,8 +51,8 @@ public class LiftPositionCommand extends CommandBase {
     @Override
     public void execute(){
         liftPosition = lift.getLiftPosition();
-        //Update the lift power with the controller
-        lift.setLiftPower(liftController.update(liftPosition));
+        //Update the lift power with the controller, rescaled for the battery so the gains hold as it drains
+        lift.setCompensatedLiftPower(liftController.update(liftPosition));
     }
 
     @Override
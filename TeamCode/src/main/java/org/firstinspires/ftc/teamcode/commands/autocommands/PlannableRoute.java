@@ -0,0 +1,17 @@
+package org.firstinspires.ftc.teamcode.commands.autocommands;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+
+/**
+ * An auto command whose trajectory can be built on the drive's planning thread before the command
+ * starts, so the opmode thread doesn't stall building it at the command boundary.
+ * <p>
+ * The command before it calls {@link #planRoute} once it knows where its own trajectory ends.
+ */
+public interface PlannableRoute {
+    /**
+     * Starts building the route in the background from where the robot will be when this command
+     * starts.
+     */
+    void planRoute(Pose2d startPose);
+}
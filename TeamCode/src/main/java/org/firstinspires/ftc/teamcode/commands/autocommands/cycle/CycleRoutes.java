@@ -0,0 +1,87 @@
+package org.firstinspires.ftc.teamcode.commands.autocommands.cycle;
+
+import static java.lang.Math.toRadians;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.geometry.Vector2d;
+
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequence;
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The cycle autos' routes, shared by the commands that drive them and the opmode that exports
+ * them precompiled. Only builder calls, these run on the planning thread.
+ */
+public class CycleRoutes {
+    //Each retract goes this much deeper into the warehouse than the last
+    private static final double RETRACT_DISTANCE_ADD = 2;
+
+    public static final int CYCLES = 3;
+
+    public static TrajectorySequenceBuilder dropFreight(TrajectorySequenceBuilder builder, boolean redSide) {
+        return (redSide) ?
+                builder
+                        .splineToConstantHeading(new Vector2d(10.0, -65), toRadians(180.0))
+                        .lineToLinearHeading(new Pose2d(-9, -64, toRadians(180))) :
+                builder
+                        .setReversed(true)
+                        .splineToConstantHeading(new Vector2d(10.0, 65), toRadians(180.0))
+                        .lineToLinearHeading(new Pose2d(-9, 64, toRadians(0)));
+    }
+
+    public static TrajectorySequenceBuilder retractFromFreight(TrajectorySequenceBuilder builder, boolean redSide, int cycleNum) {
+        return (redSide) ?
+                builder
+                        .setReversed(true)
+                        .lineToLinearHeading(new Pose2d(10, -65, toRadians(180)))
+                        .splineToConstantHeading(new Vector2d(40 + (cycleNum * RETRACT_DISTANCE_ADD), -65), toRadians(0)) :
+                builder
+                        .lineToLinearHeading(new Pose2d(10, 65, toRadians(0)))
+                        .splineToConstantHeading(new Vector2d(36 + (cycleNum * RETRACT_DISTANCE_ADD), 65), toRadians(0));
+    }
+
+    /**
+     * Name the drop of the given cycle (1 to CYCLES) is exported and loaded under.
+     */
+    public static String dropFreightName(boolean redSide, int cycleNum) {
+        return (redSide ? "Red" : "Blue") + "DropFreight" + cycleNum;
+    }
+
+    /**
+     * Name the retract of the given cycle is exported and loaded under. Cycle 0 retracts from the
+     * preload, which starts wherever the hub level put the robot, so it's never exported.
+     */
+    public static String retractFromFreightName(boolean redSide, int cycleNum) {
+        return (redSide ? "Red" : "Blue") + "RetractFromFreight" + cycleNum;
+    }
+
+    /**
+     * Builds every route that starts at the same pose every run, chained the way the autos plan
+     * them: drop 1 starts where retract 0 ends, retract 1 where drop 1 ends and so on.
+     *
+     * @param builderFactory Creates a builder starting at the given pose, normally drive::trajectorySequenceBuilder.
+     * @param startPose      Any pose the first drop can start from, the drops all end at the hub.
+     */
+    public static Map<String, TrajectorySequence> buildFixedRoutes(
+            Function<Pose2d, TrajectorySequenceBuilder> builderFactory, Pose2d startPose, boolean redSide) {
+        Map<String, TrajectorySequence> routes = new LinkedHashMap<>();
+
+        Pose2d hubPose = dropFreight(builderFactory.apply(startPose), redSide).build().end();
+        Pose2d warehousePose = retractFromFreight(builderFactory.apply(hubPose), redSide, 0).build().end();
+
+        for (int cycleNum = 1; cycleNum <= CYCLES; cycleNum++) {
+            TrajectorySequence drop = dropFreight(builderFactory.apply(warehousePose), redSide).build();
+            TrajectorySequence retract = retractFromFreight(builderFactory.apply(drop.end()), redSide, cycleNum).build();
+
+            routes.put(dropFreightName(redSide, cycleNum), drop);
+            routes.put(retractFromFreightName(redSide, cycleNum), retract);
+            warehousePose = retract.end();
+        }
+
+        return routes;
+    }
+}
@@ -13,17 +13,20 @@ import com.arcrobotics.ftclib.command.WaitCommand;
 import org.firstinspires.ftc.teamcode.commands.FollowTrajectorySequenceCommand;
 import org.firstinspires.ftc.teamcode.commands.MoveLiftToLoadingPositionCommand;
 import org.firstinspires.ftc.teamcode.commands.MoveLiftToScoringPositionCommand;
+import org.firstinspires.ftc.teamcode.commands.autocommands.PlannableRoute;
 import org.firstinspires.ftc.teamcode.drive.SampleMecanumDrive;
 import org.firstinspires.ftc.teamcode.subsystems.Bucket;
 import org.firstinspires.ftc.teamcode.subsystems.Lift;
 import org.firstinspires.ftc.teamcode.subsystems.ScoringArm;
 import org.firstinspires.ftc.teamcode.subsystems.interfaces.IntakeSide;
+import org.firstinspires.ftc.teamcode.trajectorysequence.PlannedTrajectorySequence;
 import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequence;
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceBuilder;
 import org.firstinspires.ftc.teamcode.vision.HubLevel;
 
 import java.util.function.Supplier;
 
-public class DropFreight extends ParallelCommandGroup {
+public class DropFreight extends ParallelCommandGroup implements PlannableRoute {
 
 
     private final SampleMecanumDrive drive;
@@ -34,13 +37,16 @@ public class DropFreight extends ParallelCommandGroup {
     private final boolean redSide;
 
     private TrajectorySequence trajectory;
+    private PlannedTrajectorySequence plannedTrajectory;
+    private PlannableRoute next;
 
-    private int cycleNum = 0;
+    //Which cycle this is, starting at 1, each one starts from a retract a bit deeper into the warehouse
+    private final int cycleNum;
     private double distanceAdd = 5;
 
 
     public DropFreight(SampleMecanumDrive drive, Lift lift, IntakeSide intakeSide,
-                       ScoringArm scoringArm, Bucket bucket, boolean redSide) {
+                       ScoringArm scoringArm, Bucket bucket, boolean redSide, int cycleNum) {
 
 
         this.drive = drive;
@@ -49,6 +55,25 @@ public class DropFreight extends ParallelCommandGroup {
         this.scoringArm = scoringArm;
         this.bucket = bucket;
         this.redSide = redSide;
+        this.cycleNum = cycleNum;
+    }
+
+    /**
+     * Has this command plan the next one's trajectory once it knows where its own ends.
+     */
+    public DropFreight thenPlan(PlannableRoute next) {
+        this.next = next;
+        return this;
+    }
+
+    @Override
+    public void planRoute(Pose2d startPose) {
+        plannedTrajectory = drive.planTrajectorySequenceAsync(
+                CycleRoutes.dropFreightName(redSide, cycleNum), startPose, this::route);
+    }
+
+    private TrajectorySequenceBuilder route(TrajectorySequenceBuilder builder) {
+        return CycleRoutes.dropFreight(builder, redSide);
     }
 
     @Override
@@ -64,16 +89,12 @@ public class DropFreight extends ParallelCommandGroup {
 //                        .splineToConstantHeading(new Vector2d(-9 + (cycleNum * distanceAdd), 64), Math.toRadians(-175))
 //                        .build();
 
-        trajectory = (redSide) ?
-                drive.trajectorySequenceBuilder(drive.getPoseEstimate())
-                        .splineToConstantHeading(new Vector2d(10.0, -65), toRadians(180.0))
-                        .lineToLinearHeading(new Pose2d(-9, -64, toRadians(180)))
-                        .build() :
-                drive.trajectorySequenceBuilder(drive.getPoseEstimate())
-                        .setReversed(true)
-                        .splineToConstantHeading(new Vector2d(10.0, 65), toRadians(180.0))
-                        .lineToLinearHeading(new Pose2d(-9, 64, toRadians(0)))
-                        .build();
+        //planned while the last command drove, or built now if nothing planned it
+        trajectory = (plannedTrajectory != null) ?
+                plannedTrajectory.resolve(drive.getPoseEstimate()) :
+                route(drive.trajectorySequenceBuilder(drive.getPoseEstimate())).build();
+        plannedTrajectory = null;
+        if (next != null) next.planRoute(trajectory.end());
 
         clearGroupedCommands();
 
@@ -111,9 +132,6 @@ public class DropFreight extends ParallelCommandGroup {
 
         );
 
-        cycleNum++;
-
-
         super.initialize();
 
     }
@@ -12,6 +12,7 @@ import com.arcrobotics.ftclib.command.WaitCommand;
 
 import org.firstinspires.ftc.teamcode.commands.FollowTrajectoryCommand;
 import org.firstinspires.ftc.teamcode.commands.MoveLiftToScoringPositionCommand;
+import org.firstinspires.ftc.teamcode.commands.autocommands.PlannableRoute;
 import org.firstinspires.ftc.teamcode.drive.SampleMecanumDrive;
 import org.firstinspires.ftc.teamcode.subsystems.Bucket;
 import org.firstinspires.ftc.teamcode.subsystems.LeftIntake;
@@ -33,6 +34,7 @@ public class DropPreloadFreight extends ParallelCommandGroup {
     private final Bucket bucket;
     private final boolean redSide;
     private final Supplier<HubLevel> getHubLevel;
+    private PlannableRoute next;
 
 
     private Trajectory blueTop;
@@ -77,12 +79,23 @@ public class DropPreloadFreight extends ParallelCommandGroup {
 
     }
 
+    /**
+     * Has this command plan the next one's trajectory once the hub level picks where it ends.
+     */
+    public DropPreloadFreight thenPlan(PlannableRoute next) {
+        this.next = next;
+        return this;
+    }
+
     @Override
     public void initialize() {
+        Trajectory preloadTrajectory = getPreLoadTrajectory(getHubLevel.get());
+        if (next != null) next.planRoute(preloadTrajectory.end());
+
         addCommands(
                 new SequentialCommandGroup(
                         new WaitCommand(500),
-                        new FollowTrajectoryCommand(drive, getPreLoadTrajectory(getHubLevel.get()))
+                        new FollowTrajectoryCommand(drive, preloadTrajectory)
                 )
         );
         switch (getHubLevel.get()) {
@@ -12,14 +12,17 @@ import com.arcrobotics.ftclib.command.WaitUntilCommand;
 
 import org.firstinspires.ftc.teamcode.commands.FollowTrajectorySequenceCommand;
 import org.firstinspires.ftc.teamcode.commands.MoveLiftToLoadingPositionCommand;
+import org.firstinspires.ftc.teamcode.commands.autocommands.PlannableRoute;
 import org.firstinspires.ftc.teamcode.drive.SampleMecanumDrive;
 import org.firstinspires.ftc.teamcode.subsystems.Bucket;
 import org.firstinspires.ftc.teamcode.subsystems.Lift;
 import org.firstinspires.ftc.teamcode.subsystems.ScoringArm;
 import org.firstinspires.ftc.teamcode.subsystems.interfaces.IntakeSide;
+import org.firstinspires.ftc.teamcode.trajectorysequence.PlannedTrajectorySequence;
 import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequence;
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceBuilder;
 
-public class RetractFromFreight extends ParallelCommandGroup {
+public class RetractFromFreight extends ParallelCommandGroup implements PlannableRoute {
 
     private final SampleMecanumDrive drive;
     private final Lift lift;
@@ -29,9 +32,11 @@ public class RetractFromFreight extends ParallelCommandGroup {
     private final boolean redSide;
 
     private TrajectorySequence trajectory;
+    private PlannedTrajectorySequence plannedTrajectory;
+    private PlannableRoute next;
 
-    private static int cycleNum = 0;
-    private double distanceAdd = 2;
+    //Which cycle this is, 0 for retracting from the preload, each one goes a bit deeper into the warehouse
+    private final int cycleNum;
 
 //    private final Pose2d redStartingPosition =
 //            new Pose2d(-10, -60, toRadians(180));
@@ -40,7 +45,7 @@ public class RetractFromFreight extends ParallelCommandGroup {
 
 
     public RetractFromFreight(SampleMecanumDrive drive, Lift lift, IntakeSide intakeSide,
-                       ScoringArm scoringArm, Bucket bucket, boolean redSide) {
+                       ScoringArm scoringArm, Bucket bucket, boolean redSide, int cycleNum) {
 
 
         this.drive = drive;
@@ -49,7 +54,25 @@ public class RetractFromFreight extends ParallelCommandGroup {
         this.scoringArm = scoringArm;
         this.bucket = bucket;
         this.redSide = redSide;
+        this.cycleNum = cycleNum;
+    }
 
+    /**
+     * Has this command plan the next one's trajectory once it knows where its own ends.
+     */
+    public RetractFromFreight thenPlan(PlannableRoute next) {
+        this.next = next;
+        return this;
+    }
+
+    @Override
+    public void planRoute(Pose2d startPose) {
+        plannedTrajectory = drive.planTrajectorySequenceAsync(
+                CycleRoutes.retractFromFreightName(redSide, cycleNum), startPose, this::route);
+    }
+
+    private TrajectorySequenceBuilder route(TrajectorySequenceBuilder builder) {
+        return CycleRoutes.retractFromFreight(builder, redSide, cycleNum);
     }
 
     @Override
@@ -58,11 +81,10 @@ public class RetractFromFreight extends ParallelCommandGroup {
         /*
         A little funky, but instead of using the correct starting position for each preload
         if this is retracting from the preload (since the robot will be in different places for each level),
-        we instead just ignore where we should be, and use the current position of the drive base.
+        we instead just start from where the last trajectory ended, whichever level that was.
 
-        Technically it's a little slower and it means we aren't really correcting for any drift,
-        but since its very soon after start there likely isn't much drift anyways, and it lets us not write
-        an entirely separate command for retracting from the preload.
+        Starting from the planned end instead of the pose estimate means the follower corrects for any
+        drift, and the route is the same every run so it comes out of the sequence cache.
          */
 //        trajectory = (redSide) ?
 //                drive.trajectorySequenceBuilder(drive.getPoseEstimate())
@@ -76,16 +98,12 @@ public class RetractFromFreight extends ParallelCommandGroup {
 //                        .splineToConstantHeading(new Vector2d(32, 65), toRadians(0))
 //                        .splineToConstantHeading(new Vector2d(37, 65), toRadians(0))
 //                        .build();
-        trajectory = (redSide) ?
-                drive.trajectorySequenceBuilder(drive.getPoseEstimate())
-                        .setReversed(true)
-                        .lineToLinearHeading(new Pose2d(10, -65, toRadians(180)))
-                        .splineToConstantHeading(new Vector2d(40 + (cycleNum * distanceAdd), -65), toRadians(0))
-                        .build() :
-                drive.trajectorySequenceBuilder(drive.getPoseEstimate())
-                        .lineToLinearHeading(new Pose2d(10, 65, toRadians(0)))
-                        .splineToConstantHeading(new Vector2d(36 + (cycleNum * distanceAdd), 65), toRadians(0))
-                        .build();
+        //planned while the last command drove, or built now if nothing planned it
+        trajectory = (plannedTrajectory != null) ?
+                plannedTrajectory.resolve(drive.getPoseEstimate()) :
+                route(drive.trajectorySequenceBuilder(drive.getPoseEstimate())).build();
+        plannedTrajectory = null;
+        if (next != null) next.planRoute(trajectory.end());
 
         clearGroupedCommands();
         addCommands(
@@ -106,8 +124,6 @@ public class RetractFromFreight extends ParallelCommandGroup {
 //                new WaitUntilCommand(intakeSide::freightDetected)
         );
 
-        cycleNum++;
-
         super.initialize();
     }
 }
\ No newline at end of file
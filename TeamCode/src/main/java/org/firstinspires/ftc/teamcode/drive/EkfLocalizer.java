@@ -0,0 +1,434 @@
+package org.firstinspires.ftc.teamcode.drive;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.acmerobotics.dashboard.config.Config;
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.localization.Localizer;
+import com.acmerobotics.roadrunner.util.Angle;
+
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.teamcode.subsystems.DistanceSensors;
+import org.firstinspires.ftc.teamcode.util.FieldModel;
+import org.firstinspires.ftc.teamcode.util.MB1242Ranger;
+import org.firstinspires.ftc.teamcode.util.RelocalizationGeometry;
+
+/**
+ * Extended Kalman filter over (x, y, heading) that predicts from the drive encoders and IMU
+ * through a {@link MecanumWheelLocalizer}, and corrects with the distance sensors every time
+ * they have a new range, instead of snapping the pose once like RelocalizeCommand.
+ * <p>
+ * Each prediction takes the robot relative move the wheel localizer made since the last update
+ * and applies it at this filter's heading, growing the covariance with the distance moved. Each
+ * range is a scalar correction through the same wall geometry as {@link RelocalizationGeometry}:
+ * the forward (backward on red) sensor sees x, the side sensor sees y, and both depend on heading.
+ * The geometry is given the field heading through its field heading functions, which turn it
+ * around on red, and the Jacobian is taken numerically from them.
+ * Ranges outside the window RelocalizeCommand trusts, taken at too steep an angle to the wall, or
+ * too far off the prediction (a robot in the way) are skipped, and so are ranges whose beam the
+ * {@link FieldModel} says should stop at a hub, barrier or carousel before the wall.
+ * <p>
+ * Measurements describe where the robot was when they were taken, which is up to a tenth of a
+ * second ago for the ultrasonics. The last {@link #HISTORY_SIZE} updates are kept with their
+ * odometry move and the state after them, so a measurement is applied to the state at the update
+ * it was taken in, and the odometry moves (and measurements) since then are replayed on top of it.
+ * Measurements older than the history are dropped.
+ * <p>
+ * The state, covariance and history are plain doubles in fixed size arrays and every step is a
+ * bounded amount of arithmetic, so update() allocates nothing.
+ */
+@Config
+public class EkfLocalizer implements Localizer {
+    //Odometry variance added per inch driven and per radian turned
+    public static double TRANSLATION_VARIANCE_PER_INCH = 0.01; // in^2 / in
+    public static double HEADING_VARIANCE_PER_RADIAN = 0.0005; // rad^2 / rad
+
+    public static double FORWARD_RANGE_STD = 1.0; // in
+    public static double SIDE_RANGE_STD = 1.0; // in
+
+    //The forward window RelocalizeCommand trusts, and the most the side sensor can see
+    public static double MIN_FORWARD_RANGE = 10; // in
+    public static double MAX_FORWARD_RANGE = 35; // in
+    public static double MAX_SIDE_RANGE = 48; // in
+    public static double MAX_WALL_ANGLE = Math.toRadians(20);
+
+    //The side sensor ranges every 60ms and doesn't timestamp, so a new range is on average this old
+    public static double SIDE_RANGE_LATENCY_MS = 40;
+
+    //Squared innovation over its variance past which a range is thrown out, 9 is 3 sigma
+    public static double GATE = 9.0;
+    //How much closer than the wall the field map has to put a hub, barrier or carousel before a beam is skipped
+    public static double MAP_TOLERANCE = 3; // in
+
+    //About a second of updates at the fixed tick
+    public static final int HISTORY_SIZE = 64;
+    private static final int MAX_MEASUREMENTS_PER_UPDATE = 4;
+
+    //Central difference steps for the measurement Jacobians
+    private static final double POSITION_STEP = 1e-3; // in
+    private static final double HEADING_STEP = 1e-4; // rad
+
+    private static final int FORWARD_RANGE = 0, SIDE_RANGE = 1, FIELD_X = 2, FIELD_Y = 3;
+    private static final int STATE_SIZE = 9;
+
+    private final MecanumWheelLocalizer odometry;
+
+    private DistanceSensors distanceSensors;
+    private boolean redSide;
+    private long lastForwardNanos;
+    private double lastSideRange = Double.NaN;
+
+    private double x, y, heading;
+    //Covariance, symmetric so only the upper triangle
+    private double p00, p01, p02, p11, p12, p22;
+    private double lastOdometryX, lastOdometryY, lastOdometryHeading;
+
+    //Ring buffer of updates: when, the odometry move into it, the state after it, and what was measured at it
+    private final long[] historyNanos = new long[HISTORY_SIZE];
+    private final double[] historyMoves = new double[HISTORY_SIZE * 3];
+    private final double[] historyStates = new double[HISTORY_SIZE * STATE_SIZE];
+    private final int[] historyMeasurementCounts = new int[HISTORY_SIZE];
+    private final int[] historyMeasurementTypes = new int[HISTORY_SIZE * MAX_MEASUREMENTS_PER_UPDATE];
+    private final double[] historyMeasurementValues = new double[HISTORY_SIZE * MAX_MEASUREMENTS_PER_UPDATE];
+    private final double[] historyMeasurementVariances = new double[HISTORY_SIZE * MAX_MEASUREMENTS_PER_UPDATE];
+    private int newest = -1;
+    private int historyCount = 0;
+
+    private long corrections = 0, rejections = 0, stale = 0;
+
+    private Pose2d poseEstimate = new Pose2d();
+
+    public EkfLocalizer(MecanumWheelLocalizer odometry) {
+        this.odometry = odometry;
+        setPoseEstimate(odometry.getPoseEstimate());
+    }
+
+    /**
+     * Starts correcting with these sensors, or stops if null.
+     *
+     * @param redSide Which side of the field the robot is on, same as RelocalizeCommand.
+     */
+    public void setDistanceSensors(@Nullable DistanceSensors distanceSensors, boolean redSide) {
+        this.distanceSensors = distanceSensors;
+        this.redSide = redSide;
+        lastForwardNanos = System.nanoTime();
+        lastSideRange = Double.NaN;
+        if (distanceSensors != null) distanceSensors.startRanging();
+    }
+
+    @Override
+    public void update() {
+        odometry.update();
+
+        // The move the odometry made, in the robot's frame at the start of it
+        double odometryX = odometry.getX(), odometryY = odometry.getY(), odometryHeading = odometry.getHeading();
+        double fieldDx = odometryX - lastOdometryX;
+        double fieldDy = odometryY - lastOdometryY;
+        double cos = Math.cos(lastOdometryHeading), sin = Math.sin(lastOdometryHeading);
+        double robotDx = cos * fieldDx + sin * fieldDy;
+        double robotDy = -sin * fieldDx + cos * fieldDy;
+        double dtheta = Angle.normDelta(odometryHeading - lastOdometryHeading);
+
+        lastOdometryX = odometryX;
+        lastOdometryY = odometryY;
+        lastOdometryHeading = odometryHeading;
+
+        predict(robotDx, robotDy, dtheta);
+        pushHistory(System.nanoTime(), robotDx, robotDy, dtheta);
+
+        if (distanceSensors != null) correctWithRanges();
+    }
+
+    /**
+     * Applies a robot relative move from this filter's pose.
+     */
+    private void predict(double robotDx, double robotDy, double dtheta) {
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        double dx = robotDx * cos - robotDy * sin;
+        double dy = robotDx * sin + robotDy * cos;
+        x += dx;
+        y += dy;
+        heading = Angle.norm(heading + dtheta);
+
+        // P = F P F^T + Q, with F the identity plus d(x, y)/d(heading) = (-dy, dx)
+        double a = -dy, b = dx;
+        double n00 = p00 + 2 * a * p02 + a * a * p22;
+        double n01 = p01 + a * p12 + b * p02 + a * b * p22;
+        double n02 = p02 + a * p22;
+        double n11 = p11 + 2 * b * p12 + b * b * p22;
+        double n12 = p12 + b * p22;
+
+        double translationVariance = TRANSLATION_VARIANCE_PER_INCH * Math.hypot(robotDx, robotDy);
+        p00 = n00 + translationVariance;
+        p01 = n01;
+        p02 = n02;
+        p11 = n11 + translationVariance;
+        p12 = n12;
+        p22 += HEADING_VARIANCE_PER_RADIAN * Math.abs(dtheta);
+
+        poseEstimate = null;
+    }
+
+    private void correctWithRanges() {
+        // keeps the ranger going, it stops by itself when nothing reads it
+        distanceSensors.startRanging();
+
+        MB1242Ranger.Range forwardRange = redSide ?
+                distanceSensors.getBackwardReading() :
+                distanceSensors.getForwardReading();
+        if (forwardRange.isNewerThan(lastForwardNanos)) {
+            lastForwardNanos = forwardRange.captureNanos;
+
+            double forward = forwardRange.getDistance(DistanceUnit.INCH);
+            if (forward > MIN_FORWARD_RANGE && forward < MAX_FORWARD_RANGE) {
+                addMeasurement(forwardRange.pingNanos, FORWARD_RANGE, forward, FORWARD_RANGE_STD * FORWARD_RANGE_STD);
+            }
+        }
+
+        // the side sensor has no timestamp, a new range is one that changed
+        double side = distanceSensors.getLeftRange(DistanceUnit.INCH);
+        if (side != lastSideRange) {
+            lastSideRange = side;
+            if (side < MAX_SIDE_RANGE) {
+                long takenNanos = System.nanoTime() - (long) (SIDE_RANGE_LATENCY_MS * 1e6);
+                addMeasurement(takenNanos, SIDE_RANGE, side, SIDE_RANGE_STD * SIDE_RANGE_STD);
+            }
+        }
+    }
+
+    /**
+     * Corrects with a field position fix (from a camera, say) taken at the given System.nanoTime().
+     */
+    public void addPositionMeasurement(long takenNanos, double fieldX, double fieldY, double std) {
+        addMeasurement(takenNanos, FIELD_X, fieldX, std * std);
+        addMeasurement(takenNanos, FIELD_Y, fieldY, std * std);
+    }
+
+    private int historyIndex(int age) {
+        return (newest - age + HISTORY_SIZE) % HISTORY_SIZE;
+    }
+
+    private void pushHistory(long nanos, double robotDx, double robotDy, double dtheta) {
+        newest = (newest + 1) % HISTORY_SIZE;
+        if (historyCount < HISTORY_SIZE) historyCount++;
+
+        historyNanos[newest] = nanos;
+        historyMoves[newest * 3] = robotDx;
+        historyMoves[newest * 3 + 1] = robotDy;
+        historyMoves[newest * 3 + 2] = dtheta;
+        historyMeasurementCounts[newest] = 0;
+        saveState(newest);
+    }
+
+    private void saveState(int index) {
+        int i = index * STATE_SIZE;
+        historyStates[i] = x;
+        historyStates[i + 1] = y;
+        historyStates[i + 2] = heading;
+        historyStates[i + 3] = p00;
+        historyStates[i + 4] = p01;
+        historyStates[i + 5] = p02;
+        historyStates[i + 6] = p11;
+        historyStates[i + 7] = p12;
+        historyStates[i + 8] = p22;
+    }
+
+    private void loadState(int index) {
+        int i = index * STATE_SIZE;
+        x = historyStates[i];
+        y = historyStates[i + 1];
+        heading = historyStates[i + 2];
+        p00 = historyStates[i + 3];
+        p01 = historyStates[i + 4];
+        p02 = historyStates[i + 5];
+        p11 = historyStates[i + 6];
+        p12 = historyStates[i + 7];
+        p22 = historyStates[i + 8];
+    }
+
+    /**
+     * Applies a measurement at the last update at or before the time it was taken, then replays
+     * every update after that one.
+     */
+    private void addMeasurement(long takenNanos, int type, double value, double variance) {
+        int age = 0;
+        while (age < historyCount && historyNanos[historyIndex(age)] - takenNanos > 0) age++;
+
+        int index = historyIndex(age);
+        if (age == historyCount || historyMeasurementCounts[index] == MAX_MEASUREMENTS_PER_UPDATE) {
+            stale++;
+            return;
+        }
+
+        if (age > 0) loadState(index);
+        if (applyMeasurement(type, value, variance)) corrections++;
+        else rejections++;
+
+        int slot = index * MAX_MEASUREMENTS_PER_UPDATE + historyMeasurementCounts[index]++;
+        historyMeasurementTypes[slot] = type;
+        historyMeasurementValues[slot] = value;
+        historyMeasurementVariances[slot] = variance;
+        saveState(index);
+
+        // Replay the odometry and the measurements taken since
+        for (age--; age >= 0; age--) {
+            index = historyIndex(age);
+            predict(historyMoves[index * 3], historyMoves[index * 3 + 1], historyMoves[index * 3 + 2]);
+            for (int m = 0; m < historyMeasurementCounts[index]; m++) {
+                slot = index * MAX_MEASUREMENTS_PER_UPDATE + m;
+                applyMeasurement(historyMeasurementTypes[slot], historyMeasurementValues[slot], historyMeasurementVariances[slot]);
+            }
+            saveState(index);
+        }
+
+        poseEstimate = null;
+    }
+
+    private boolean applyMeasurement(int type, double value, double variance) {
+        switch (type) {
+            case FORWARD_RANGE:
+                return correctForward(value, variance);
+            case SIDE_RANGE:
+                return correctSide(value, variance);
+            case FIELD_X:
+                return correct(value - x, 1, 0, 0, variance);
+            case FIELD_Y:
+                return correct(value - y, 0, 1, 0, variance);
+            default:
+                return false;
+        }
+    }
+
+    //Facing along the field either way, like the geometry assumes
+    private boolean facingWall() {
+        return Math.abs(Math.cos(heading)) >= Math.cos(MAX_WALL_ANGLE);
+    }
+
+    //Whether the field map has this sensor's beam reaching the wall from the current estimate
+    private boolean beamReachesWall(Pose2d mount) {
+        return FieldModel.FREIGHT_FRENZY.beamReachesWall(x, y, heading, mount, MAP_TOLERANCE);
+    }
+
+    private boolean correctForward(double forward, double variance) {
+        if (!facingWall()) return false;
+        if (!beamReachesWall(redSide ? RelocalizationGeometry.BACKWARD_SENSOR_MOUNT : RelocalizationGeometry.FORWARD_SENSOR_MOUNT)) return false;
+
+        double expected = RelocalizationGeometry.expectedForwardRange(x, heading, redSide);
+        double hx = (RelocalizationGeometry.expectedForwardRange(x + POSITION_STEP, heading, redSide)
+                - RelocalizationGeometry.expectedForwardRange(x - POSITION_STEP, heading, redSide)) / (2 * POSITION_STEP);
+        double hHeading = (RelocalizationGeometry.expectedForwardRange(x, heading + HEADING_STEP, redSide)
+                - RelocalizationGeometry.expectedForwardRange(x, heading - HEADING_STEP, redSide)) / (2 * HEADING_STEP);
+        return correct(forward - expected, hx, 0, hHeading, variance);
+    }
+
+    private boolean correctSide(double side, double variance) {
+        if (!facingWall()) return false;
+        if (!beamReachesWall(redSide ? RelocalizationGeometry.LEFT_SENSOR_MOUNT : RelocalizationGeometry.RIGHT_SENSOR_MOUNT)) return false;
+
+        double expected = RelocalizationGeometry.expectedSideRange(y, heading, redSide);
+        double hy = (RelocalizationGeometry.expectedSideRange(y + POSITION_STEP, heading, redSide)
+                - RelocalizationGeometry.expectedSideRange(y - POSITION_STEP, heading, redSide)) / (2 * POSITION_STEP);
+        double hHeading = (RelocalizationGeometry.expectedSideRange(y, heading + HEADING_STEP, redSide)
+                - RelocalizationGeometry.expectedSideRange(y, heading - HEADING_STEP, redSide)) / (2 * HEADING_STEP);
+        return correct(side - expected, 0, hy, hHeading, variance);
+    }
+
+    /**
+     * Scalar Kalman update for a measurement with the given innovation, Jacobian row and variance.
+     * Returns false if the measurement was gated out.
+     */
+    private boolean correct(double innovation, double hx, double hy, double hHeading, double variance) {
+        // P H^T
+        double v0 = p00 * hx + p01 * hy + p02 * hHeading;
+        double v1 = p01 * hx + p11 * hy + p12 * hHeading;
+        double v2 = p02 * hx + p12 * hy + p22 * hHeading;
+
+        double s = hx * v0 + hy * v1 + hHeading * v2 + variance;
+        if (innovation * innovation / s > GATE) return false;
+
+        x += v0 / s * innovation;
+        y += v1 / s * innovation;
+        heading = Angle.norm(heading + v2 / s * innovation);
+
+        // P -= K H P, with K = P H^T / s
+        p00 -= v0 * v0 / s;
+        p01 -= v0 * v1 / s;
+        p02 -= v0 * v2 / s;
+        p11 -= v1 * v1 / s;
+        p12 -= v1 * v2 / s;
+        p22 -= v2 * v2 / s;
+
+        poseEstimate = null;
+        return true;
+    }
+
+    @NonNull
+    @Override
+    public Pose2d getPoseEstimate() {
+        if (poseEstimate == null) poseEstimate = new Pose2d(x, y, heading);
+        return poseEstimate;
+    }
+
+    /**
+     * Sets the pose as known exactly, e.g. the start pose. Measurements taken before this are
+     * dropped.
+     */
+    @Override
+    public void setPoseEstimate(@NonNull Pose2d pose) {
+        odometry.setPoseEstimate(pose);
+        lastOdometryX = odometry.getX();
+        lastOdometryY = odometry.getY();
+        lastOdometryHeading = odometry.getHeading();
+
+        x = pose.getX();
+        y = pose.getY();
+        heading = pose.getHeading();
+        p00 = p01 = p02 = p11 = p12 = p22 = 0.0;
+        poseEstimate = pose;
+
+        historyCount = 0;
+        pushHistory(System.nanoTime(), 0, 0, 0);
+    }
+
+    @Nullable
+    @Override
+    public Pose2d getPoseVelocity() {
+        return odometry.getPoseVelocity();
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getHeading() {
+        return heading;
+    }
+
+    /**
+     * Standard deviation of the position estimate along its worse axis, in inches.
+     */
+    public double getPositionStdDev() {
+        return Math.sqrt(Math.max(p00, p11));
+    }
+
+    public long getCorrections() {
+        return corrections;
+    }
+
+    public long getRejections() {
+        return rejections;
+    }
+
+    /**
+     * Measurements dropped for being older than the history.
+     */
+    public long getStaleMeasurements() {
+        return stale;
+    }
+}
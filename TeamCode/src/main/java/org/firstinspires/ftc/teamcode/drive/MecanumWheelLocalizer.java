@@ -0,0 +1,186 @@
+package org.firstinspires.ftc.teamcode.drive;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.localization.Localizer;
+import com.acmerobotics.roadrunner.util.Angle;
+
+import java.util.function.Consumer;
+
+/**
+ * Drive encoder odometry, the same math as Road Runner's MecanumDrive.MecanumLocalizer
+ * (MecanumKinematics.wheelToRobotVelocities and Kinematics.relativeOdometryUpdate) but done on
+ * primitives with reused wheel buffers, so update() allocates nothing. The pose and velocity are
+ * only boxed into a Pose2d when asked for, and then only once per update.
+ */
+public class MecanumWheelLocalizer implements Localizer {
+
+    /**
+     * Where the localizer reads the wheels and heading from. All wheel values are in the order lf,
+     * lb, rb, rf and in inches.
+     */
+    public interface WheelSource {
+        void getWheelPositions(double[] positions);
+
+        void getWheelVelocities(double[] velocities);
+
+        double getExternalHeading();
+
+        void setExternalHeading(double heading);
+
+        /**
+         * @return Heading velocity in radians per second, or NaN if there isn't a sensor for it.
+         */
+        double getExternalHeadingVelocityRadians();
+    }
+
+    private final WheelSource source;
+    private final double k, lateralMultiplier;
+    private final boolean useExternalHeading;
+
+    private final double[] positions = new double[4];
+    private final double[] lastPositions = new double[4];
+    private final double[] velocities = new double[4];
+    private boolean hasLastPositions = false;
+    private double lastExternalHeading = Double.NaN;
+
+    private double x, y, heading;
+    private double velocityX, velocityY, velocityHeading;
+    private boolean hasVelocity = false;
+
+    private Pose2d poseEstimate = new Pose2d();
+    private Pose2d poseVelocity = null;
+
+    //Told the new pose on every setPoseEstimate(), including the ones EkfLocalizer and ParticleFilterLocalizer pass down
+    private Consumer<Pose2d> poseResetListener;
+
+    public MecanumWheelLocalizer(WheelSource source, double trackWidth, double wheelBase, double lateralMultiplier, boolean useExternalHeading) {
+        this.source = source;
+        this.k = (trackWidth + wheelBase) / 2.0;
+        this.lateralMultiplier = lateralMultiplier;
+        this.useExternalHeading = useExternalHeading;
+    }
+
+    @Override
+    public void update() {
+        source.getWheelPositions(positions);
+        double externalHeading = useExternalHeading ? source.getExternalHeading() : Double.NaN;
+
+        if (hasLastPositions) {
+            double lf = positions[0] - lastPositions[0];
+            double lb = positions[1] - lastPositions[1];
+            double rb = positions[2] - lastPositions[2];
+            double rf = positions[3] - lastPositions[3];
+
+            double dx = (lf + lb + rb + rf) * 0.25;
+            double dy = (lb + rf - lf - rb) * 0.25 / lateralMultiplier;
+            double dtheta = useExternalHeading ?
+                    Angle.normDelta(externalHeading - lastExternalHeading) :
+                    (rb + rf - lf - lb) * 0.25 / k;
+
+            // pose exponential, same as Kinematics.relativeOdometryUpdate
+            double sineTerm, cosTerm;
+            if (Math.abs(dtheta) < 1e-6) {
+                sineTerm = 1.0 - dtheta * dtheta / 6.0;
+                cosTerm = dtheta / 2.0;
+            } else {
+                sineTerm = Math.sin(dtheta) / dtheta;
+                cosTerm = (1 - Math.cos(dtheta)) / dtheta;
+            }
+
+            double robotX = sineTerm * dx - cosTerm * dy;
+            double robotY = cosTerm * dx + sineTerm * dy;
+
+            double cos = Math.cos(heading);
+            double sin = Math.sin(heading);
+
+            x += robotX * cos - robotY * sin;
+            y += robotX * sin + robotY * cos;
+            heading = Angle.norm(heading + dtheta);
+
+            poseEstimate = null;
+        }
+
+        source.getWheelVelocities(velocities);
+        double lf = velocities[0], lb = velocities[1], rb = velocities[2], rf = velocities[3];
+
+        velocityX = (lf + lb + rb + rf) * 0.25;
+        velocityY = (lb + rf - lf - rb) * 0.25 / lateralMultiplier;
+        velocityHeading = (rb + rf - lf - lb) * 0.25 / k;
+
+        if (useExternalHeading) {
+            double externalHeadingVelocity = source.getExternalHeadingVelocityRadians();
+            if (!Double.isNaN(externalHeadingVelocity)) velocityHeading = externalHeadingVelocity;
+        }
+
+        hasVelocity = true;
+        poseVelocity = null;
+
+        System.arraycopy(positions, 0, lastPositions, 0, 4);
+        hasLastPositions = true;
+        lastExternalHeading = externalHeading;
+    }
+
+    @NonNull
+    @Override
+    public Pose2d getPoseEstimate() {
+        if (poseEstimate == null) poseEstimate = new Pose2d(x, y, heading);
+        return poseEstimate;
+    }
+
+    @Override
+    public void setPoseEstimate(@NonNull Pose2d pose) {
+        hasLastPositions = false;
+        lastExternalHeading = Double.NaN;
+        if (useExternalHeading) source.setExternalHeading(pose.getHeading());
+
+        x = pose.getX();
+        y = pose.getY();
+        heading = pose.getHeading();
+        poseEstimate = pose;
+
+        if (poseResetListener != null) poseResetListener.accept(pose);
+    }
+
+    /**
+     * Called with the new pose whenever it's set from outside, or no one if null.
+     */
+    public void setPoseResetListener(@Nullable Consumer<Pose2d> poseResetListener) {
+        this.poseResetListener = poseResetListener;
+    }
+
+    @Nullable
+    @Override
+    public Pose2d getPoseVelocity() {
+        if (!hasVelocity) return null;
+        if (poseVelocity == null) poseVelocity = new Pose2d(velocityX, velocityY, velocityHeading);
+        return poseVelocity;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getHeading() {
+        return heading;
+    }
+
+    //Robot frame velocity from the last update, zero before the first
+    public double getVelocityX() {
+        return velocityX;
+    }
+
+    public double getVelocityY() {
+        return velocityY;
+    }
+
+    public double getVelocityHeading() {
+        return velocityHeading;
+    }
+}
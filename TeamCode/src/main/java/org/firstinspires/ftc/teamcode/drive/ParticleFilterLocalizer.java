@@ -0,0 +1,478 @@
+package org.firstinspires.ftc.teamcode.drive;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.acmerobotics.dashboard.config.Config;
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.localization.Localizer;
+import com.acmerobotics.roadrunner.util.Angle;
+
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.teamcode.subsystems.DistanceSensors;
+import org.firstinspires.ftc.teamcode.util.FieldModel;
+import org.firstinspires.ftc.teamcode.util.MB1242Ranger;
+import org.firstinspires.ftc.teamcode.util.RelocalizationGeometry;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Particle filter over (x, y, heading) for when the drive odometry can't be trusted, like driving
+ * over the warehouse barrier where the wheels slip.
+ * <p>
+ * Every update moves each particle by the robot relative move the {@link MecanumWheelLocalizer}
+ * made, plus noise that grows with the distance moved, and then weights it by how well the new
+ * ranges from the ultrasonics and the side time of flight sensor match what {@link FieldModel}
+ * says they should read from that particle. Unlike {@link EkfLocalizer} a range that hits a hub
+ * or a barrier isn't thrown away, the map already expects it, and a robot in the way only costs
+ * every particle the same outlier weight. Once the weights get too uneven the particles are
+ * resampled.
+ * <p>
+ * Particles live in flat double arrays, split into {@link #CHUNKS} ranges that a fork-join pool
+ * moves, weights and resamples in parallel; the tasks are made once and reused, so an update
+ * allocates only the pose estimate. The time the filter itself takes each update is measured,
+ * leaving out the odometry and range reads, and the particle count shrinks whenever it goes over
+ * {@link #LOOP_BUDGET_MS} and grows back slowly while there's room.
+ */
+@Config
+public class ParticleFilterLocalizer implements Localizer {
+    public static double LOOP_BUDGET_MS = 3;
+    public static int MIN_PARTICLES = 200;
+
+    //Motion noise, std per inch moved, and a little every update so the cloud doesn't collapse
+    public static double TRANSLATION_NOISE_PER_INCH = 0.15;
+    public static double HEADING_NOISE_PER_INCH = Math.toRadians(0.05);
+    public static double TRANSLATION_NOISE = 0.01; // in
+
+    public static double INITIAL_POSITION_STD = 1.0; // in
+    public static double INITIAL_HEADING_STD = Math.toRadians(1);
+
+    public static double ULTRASONIC_STD = 1.5; // in
+    public static double TIME_OF_FLIGHT_STD = 1.0; // in
+    //Chance a range hit something that isn't in the map, like another robot
+    public static double OUTLIER_PROBABILITY = 0.1;
+    public static double MIN_RANGE = 8; // in
+    public static double ULTRASONIC_MAX_RANGE = 96; // in
+    public static double TIME_OF_FLIGHT_MAX_RANGE = 48; // in
+
+    //Resample once the effective number of particles drops below this fraction of them
+    public static double RESAMPLE_THRESHOLD = 0.5;
+
+    public static final int CAPACITY = 4000;
+    private static final int CHUNKS = 8;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private static final int MOVE_AND_WEIGH = 0, CUMULATE = 1, RESAMPLE = 2;
+    //Per chunk sums of w, w^2, w x, w y, w cos(heading) and w sin(heading)
+    private static final int PARTIAL_SIZE = 6;
+
+    private final MecanumWheelLocalizer odometry;
+    private final FieldModel field = FieldModel.FREIGHT_FRENZY;
+
+    private DistanceSensors distanceSensors;
+    //Where the side sensor is taken to be, the same one EkfLocalizer and RelocalizeCommand use for the alliance
+    private Pose2d sideMount = RelocalizationGeometry.RIGHT_SENSOR_MOUNT;
+    private long lastForwardNanos, lastBackwardNanos;
+    private double lastSideRange = Double.NaN;
+
+    //Particles, and a second set to resample into
+    private double[] xs = new double[CAPACITY], ys = new double[CAPACITY], headings = new double[CAPACITY], weights = new double[CAPACITY];
+    private double[] nextXs = new double[CAPACITY], nextYs = new double[CAPACITY], nextHeadings = new double[CAPACITY], nextWeights = new double[CAPACITY];
+    private final double[] cumulativeWeights = new double[CAPACITY];
+    private final double[] partials = new double[CHUNKS * PARTIAL_SIZE];
+    private int count = MIN_PARTICLES;
+    private int targetCount = MIN_PARTICLES;
+
+    //What the parallel phases work on this update
+    private int phase;
+    private double moveX, moveY, moveHeading, moveDistance;
+    private double weightScale = 1.0;
+    private double forward = Double.NaN, backward = Double.NaN, side = Double.NaN;
+    private double totalWeight;
+    private double resampleOffset;
+    private int resampleCount;
+
+    private final Chunk[] chunks = new Chunk[CHUNKS];
+    private final RecursiveAction root = new RecursiveAction() {
+        @Override
+        protected void compute() {
+            for (Chunk chunk : chunks) chunk.reinitialize();
+            invokeAll(chunks);
+        }
+    };
+
+    private double lastOdometryX, lastOdometryY, lastOdometryHeading;
+    private double lastUpdateMs = 0.0;
+    private long resamples = 0, lost = 0;
+
+    private Pose2d poseEstimate = new Pose2d();
+
+    public ParticleFilterLocalizer(MecanumWheelLocalizer odometry) {
+        this.odometry = odometry;
+        for (int i = 0; i < CHUNKS; i++) chunks[i] = new Chunk(i);
+        setPoseEstimate(odometry.getPoseEstimate());
+    }
+
+    /**
+     * Starts weighting with these sensors, or stops if null.
+     *
+     * @param redSide Which side of the field the robot is on, same as RelocalizeCommand.
+     */
+    public void setDistanceSensors(@Nullable DistanceSensors distanceSensors, boolean redSide) {
+        this.distanceSensors = distanceSensors;
+        sideMount = redSide ? RelocalizationGeometry.LEFT_SENSOR_MOUNT : RelocalizationGeometry.RIGHT_SENSOR_MOUNT;
+        lastForwardNanos = lastBackwardNanos = System.nanoTime();
+        lastSideRange = Double.NaN;
+        if (distanceSensors != null) distanceSensors.startRanging();
+    }
+
+    @NonNull
+    @Override
+    public Pose2d getPoseEstimate() {
+        return poseEstimate;
+    }
+
+    /**
+     * Scatters the particles around the pose.
+     */
+    @Override
+    public void setPoseEstimate(@NonNull Pose2d pose) {
+        odometry.setPoseEstimate(pose);
+        lastOdometryX = odometry.getX();
+        lastOdometryY = odometry.getY();
+        lastOdometryHeading = odometry.getHeading();
+
+        scatter(pose);
+        poseEstimate = pose;
+    }
+
+    private void scatter(Pose2d pose) {
+        Random random = ThreadLocalRandom.current();
+        count = Math.max(count, Math.min(MIN_PARTICLES, CAPACITY));
+        for (int i = 0; i < count; i++) {
+            xs[i] = pose.getX() + random.nextGaussian() * INITIAL_POSITION_STD;
+            ys[i] = pose.getY() + random.nextGaussian() * INITIAL_POSITION_STD;
+            headings[i] = Angle.norm(pose.getHeading() + random.nextGaussian() * INITIAL_HEADING_STD);
+            weights[i] = 1.0;
+        }
+        weightScale = 1.0;
+    }
+
+    @Nullable
+    @Override
+    public Pose2d getPoseVelocity() {
+        return odometry.getPoseVelocity();
+    }
+
+    @Override
+    public void update() {
+        odometry.update();
+
+        // The move the odometry made, in the robot's frame at the start of it
+        double odometryX = odometry.getX(), odometryY = odometry.getY(), odometryHeading = odometry.getHeading();
+        double fieldDx = odometryX - lastOdometryX;
+        double fieldDy = odometryY - lastOdometryY;
+        double cos = Math.cos(lastOdometryHeading), sin = Math.sin(lastOdometryHeading);
+        moveX = cos * fieldDx + sin * fieldDy;
+        moveY = -sin * fieldDx + cos * fieldDy;
+        moveHeading = Angle.normDelta(odometryHeading - lastOdometryHeading);
+        moveDistance = Math.hypot(moveX, moveY);
+
+        lastOdometryX = odometryX;
+        lastOdometryY = odometryY;
+        lastOdometryHeading = odometryHeading;
+
+        readRanges();
+
+        // only the filter counts against the budget, the hub reads above don't get faster with fewer particles
+        long start = System.nanoTime();
+        phase = MOVE_AND_WEIGH;
+        runChunks();
+
+        if (!isWeighted()) {
+            // every particle disagrees with the ranges, keep the ones on the field and forget the weights
+            lost++;
+            resetWeights();
+            // none of them are on it anymore, start over around the last estimate, kept on the field
+            if (!isWeighted()) {
+                scatter(new Pose2d(
+                        Math.max(-FieldModel.HALF_FIELD, Math.min(poseEstimate.getX(), FieldModel.HALF_FIELD)),
+                        Math.max(-FieldModel.HALF_FIELD, Math.min(poseEstimate.getY(), FieldModel.HALF_FIELD)),
+                        poseEstimate.getHeading()
+                ));
+                resetWeights();
+            }
+        }
+
+        double sumW = 0, sumW2 = 0, sumX = 0, sumY = 0, sumCos = 0, sumSin = 0;
+        for (int i = 0; i < partials.length; i += PARTIAL_SIZE) {
+            sumW += partials[i];
+            sumW2 += partials[i + 1];
+            sumX += partials[i + 2];
+            sumY += partials[i + 3];
+            sumCos += partials[i + 4];
+            sumSin += partials[i + 5];
+        }
+
+        poseEstimate = new Pose2d(sumX / sumW, sumY / sumW, Angle.norm(Math.atan2(sumSin, sumCos)));
+        weightScale = 1.0 / sumW;
+
+        // Effective number of particles, (sum w)^2 / sum w^2
+        double effective = sumW * sumW / sumW2;
+        boolean resize = targetCount < count || targetCount > count * 1.2;
+        if (effective < RESAMPLE_THRESHOLD * count || resize) resample(sumW, targetCount);
+
+        lastUpdateMs = (System.nanoTime() - start) / 1e6;
+        adaptCount();
+    }
+
+    private boolean isWeighted() {
+        double sumW = 0;
+        for (int i = 0; i < partials.length; i += PARTIAL_SIZE) sumW += partials[i];
+        return sumW > 0 && !Double.isInfinite(sumW);
+    }
+
+    /**
+     * Weights every particle on the field 1 and the rest 0, and redoes each chunk's partial sums to
+     * match so resampling can still cumulate from them.
+     */
+    private void resetWeights() {
+        for (int c = 0; c < CHUNKS; c++) {
+            double sumW = 0, sumX = 0, sumY = 0, sumCos = 0, sumSin = 0;
+            for (int i = c * count / CHUNKS; i < (c + 1) * count / CHUNKS; i++) {
+                double w = isOnField(xs[i], ys[i]) ? 1.0 : 0.0;
+                weights[i] = w;
+
+                sumW += w;
+                sumX += w * xs[i];
+                sumY += w * ys[i];
+                sumCos += w * Math.cos(headings[i]);
+                sumSin += w * Math.sin(headings[i]);
+            }
+
+            int p = c * PARTIAL_SIZE;
+            partials[p] = sumW;
+            // w^2 is w for weights of 0 and 1
+            partials[p + 1] = sumW;
+            partials[p + 2] = sumX;
+            partials[p + 3] = sumY;
+            partials[p + 4] = sumCos;
+            partials[p + 5] = sumSin;
+        }
+        weightScale = 1.0;
+    }
+
+    private static boolean isOnField(double x, double y) {
+        return Math.abs(x) <= FieldModel.HALF_FIELD && Math.abs(y) <= FieldModel.HALF_FIELD;
+    }
+
+    private void readRanges() {
+        forward = backward = side = Double.NaN;
+        if (distanceSensors == null) return;
+
+        // keeps the ranger going, it stops by itself when nothing reads it
+        distanceSensors.startRanging();
+
+        MB1242Ranger.Range forwardRange = distanceSensors.getForwardReading();
+        if (forwardRange.isNewerThan(lastForwardNanos)) {
+            lastForwardNanos = forwardRange.captureNanos;
+            forward = usable(forwardRange.getDistance(DistanceUnit.INCH), ULTRASONIC_MAX_RANGE);
+        }
+
+        MB1242Ranger.Range backwardRange = distanceSensors.getBackwardReading();
+        if (backwardRange.isNewerThan(lastBackwardNanos)) {
+            lastBackwardNanos = backwardRange.captureNanos;
+            backward = usable(backwardRange.getDistance(DistanceUnit.INCH), ULTRASONIC_MAX_RANGE);
+        }
+
+        // the side sensor has no timestamp, a new range is one that changed
+        double leftRange = distanceSensors.getLeftRange(DistanceUnit.INCH);
+        if (leftRange != lastSideRange) {
+            lastSideRange = leftRange;
+            side = usable(leftRange, TIME_OF_FLIGHT_MAX_RANGE);
+        }
+    }
+
+    private static double usable(double range, double maxRange) {
+        return range > MIN_RANGE && range < maxRange ? range : Double.NaN;
+    }
+
+    /**
+     * Systematic resampling into newCount particles, each chunk filling its own share of them.
+     */
+    private void resample(double sumW, int newCount) {
+        totalWeight = sumW;
+        phase = CUMULATE;
+        runChunks();
+
+        resampleCount = newCount;
+        resampleOffset = ThreadLocalRandom.current().nextDouble();
+        phase = RESAMPLE;
+        runChunks();
+
+        double[] swap;
+        swap = xs; xs = nextXs; nextXs = swap;
+        swap = ys; ys = nextYs; nextYs = swap;
+        swap = headings; headings = nextHeadings; nextHeadings = swap;
+        swap = weights; weights = nextWeights; nextWeights = swap;
+        count = newCount;
+        weightScale = 1.0;
+        resamples++;
+    }
+
+    //Scales the particle count by how the last update did against the budget
+    private void adaptCount() {
+        if (lastUpdateMs > LOOP_BUDGET_MS) {
+            targetCount = (int) (count * 0.9 * LOOP_BUDGET_MS / lastUpdateMs);
+        } else if (lastUpdateMs < 0.7 * LOOP_BUDGET_MS) {
+            targetCount = (int) (count * 1.1) + 1;
+        }
+        targetCount = Math.max(Math.min(targetCount, CAPACITY), Math.min(MIN_PARTICLES, CAPACITY));
+    }
+
+    private void runChunks() {
+        root.reinitialize();
+        POOL.invoke(root);
+    }
+
+    private final class Chunk extends RecursiveAction {
+        private final int index;
+
+        Chunk(int index) {
+            this.index = index;
+        }
+
+        @Override
+        protected void compute() {
+            switch (phase) {
+                case MOVE_AND_WEIGH:
+                    moveAndWeigh(index * count / CHUNKS, (index + 1) * count / CHUNKS);
+                    break;
+                case CUMULATE:
+                    cumulate(index * count / CHUNKS, (index + 1) * count / CHUNKS);
+                    break;
+                case RESAMPLE:
+                    resample(index * resampleCount / CHUNKS, (index + 1) * resampleCount / CHUNKS);
+                    break;
+            }
+        }
+
+        private void moveAndWeigh(int start, int end) {
+            Random random = ThreadLocalRandom.current();
+            double translationStd = TRANSLATION_NOISE + TRANSLATION_NOISE_PER_INCH * moveDistance;
+            double headingStd = HEADING_NOISE_PER_INCH * moveDistance;
+
+            double sumW = 0, sumW2 = 0, sumX = 0, sumY = 0, sumCos = 0, sumSin = 0;
+            for (int i = start; i < end; i++) {
+                double dx = moveX + random.nextGaussian() * translationStd;
+                double dy = moveY + random.nextGaussian() * translationStd;
+                double heading = headings[i];
+                double cos = Math.cos(heading), sin = Math.sin(heading);
+                double x = xs[i] + dx * cos - dy * sin;
+                double y = ys[i] + dx * sin + dy * cos;
+                heading = Angle.norm(heading + moveHeading + random.nextGaussian() * headingStd);
+                xs[i] = x;
+                ys[i] = y;
+                headings[i] = heading;
+
+                double w = weights[i] * weightScale;
+                if (!Double.isNaN(forward)) {
+                    w *= likelihood(forward, field.expectedRange(x, y, heading, RelocalizationGeometry.FORWARD_SENSOR_MOUNT), ULTRASONIC_STD, ULTRASONIC_MAX_RANGE);
+                }
+                if (!Double.isNaN(backward)) {
+                    w *= likelihood(backward, field.expectedRange(x, y, heading, RelocalizationGeometry.BACKWARD_SENSOR_MOUNT), ULTRASONIC_STD, ULTRASONIC_MAX_RANGE);
+                }
+                if (!Double.isNaN(side)) {
+                    w *= likelihood(side, field.expectedRange(x, y, heading, sideMount), TIME_OF_FLIGHT_STD, TIME_OF_FLIGHT_MAX_RANGE);
+                }
+                //off the field
+                if (!isOnField(x, y)) w = 0;
+                weights[i] = w;
+
+                sumW += w;
+                sumW2 += w * w;
+                sumX += w * x;
+                sumY += w * y;
+                sumCos += w * Math.cos(heading);
+                sumSin += w * Math.sin(heading);
+            }
+
+            int p = index * PARTIAL_SIZE;
+            partials[p] = sumW;
+            partials[p + 1] = sumW2;
+            partials[p + 2] = sumX;
+            partials[p + 3] = sumY;
+            partials[p + 4] = sumCos;
+            partials[p + 5] = sumSin;
+        }
+
+        private void cumulate(int start, int end) {
+            // this chunk's running sum starts after every earlier chunk's weight
+            double sum = 0;
+            for (int c = 0; c < index; c++) sum += partials[c * PARTIAL_SIZE];
+            for (int i = start; i < end; i++) {
+                sum += weights[i];
+                cumulativeWeights[i] = sum;
+            }
+        }
+
+        private void resample(int start, int end) {
+            if (start >= end) return;
+
+            // first particle whose cumulative weight passes the first pointer, then walk forward
+            double step = totalWeight / resampleCount;
+            double pointer = (resampleOffset + start) * step;
+            int low = 0, high = count - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulativeWeights[mid] > pointer) high = mid;
+                else low = mid + 1;
+            }
+
+            int source = low;
+            for (int j = start; j < end; j++, pointer += step) {
+                while (source < count - 1 && cumulativeWeights[source] <= pointer) source++;
+                nextXs[j] = xs[source];
+                nextYs[j] = ys[source];
+                nextHeadings[j] = headings[source];
+                nextWeights[j] = 1.0;
+            }
+        }
+    }
+
+    /**
+     * Gaussian around the expected range, with a floor for ranges that hit something unmapped.
+     * A beam the map has going past the sensor's range should come back as nothing, so those
+     * particles are compared against the max range instead.
+     */
+    private static double likelihood(double measured, double expected, double std, double maxRange) {
+        double error = (measured - Math.min(expected, maxRange)) / std;
+        return (1 - OUTLIER_PROBABILITY) * Math.exp(-0.5 * error * error) + OUTLIER_PROBABILITY;
+    }
+
+    public int getParticleCount() {
+        return count;
+    }
+
+    /**
+     * How long the filter's own work took in the last update, without the odometry and range reads.
+     */
+    public double getLastUpdateMs() {
+        return lastUpdateMs;
+    }
+
+    public long getResamples() {
+        return resamples;
+    }
+
+    /**
+     * How many updates every particle disagreed with the ranges and the weights were dropped.
+     */
+    public long getLostUpdates() {
+        return lost;
+    }
+}
@@ -0,0 +1,82 @@
+package org.firstinspires.ftc.teamcode.drive;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+
+/**
+ * Hands the drive's pose and velocity from the opmode thread to any other, as a sequence lock:
+ * the writer bumps the sequence to odd, writes the fields, and bumps it back to even, and a reader
+ * retries until it sees the same even sequence before and after reading the fields. Publishing
+ * allocates nothing; only {@link #getSnapshot()} boxes the fields into a {@link PoseSnapshot}.
+ * <p>
+ * There must only ever be one writer. The fields are volatile as well as the sequence since Java 8
+ * has no fences to keep plain reads and writes between the two sequence accesses.
+ */
+public class PosePublisher {
+    private volatile long sequence;
+
+    private volatile double x, y, heading;
+    private volatile double velocityX, velocityY, velocityHeading;
+    private volatile long timestampNanos;
+
+    /**
+     * The pose and velocity straight off the wheel localizer, as in the drive's allocation free
+     * update.
+     */
+    public void publish(MecanumWheelLocalizer localizer) {
+        publish(localizer.getX(), localizer.getY(), localizer.getHeading(),
+                localizer.getVelocityX(), localizer.getVelocityY(), localizer.getVelocityHeading());
+    }
+
+    public void publish(Pose2d pose, Pose2d velocity) {
+        publish(pose.getX(), pose.getY(), pose.getHeading(),
+                velocity != null ? velocity.getX() : 0.0,
+                velocity != null ? velocity.getY() : 0.0,
+                velocity != null ? velocity.getHeading() : 0.0);
+    }
+
+    /**
+     * A new pose with the last velocity carried over, for a pose reset while the robot may still
+     * be moving.
+     */
+    public void publishPose(Pose2d pose) {
+        publish(pose.getX(), pose.getY(), pose.getHeading(), velocityX, velocityY, velocityHeading);
+    }
+
+    public void publish(double x, double y, double heading,
+                        double velocityX, double velocityY, double velocityHeading) {
+        long next = sequence + 1;
+        sequence = next;
+
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+        this.velocityX = velocityX;
+        this.velocityY = velocityY;
+        this.velocityHeading = velocityHeading;
+        this.timestampNanos = System.nanoTime();
+
+        sequence = next + 1;
+    }
+
+    /**
+     * The last published pose and velocity, all from the same publish. {@link PoseSnapshot#NONE}
+     * until the first one.
+     */
+    public PoseSnapshot getSnapshot() {
+        while (true) {
+            long before = sequence;
+            if (before == 0) return PoseSnapshot.NONE;
+            //Mid publish, the writer is only a few stores away from done
+            if ((before & 1) != 0) continue;
+
+            double x = this.x, y = this.y, heading = this.heading;
+            double velocityX = this.velocityX, velocityY = this.velocityY, velocityHeading = this.velocityHeading;
+            long timestampNanos = this.timestampNanos;
+
+            if (sequence == before) {
+                return new PoseSnapshot(x, y, heading, velocityX, velocityY, velocityHeading,
+                        timestampNanos, before / 2);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.firstinspires.ftc.teamcode.drive;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+
+/**
+ * The drive's pose estimate and velocity as of one update, published by
+ * {@link SampleMecanumDrive#getPoseSnapshot()} for threads other than the opmode's.
+ * <p>
+ * Read out of the drive's {@link PosePublisher}, so the x, y and heading all come from the same
+ * update. Every field is final, the snapshot can be passed on to any thread.
+ */
+public final class PoseSnapshot {
+    public static final PoseSnapshot NONE = new PoseSnapshot(0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0, 0);
+
+    //Field frame, inches and radians
+    public final double x, y, heading;
+    //Robot frame, inches and radians per second
+    public final double velocityX, velocityY, velocityHeading;
+    /**
+     * System.nanoTime() at the end of the update or pose reset, 0 if there hasn't been one yet.
+     */
+    public final long timestampNanos;
+    /**
+     * Counts up by one with each publish.
+     */
+    public final long sequence;
+
+    PoseSnapshot(double x, double y, double heading,
+                 double velocityX, double velocityY, double velocityHeading,
+                 long timestampNanos, long sequence) {
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+        this.velocityX = velocityX;
+        this.velocityY = velocityY;
+        this.velocityHeading = velocityHeading;
+        this.timestampNanos = timestampNanos;
+        this.sequence = sequence;
+    }
+
+    public Pose2d getPose() {
+        return new Pose2d(x, y, heading);
+    }
+
+    public Pose2d getVelocity() {
+        return new Pose2d(velocityX, velocityY, velocityHeading);
+    }
+
+    public boolean isValid() {
+        return timestampNanos != 0;
+    }
+
+    /**
+     * How old the snapshot is, in seconds.
+     */
+    public double getAge() {
+        return (System.nanoTime() - timestampNanos) / 1e9;
+    }
+}
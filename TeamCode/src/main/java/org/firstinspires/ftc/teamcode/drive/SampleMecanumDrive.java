@@ -17,27 +17,35 @@ import com.acmerobotics.roadrunner.trajectory.constraints.MinVelocityConstraint;
 import com.acmerobotics.roadrunner.trajectory.constraints.ProfileAccelerationConstraint;
 import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryAccelerationConstraint;
 import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryVelocityConstraint;
-import com.qualcomm.hardware.bosch.BNO055IMU;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 import com.qualcomm.robotcore.hardware.PIDFCoefficients;
-import com.qualcomm.robotcore.hardware.VoltageSensor;
 import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
 
-import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
-import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
-import org.firstinspires.ftc.robotcore.external.navigation.AxesReference;
+import org.firstinspires.ftc.teamcode.hardware.CachingDcMotorEx;
+import org.firstinspires.ftc.teamcode.hardware.ImuService;
+import org.firstinspires.ftc.teamcode.hardware.VoltageService;
+import org.firstinspires.ftc.teamcode.subsystems.DistanceSensors;
+import org.firstinspires.ftc.teamcode.trajectorysequence.MutableDriveSignal;
+import org.firstinspires.ftc.teamcode.trajectorysequence.PlannedTrajectorySequence;
 import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequence;
 import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceBuilder;
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceCache;
 import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceRunner;
 import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceRunnerCancelable;
+import org.firstinspires.ftc.teamcode.util.AssetsTrajectoryManager;
 import org.firstinspires.ftc.teamcode.util.LynxModuleUtil;
+import org.firstinspires.ftc.teamcode.util.VelocityEstimator;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
 import static org.firstinspires.ftc.teamcode.drive.DriveConstants.MAX_ACCEL;
 import static org.firstinspires.ftc.teamcode.drive.DriveConstants.MAX_ANG_ACCEL;
@@ -55,7 +63,7 @@ import static org.firstinspires.ftc.teamcode.drive.DriveConstants.kV;
  * Simple mecanum drive hardware implementation for REV hardware.
  */
 @Config
-public class SampleMecanumDrive extends MecanumDrive {
+public class SampleMecanumDrive extends MecanumDrive implements MecanumWheelLocalizer.WheelSource {
     public static PIDCoefficients TRANSLATIONAL_PID = new PIDCoefficients(4.7, 0, 0); //8,0,0
     public static PIDCoefficients HEADING_PID = new PIDCoefficients(0, 0, 0); //7.3, 0, 0
 
@@ -65,43 +73,76 @@ public class SampleMecanumDrive extends MecanumDrive {
     public static double VY_WEIGHT = 1;
     public static double OMEGA_WEIGHT = 1;
 
+    //How far the robot may end up from a look-ahead plan's predicted start pose for the plan to still be used
+    public static double LOOKAHEAD_MAX_POSITION_ERROR = 2.0; // in
+    public static double LOOKAHEAD_MAX_HEADING_ERROR = Math.toRadians(5.0);
+
+    //How far the battery has to drift before the motor F term is rewritten for it
+    public static double VOLTAGE_COMPENSATION_THRESHOLD = 0.1; // V
+
+    //Use wheel velocities fitted from the encoder positions instead of the hub's own velocity
+    public static boolean USE_ESTIMATED_WHEEL_VELOCITY = false;
+
     private TrajectorySequenceRunnerCancelable trajectorySequenceRunner;
 
     private static final TrajectoryVelocityConstraint VEL_CONSTRAINT = getVelocityConstraint(MAX_VEL, MAX_ANG_VEL, TRACK_WIDTH);
     private static final TrajectoryAccelerationConstraint ACCEL_CONSTRAINT = getAccelerationConstraint(MAX_ACCEL);
 
+    //Shared between opmodes so that repeated routes (every auto cycle) skip spline and profile generation
+    private static final TrajectorySequenceCache SEQUENCE_CACHE = new TrajectorySequenceCache(32);
+
+    //Background worker that builds the next sequence while the current one is being followed
+    private static final ExecutorService PLANNER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TrajectorySequencePlanner");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
     private TrajectoryFollower follower;
 
     private DcMotorEx leftFront, leftRear, rightRear, rightFront;
     private List<DcMotorEx> motors;
+    private MecanumWheelLocalizer wheelLocalizer;
 
-    private BNO055IMU imu;
-    private VoltageSensor batteryVoltageSensor;
+    //Written by the runner every loop in TrajectorySequenceRunner.ALLOCATION_FREE mode
+    private final MutableDriveSignal driveSignal = new MutableDriveSignal();
+
+    //Latest pose, published after each update so any thread can read it
+    private final PosePublisher posePublisher = new PosePublisher();
+    private final VelocityEstimator[] wheelVelocityEstimators = {
+            new VelocityEstimator(), new VelocityEstimator(), new VelocityEstimator(), new VelocityEstimator()
+    };
+
+    private ImuService imu;
+    private VoltageService batteryVoltage;
+    private PIDFCoefficients velocityCoefficients;
+    private double compensatedVoltage;
 
     public SampleMecanumDrive(HardwareMap hardwareMap) {
         super(kV, kA, kStatic, TRACK_WIDTH, TRACK_WIDTH, LATERAL_MULTIPLIER);
 
+        Pose2d admissibleError = new Pose2d(0.5, 0.5, Math.toRadians(5.0));
+        double timeout = 0.5;
         follower = new HolonomicPIDVAFollower(TRANSLATIONAL_PID, TRANSLATIONAL_PID, HEADING_PID,
-                new Pose2d(0.5, 0.5, Math.toRadians(5.0)), 0.5);
+                admissibleError, timeout);
 
         LynxModuleUtil.ensureMinimumFirmwareVersion(hardwareMap);
 
-        batteryVoltageSensor = hardwareMap.voltageSensor.iterator().next();
+        batteryVoltage = VoltageService.get(hardwareMap);
 
         // TODO: adjust the names of the following hardware devices to match your configuration
-        imu = hardwareMap.get(BNO055IMU.class, "imu");
-        BNO055IMU.Parameters parameters = new BNO055IMU.Parameters();
-        parameters.angleUnit = BNO055IMU.AngleUnit.RADIANS;
-        imu.initialize(parameters);
+        // the IMU is read on its own thread, see ImuService
+        imu = ImuService.get(hardwareMap);
 
         // TODO: if your hub is mounted vertically, remap the IMU axes so that the z-axis points
         // upward (normal to the floor) using a command like the following:
         // BNO055IMUUtil.remapAxes(imu, AxesOrder.XYZ, AxesSigns.NPN);
 
-        leftFront = hardwareMap.get(DcMotorEx.class, "lf");
-        leftRear = hardwareMap.get(DcMotorEx.class, "lb");
-        rightRear = hardwareMap.get(DcMotorEx.class, "rb");
-        rightFront = hardwareMap.get(DcMotorEx.class, "rf");
+        leftFront = new CachingDcMotorEx(hardwareMap.get(DcMotorEx.class, "lf"));
+        leftRear = new CachingDcMotorEx(hardwareMap.get(DcMotorEx.class, "lb"));
+        rightRear = new CachingDcMotorEx(hardwareMap.get(DcMotorEx.class, "rb"));
+        rightFront = new CachingDcMotorEx(hardwareMap.get(DcMotorEx.class, "rf"));
 
         motors = Arrays.asList(leftFront, leftRear, rightRear, rightFront);
 
@@ -128,8 +169,14 @@ public class SampleMecanumDrive extends MecanumDrive {
 
         // TODO: if desired, use setLocalizer() to change the localization method
         // for instance, setLocalizer(new ThreeTrackingWheelLocalizer(...));
-
-        trajectorySequenceRunner = new TrajectorySequenceRunnerCancelable(follower, HEADING_PID);
+        wheelLocalizer = new MecanumWheelLocalizer(this, TRACK_WIDTH, TRACK_WIDTH, LATERAL_MULTIPLIER, true);
+        //setPoseEstimate() can't be overridden, but every localizer here passes it down to the wheels
+        wheelLocalizer.setPoseResetListener(posePublisher::publishPose);
+        setLocalizer(wheelLocalizer);
+
+        trajectorySequenceRunner = new TrajectorySequenceRunnerCancelable(follower, HEADING_PID, TRANSLATIONAL_PID);
+        //Sampled segments settle at their end the same as the follower's trajectories
+        trajectorySequenceRunner.setAdmissibleError(admissibleError, timeout);
     }
 
     public TrajectoryBuilder trajectoryBuilder(Pose2d startPose) {
@@ -146,14 +193,62 @@ public class SampleMecanumDrive extends MecanumDrive {
 
     public TrajectorySequenceBuilder trajectorySequenceBuilder(Pose2d startPose) {
         return new TrajectorySequenceBuilder(
-                startPose,
+                startPose, null,
                 VEL_CONSTRAINT, ACCEL_CONSTRAINT,
-                MAX_ANG_VEL, MAX_ANG_ACCEL
+                MAX_ANG_VEL, MAX_ANG_ACCEL,
+                SEQUENCE_CACHE
+        );
+    }
+
+    public static TrajectorySequenceCache getSequenceCache() {
+        return SEQUENCE_CACHE;
+    }
+
+    /**
+     * Starts building a sequence on the planning thread from the end pose of the sequence that is
+     * currently being followed (or the current pose estimate when idle).
+     */
+    public PlannedTrajectorySequence planTrajectorySequenceAsync(Function<TrajectorySequenceBuilder, TrajectorySequenceBuilder> route) {
+        return planTrajectorySequenceAsync(getPredictedEndPose(), route);
+    }
+
+    public PlannedTrajectorySequence planTrajectorySequenceAsync(Pose2d predictedStartPose, Function<TrajectorySequenceBuilder, TrajectorySequenceBuilder> route) {
+        return new PlannedTrajectorySequence(
+                PLANNER, predictedStartPose,
+                this::trajectorySequenceBuilder, route,
+                LOOKAHEAD_MAX_POSITION_ERROR, LOOKAHEAD_MAX_HEADING_ERROR
+        );
+    }
+
+    /**
+     * Same, but the planning thread first tries the route precompiled under compiledName (from
+     * assets, then from AssetsTrajectoryManager.COMPILED_FOLDER) and only builds it if there isn't
+     * one starting at predictedStartPose. The route must not have markers.
+     */
+    public PlannedTrajectorySequence planTrajectorySequenceAsync(String compiledName, Pose2d predictedStartPose, Function<TrajectorySequenceBuilder, TrajectorySequenceBuilder> route) {
+        return new PlannedTrajectorySequence(
+                PLANNER, predictedStartPose,
+                () -> {
+                    TrajectorySequence compiled = AssetsTrajectoryManager.loadCompiled(compiledName);
+                    return compiled != null ? compiled : AssetsTrajectoryManager.loadCompiledFromStorage(compiledName);
+                },
+                this::trajectorySequenceBuilder, route,
+                LOOKAHEAD_MAX_POSITION_ERROR, LOOKAHEAD_MAX_HEADING_ERROR
         );
     }
 
+    /**
+     * Returns where the robot will be once the current sequence is done, or the pose estimate when
+     * idle. Only for planning ahead: the plan is checked against the measured pose when it's
+     * handed off, see {@link PlannedTrajectorySequence#resolve}.
+     */
+    public Pose2d getPredictedEndPose() {
+        TrajectorySequence currentSequence = trajectorySequenceRunner.getCurrentTrajectorySequence();
+        return currentSequence != null ? currentSequence.end() : getPoseEstimate();
+    }
+
     public void turnAsync(double angle) {
-        trajectorySequenceRunner.followTrajectorySequenceAsync(
+        followTrajectorySequenceAsync(
                 trajectorySequenceBuilder(getPoseEstimate())
                         .turn(angle)
                         .build()
@@ -166,7 +261,7 @@ public class SampleMecanumDrive extends MecanumDrive {
     }
 
     public void followTrajectoryAsync(Trajectory trajectory) {
-        trajectorySequenceRunner.followTrajectorySequenceAsync(
+        followTrajectorySequenceAsync(
                 trajectorySequenceBuilder(trajectory.start())
                         .addTrajectory(trajectory)
                         .build()
@@ -191,16 +286,78 @@ public class SampleMecanumDrive extends MecanumDrive {
         trajectorySequenceRunner.breakFollowing();
     }
 
+    /**
+     * Runs trajectory sequence marker callbacks on the given executor instead of inside update().
+     */
+    public void setMarkerExecutor(Executor markerExecutor) {
+        trajectorySequenceRunner.setMarkerExecutor(markerExecutor);
+    }
+
     public Pose2d getLastError() {
         return trajectorySequenceRunner.getLastPoseError();
     }
 
     public void update() {
+        updateVoltageCompensation();
         updatePoseEstimate();
-        DriveSignal signal = trajectorySequenceRunner.update(getPoseEstimate(), getPoseVelocity());
+
+        if (TrajectorySequenceRunner.ALLOCATION_FREE && getLocalizer() == wheelLocalizer) {
+            updateAllocationFree();
+            return;
+        }
+
+        Pose2d poseEstimate = getPoseEstimate();
+        Pose2d poseVelocity = getPoseVelocity();
+        posePublisher.publish(poseEstimate, poseVelocity);
+        DriveSignal signal = trajectorySequenceRunner.update(poseEstimate, poseVelocity);
         if (signal != null) setDriveSignal(signal);
     }
 
+    /**
+     * The rest of update() with the pose read off the wheel localizer as primitives, published
+     * through the sequence lock and the signal written into a reused one. Nothing here allocates.
+     * <p>
+     * Only the opmode thread publishes, from update() and setPoseEstimate() (a new start pose or a
+     * relocalization shows up right away instead of after the next update).
+     */
+    private void updateAllocationFree() {
+        posePublisher.publish(wheelLocalizer);
+        double x = wheelLocalizer.getX(), y = wheelLocalizer.getY(), heading = wheelLocalizer.getHeading();
+        if (trajectorySequenceRunner.update(x, y, heading, driveSignal)) setDriveSignal(driveSignal);
+    }
+
+    /**
+     * MecanumDrive.setDriveSignal on primitives: MecanumKinematics.robotToWheelVelocities and
+     * Kinematics.calculateMotorFeedforward for each wheel.
+     */
+    public void setDriveSignal(MutableDriveSignal signal) {
+        double k = (TRACK_WIDTH + TRACK_WIDTH) / 2.0;
+
+        double velY = LATERAL_MULTIPLIER * signal.velY, velHeading = k * signal.velHeading;
+        double accelY = LATERAL_MULTIPLIER * signal.accelY, accelHeading = k * signal.accelHeading;
+
+        setMotorPowers(
+                feedforward(signal.velX - velY - velHeading, signal.accelX - accelY - accelHeading),
+                feedforward(signal.velX + velY - velHeading, signal.accelX + accelY - accelHeading),
+                feedforward(signal.velX - velY + velHeading, signal.accelX - accelY + accelHeading),
+                feedforward(signal.velX + velY + velHeading, signal.accelX + accelY + accelHeading)
+        );
+    }
+
+    private static double feedforward(double velocity, double acceleration) {
+        double basePower = velocity * kV + acceleration * kA;
+        if (Math.abs(basePower) < 1e-6) return 0.0;
+        return basePower + Math.signum(basePower) * kStatic;
+    }
+
+    /**
+     * The pose and velocity from the last {@link #update()} or setPoseEstimate(), safe to call
+     * from any thread without locking. {@link PoseSnapshot#NONE} until the first of those.
+     */
+    public PoseSnapshot getPoseSnapshot() {
+        return posePublisher.getSnapshot();
+    }
+
     public void waitForIdle() {
         while (!Thread.currentThread().isInterrupted() && isBusy())
             update();
@@ -210,6 +367,38 @@ public class SampleMecanumDrive extends MecanumDrive {
         return trajectorySequenceRunner.isBusy();
     }
 
+    /**
+     * Switches to an {@link EkfLocalizer} that keeps correcting the drive odometry with the
+     * distance sensors, starting from the current pose estimate.
+     */
+    public EkfLocalizer enableRangeFusion(DistanceSensors distanceSensors, boolean redSide) {
+        EkfLocalizer localizer = new EkfLocalizer(wheelLocalizer);
+        localizer.setDistanceSensors(distanceSensors, redSide);
+        setLocalizer(localizer);
+        return localizer;
+    }
+
+    /**
+     * Switches to a {@link ParticleFilterLocalizer} that weights the drive odometry against the
+     * distance sensors and the field map, starting from the current pose estimate. Meant for
+     * stretches where the wheels slip, like crossing the warehouse barrier.
+     */
+    public ParticleFilterLocalizer enableParticleFilter(DistanceSensors distanceSensors, boolean redSide) {
+        ParticleFilterLocalizer localizer = new ParticleFilterLocalizer(wheelLocalizer);
+        localizer.setDistanceSensors(distanceSensors, redSide);
+        setLocalizer(localizer);
+        return localizer;
+    }
+
+    /**
+     * Goes back to plain drive odometry, starting from the current pose estimate.
+     */
+    public void disableRangeLocalization() {
+        Pose2d pose = getPoseEstimate();
+        setLocalizer(wheelLocalizer);
+        setPoseEstimate(pose);
+    }
+
     public void setMode(DcMotor.RunMode runMode) {
         for (DcMotorEx motor : motors) {
             motor.setMode(runMode);
@@ -223,9 +412,12 @@ public class SampleMecanumDrive extends MecanumDrive {
     }
 
     public void setPIDFCoefficients(DcMotor.RunMode runMode, PIDFCoefficients coefficients) {
+        compensatedVoltage = batteryVoltage.getVoltage();
+        if (runMode == DcMotor.RunMode.RUN_USING_ENCODER) velocityCoefficients = coefficients;
+
         PIDFCoefficients compensatedCoefficients = new PIDFCoefficients(
                 coefficients.p, coefficients.i, coefficients.d,
-                coefficients.f * 12 / batteryVoltageSensor.getVoltage()
+                coefficients.f * VoltageService.NOMINAL_VOLTAGE / compensatedVoltage
         );
 
         for (DcMotorEx motor : motors) {
@@ -233,6 +425,19 @@ public class SampleMecanumDrive extends MecanumDrive {
         }
     }
 
+    /**
+     * Rewrites the velocity F term once the filtered battery voltage has drifted far enough from
+     * the one it was last compensated for. Costs nothing otherwise, the voltage is read in the
+     * background.
+     */
+    private void updateVoltageCompensation() {
+        if (velocityCoefficients == null) return;
+
+        if (Math.abs(batteryVoltage.getVoltage() - compensatedVoltage) > VOLTAGE_COMPENSATION_THRESHOLD) {
+            setPIDFCoefficients(DcMotor.RunMode.RUN_USING_ENCODER, velocityCoefficients);
+        }
+    }
+
     public void setWeightedDrivePower(Pose2d drivePower) {
         Pose2d vel = drivePower;
 
@@ -272,6 +477,25 @@ public class SampleMecanumDrive extends MecanumDrive {
         return wheelVelocities;
     }
 
+    @Override
+    public void getWheelPositions(double[] positions) {
+        double now = System.nanoTime() / 1e9;
+        for (int i = 0; i < 4; i++) {
+            int ticks = motors.get(i).getCurrentPosition();
+            wheelVelocityEstimators[i].addSample(now, ticks);
+            positions[i] = encoderTicksToInches(ticks);
+        }
+    }
+
+    @Override
+    public void getWheelVelocities(double[] velocities) {
+        for (int i = 0; i < 4; i++) {
+            velocities[i] = encoderTicksToInches(USE_ESTIMATED_WHEEL_VELOCITY
+                    ? wheelVelocityEstimators[i].getVelocity()
+                    : motors.get(i).getVelocity());
+        }
+    }
+
     /**
      * Order of lf, lb, rb, rf
      */
@@ -285,11 +509,16 @@ public class SampleMecanumDrive extends MecanumDrive {
 
     @Override
     public double getRawExternalHeading() {
-        return imu.getAngularOrientation(AxesReference.INTRINSIC, AxesOrder.ZYX, AngleUnit.RADIANS).firstAngle;
+        return imu.getLatest().heading;
     }
 
     @Override
     public Double getExternalHeadingVelocity() {
+        return getExternalHeadingVelocityRadians();
+    }
+
+    @Override
+    public double getExternalHeadingVelocityRadians() {
         // TODO: This must be changed to match your configuration
         //                           | Z axis
         //                           |
@@ -307,7 +536,7 @@ public class SampleMecanumDrive extends MecanumDrive {
         // Adjust the axis rotation rate as necessary
         // Rotate about the z axis is the default assuming your REV Hub/Control Hub is laying
         // flat on a surface
-        return (double) -imu.getAngularVelocity().xRotationRate;
+        return -imu.getLatest().xRotationRate;
     }
 
     public static TrajectoryVelocityConstraint getVelocityConstraint(double maxVel, double maxAngularVel, double trackWidth) {
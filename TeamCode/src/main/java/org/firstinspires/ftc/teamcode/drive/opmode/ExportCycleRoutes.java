@@ -0,0 +1,47 @@
+package org.firstinspires.ftc.teamcode.drive.opmode;
+
+import static java.lang.Math.toRadians;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+
+import org.firstinspires.ftc.teamcode.commands.autocommands.cycle.CycleRoutes;
+import org.firstinspires.ftc.teamcode.drive.SampleMecanumDrive;
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequence;
+import org.firstinspires.ftc.teamcode.util.AssetsTrajectoryManager;
+
+import java.util.Map;
+
+/*
+ * Builds the cycle autos' fixed routes with the drive's current constraints and writes them
+ * precompiled to AssetsTrajectoryManager.COMPILED_FOLDER. The autos load them from there, or from
+ * assets after running ./gradlew :TeamCode:pullTrajectorySequences. Rerun after changing the
+ * routes or the drive constraints.
+ */
+@Autonomous(group = "drive")
+public class ExportCycleRoutes extends LinearOpMode {
+    public static double SAMPLE_INTERVAL = 0.01; // s
+
+    @Override
+    public void runOpMode() throws InterruptedException {
+        SampleMecanumDrive drive = new SampleMecanumDrive(hardwareMap);
+
+        waitForStart();
+
+        if (isStopRequested()) return;
+
+        export(CycleRoutes.buildFixedRoutes(drive::trajectorySequenceBuilder, new Pose2d(8, 65, toRadians(0.0)), false));
+        export(CycleRoutes.buildFixedRoutes(drive::trajectorySequenceBuilder, new Pose2d(8, -65, toRadians(180.0)), true));
+        telemetry.update();
+
+        while (opModeIsActive()) idle();
+    }
+
+    private void export(Map<String, TrajectorySequence> routes) {
+        for (Map.Entry<String, TrajectorySequence> route : routes.entrySet()) {
+            boolean written = AssetsTrajectoryManager.exportCompiled(route.getKey(), route.getValue(), SAMPLE_INTERVAL);
+            telemetry.addData(route.getKey(), written ? "written" : "FAILED");
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.qualcomm.robotcore.hardware.CRServo;
+import com.qualcomm.robotcore.hardware.ServoController;
+
+/**
+ * {@link CRServo} that only sends a new power when it differs from the last one sent by more than
+ * {@link WriteCache#CR_SERVO_POWER_EPSILON}. Writes are queued on the servo's hub during a
+ * {@link HubIoDispatcher} loop, like {@link CachingDcMotorEx}.
+ */
+public class CachingCRServo implements CRServo {
+    private final CRServo servo;
+
+    private double lastPower = 0.0;
+    private boolean hasLastPower = false;
+    private long savedWrites = 0;
+
+    private double pendingPower = 0.0;
+    private boolean writeQueued = false;
+    private final Runnable powerWrite = () -> {
+        if (!writeQueued) return;
+        writeQueued = false;
+        this.servo.setPower(pendingPower);
+    };
+
+    public CachingCRServo(CRServo servo) {
+        this.servo = servo;
+    }
+
+    @Override
+    public synchronized void setPower(double power) {
+        if (!WriteCache.shouldWrite(hasLastPower, lastPower, power, WriteCache.CR_SERVO_POWER_EPSILON)) {
+            savedWrites++;
+            return;
+        }
+
+        lastPower = power;
+        hasLastPower = true;
+        pendingPower = power;
+
+        HubIoDispatcher dispatcher = HubIoDispatcher.getActive();
+        if (dispatcher != null && dispatcher.isDeferring()) {
+            if (!writeQueued) {
+                writeQueued = true;
+                dispatcher.defer(servo, powerWrite);
+            }
+        } else {
+            writeQueued = true;
+            powerWrite.run();
+        }
+    }
+
+    @Override
+    public double getPower() {
+        return servo.getPower();
+    }
+
+    @Override
+    public synchronized void setDirection(Direction direction) {
+        powerWrite.run();
+        servo.setDirection(direction);
+        hasLastPower = false;
+    }
+
+    @Override
+    public Direction getDirection() {
+        return servo.getDirection();
+    }
+
+    @Override
+    public ServoController getController() {
+        return servo.getController();
+    }
+
+    @Override
+    public int getPortNumber() {
+        return servo.getPortNumber();
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return servo.getManufacturer();
+    }
+
+    @Override
+    public String getDeviceName() {
+        return servo.getDeviceName();
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return servo.getConnectionInfo();
+    }
+
+    @Override
+    public int getVersion() {
+        return servo.getVersion();
+    }
+
+    @Override
+    public synchronized void resetDeviceConfigurationForOpMode() {
+        servo.resetDeviceConfigurationForOpMode();
+        hasLastPower = false;
+    }
+
+    @Override
+    public void close() {
+        servo.close();
+    }
+
+    public long getSavedWrites() {
+        return savedWrites;
+    }
+}
@@ -0,0 +1,123 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.DcMotorImplEx;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+
+/**
+ * {@link DcMotorEx} that only sends a new power when it differs from the last one sent by more
+ * than {@link WriteCache#MOTOR_POWER_EPSILON}.
+ * <p>
+ * Wrap the motor straight out of the hardware map and only use the wrapper from then on.
+ * <p>
+ * While a {@link HubIoDispatcher} loop is running, the write is queued on the motor's hub instead
+ * of sent, and only the last power set in the loop is sent.
+ */
+public class CachingDcMotorEx extends DcMotorImplEx {
+    private double lastPower = 0.0;
+    private boolean hasLastPower = false;
+    private long savedWrites = 0;
+
+    private double pendingPower = 0.0;
+    private boolean writeQueued = false;
+    private final Runnable powerWrite = () -> {
+        if (!writeQueued) return;
+        writeQueued = false;
+        super.setPower(pendingPower);
+    };
+
+    public CachingDcMotorEx(DcMotorEx motor) {
+        super(motor.getController(), motor.getPortNumber(), motor.getDirection(), motor.getMotorType());
+    }
+
+    @Override
+    public synchronized void setPower(double power) {
+        if (!WriteCache.shouldWrite(hasLastPower, lastPower, power, WriteCache.MOTOR_POWER_EPSILON)) {
+            savedWrites++;
+            return;
+        }
+
+        lastPower = power;
+        hasLastPower = true;
+        pendingPower = power;
+
+        HubIoDispatcher dispatcher = HubIoDispatcher.getActive();
+        if (dispatcher != null && dispatcher.isDeferring()) {
+            if (!writeQueued) {
+                writeQueued = true;
+                dispatcher.defer(this, powerWrite);
+            }
+        } else {
+            writeQueued = true;
+            powerWrite.run();
+        }
+    }
+
+    //Sends a queued power now, so it isn't reordered after a mode change
+    private void flushPendingWrite() {
+        powerWrite.run();
+    }
+
+    // Switching modes or enabling the motor can change the output without going through setPower
+    @Override
+    public synchronized void setMode(RunMode mode) {
+        flushPendingWrite();
+        super.setMode(mode);
+        hasLastPower = false;
+    }
+
+    @Override
+    public synchronized void setMotorEnable() {
+        flushPendingWrite();
+        super.setMotorEnable();
+        hasLastPower = false;
+    }
+
+    @Override
+    public synchronized void setMotorDisable() {
+        flushPendingWrite();
+        super.setMotorDisable();
+        hasLastPower = false;
+    }
+
+    @Override
+    public synchronized void setDirection(Direction direction) {
+        flushPendingWrite();
+        super.setDirection(direction);
+        hasLastPower = false;
+    }
+
+    //Velocity and position control set the output themselves, so the next power has to be sent
+    @Override
+    public synchronized void setVelocity(double angularRate) {
+        flushPendingWrite();
+        super.setVelocity(angularRate);
+        hasLastPower = false;
+    }
+
+    @Override
+    public synchronized void setVelocity(double angularRate, AngleUnit unit) {
+        flushPendingWrite();
+        super.setVelocity(angularRate, unit);
+        hasLastPower = false;
+    }
+
+    @Override
+    public synchronized void setTargetPosition(int position) {
+        flushPendingWrite();
+        super.setTargetPosition(position);
+        hasLastPower = false;
+    }
+
+    @Override
+    public synchronized void setZeroPowerBehavior(ZeroPowerBehavior zeroPowerBehavior) {
+        flushPendingWrite();
+        super.setZeroPowerBehavior(zeroPowerBehavior);
+        hasLastPower = false;
+    }
+
+    public long getSavedWrites() {
+        return savedWrites;
+    }
+}
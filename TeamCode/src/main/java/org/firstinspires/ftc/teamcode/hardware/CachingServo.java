@@ -0,0 +1,124 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.hardware.ServoController;
+
+/**
+ * {@link Servo} that only sends a new position when it differs from the last one sent by more
+ * than {@link WriteCache#SERVO_POSITION_EPSILON}.
+ * <p>
+ * Anything else (direction, range, PWM setup) should be done on the wrapped servo before wrapping
+ * it, or through this class so the cache knows about it. Writes are queued on the servo's hub
+ * during a {@link HubIoDispatcher} loop, like {@link CachingDcMotorEx}.
+ */
+public class CachingServo implements Servo {
+    private final Servo servo;
+
+    private double lastPosition = 0.0;
+    private boolean hasLastPosition = false;
+    private long savedWrites = 0;
+
+    private double pendingPosition = 0.0;
+    private boolean writeQueued = false;
+    private final Runnable positionWrite = () -> {
+        if (!writeQueued) return;
+        writeQueued = false;
+        this.servo.setPosition(pendingPosition);
+    };
+
+    public CachingServo(Servo servo) {
+        this.servo = servo;
+    }
+
+    @Override
+    public synchronized void setPosition(double position) {
+        if (!WriteCache.shouldWrite(hasLastPosition, lastPosition, position, WriteCache.SERVO_POSITION_EPSILON)) {
+            savedWrites++;
+            return;
+        }
+
+        lastPosition = position;
+        hasLastPosition = true;
+        pendingPosition = position;
+
+        HubIoDispatcher dispatcher = HubIoDispatcher.getActive();
+        if (dispatcher != null && dispatcher.isDeferring()) {
+            if (!writeQueued) {
+                writeQueued = true;
+                dispatcher.defer(servo, positionWrite);
+            }
+        } else {
+            writeQueued = true;
+            positionWrite.run();
+        }
+    }
+
+    @Override
+    public double getPosition() {
+        return servo.getPosition();
+    }
+
+    @Override
+    public synchronized void setDirection(Direction direction) {
+        positionWrite.run();
+        servo.setDirection(direction);
+        hasLastPosition = false;
+    }
+
+    @Override
+    public Direction getDirection() {
+        return servo.getDirection();
+    }
+
+    @Override
+    public synchronized void scaleRange(double min, double max) {
+        positionWrite.run();
+        servo.scaleRange(min, max);
+        hasLastPosition = false;
+    }
+
+    @Override
+    public ServoController getController() {
+        return servo.getController();
+    }
+
+    @Override
+    public int getPortNumber() {
+        return servo.getPortNumber();
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return servo.getManufacturer();
+    }
+
+    @Override
+    public String getDeviceName() {
+        return servo.getDeviceName();
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return servo.getConnectionInfo();
+    }
+
+    @Override
+    public int getVersion() {
+        return servo.getVersion();
+    }
+
+    @Override
+    public synchronized void resetDeviceConfigurationForOpMode() {
+        servo.resetDeviceConfigurationForOpMode();
+        hasLastPosition = false;
+    }
+
+    @Override
+    public void close() {
+        servo.close();
+    }
+
+    public long getSavedWrites() {
+        return savedWrites;
+    }
+}
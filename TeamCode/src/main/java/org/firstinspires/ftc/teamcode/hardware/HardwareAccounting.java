@@ -0,0 +1,326 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.acmerobotics.dashboard.FtcDashboard;
+import com.acmerobotics.dashboard.config.Config;
+import com.acmerobotics.dashboard.telemetry.TelemetryPacket;
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.DcMotorController;
+import com.qualcomm.robotcore.hardware.HardwareDevice;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link HardwareMap} that counts the reads, writes and blocking time of every device it hands
+ * out, per device and per Lynx hub, and sends the totals of each loop to the dashboard.
+ * <p>
+ * Devices asked for by an interface (DcMotorEx, Servo, BNO055IMU, ...) come back wrapped in a
+ * proxy that times each call on its way to the real device. A motor's controller is wrapped too,
+ * so {@link CachingDcMotorEx}, which talks to the controller directly, is still counted under the
+ * motor's name. A call that blocks for longer than {@link #TRANSACTION_THRESHOLD_US} is counted as
+ * a hub transaction: a bulk cached read comes back in a few microseconds, a real Lynx command
+ * takes a millisecond or more, so an uncached getCurrentPosition() or an I2C read shows up there
+ * right away. Devices asked for by their class (ServoImplEx, LynxModule, MB1242, ...) can't be
+ * proxied and are handed out as is.
+ * <p>
+ * The counters are {@link LongAdder}s, so the IMU and ranging threads and the hub workers can
+ * count without locking. Only {@link #endLoop()} reads them.
+ * <p>
+ * The typed device mappings (voltageSensor, dcMotor, ...) are the real map's, and aren't counted.
+ * Every call goes through reflection and allocates, so this is off by default: turn on
+ * {@link #ENABLED} to look for a regression, not for a match.
+ */
+@Config
+public class HardwareAccounting extends HardwareMap {
+    public static boolean ENABLED = false;
+    public static long TRANSACTION_THRESHOLD_US = 300;
+    public static long TELEMETRY_INTERVAL_MS = 500;
+
+    //Getters that are answered from fields on the phone and never reach a hub
+    private static final Set<String> LOCAL_METHODS = new HashSet<>(Arrays.asList(
+            "getController", "getPortNumber", "getMotorType", "getDirection", "getManufacturer",
+            "getDeviceName", "getConnectionInfo", "getVersion", "toString", "hashCode", "equals"
+    ));
+
+    private static class Counters {
+        final String name;
+        final String readsKey, writesKey, transactionsKey, blockingKey;
+        final Counters hub;
+
+        final LongAdder reads = new LongAdder();
+        final LongAdder writes = new LongAdder();
+        final LongAdder transactions = new LongAdder();
+        final LongAdder blockingNanos = new LongAdder();
+
+        //Totals as of the last endLoop(), and what the last loop added, main thread only
+        long lastReads, lastWrites, lastTransactions, lastBlockingNanos;
+        long loopReads, loopWrites, loopTransactions, loopBlockingNanos;
+
+        Counters(String name, Counters hub) {
+            this.name = name;
+            this.hub = hub;
+            readsKey = name + " reads";
+            writesKey = name + " writes";
+            transactionsKey = name + " transactions";
+            blockingKey = name + " blocking (us)";
+        }
+
+        void record(boolean write, long nanos) {
+            boolean transaction = nanos >= TRANSACTION_THRESHOLD_US * 1000;
+            for (Counters counters = this; counters != null; counters = counters.hub) {
+                if (write) counters.writes.increment();
+                else counters.reads.increment();
+                if (transaction) counters.transactions.increment();
+                counters.blockingNanos.add(nanos);
+            }
+        }
+
+        void endLoop() {
+            long reads = this.reads.sum();
+            long writes = this.writes.sum();
+            long transactions = this.transactions.sum();
+            long blockingNanos = this.blockingNanos.sum();
+
+            loopReads = reads - lastReads;
+            loopWrites = writes - lastWrites;
+            loopTransactions = transactions - lastTransactions;
+            loopBlockingNanos = blockingNanos - lastBlockingNanos;
+
+            lastReads = reads;
+            lastWrites = writes;
+            lastTransactions = transactions;
+            lastBlockingNanos = blockingNanos;
+        }
+
+        void put(TelemetryPacket packet) {
+            packet.put(readsKey, loopReads);
+            packet.put(writesKey, loopWrites);
+            packet.put(transactionsKey, loopTransactions);
+            packet.put(blockingKey, loopBlockingNanos / 1000);
+        }
+    }
+
+    private static final class AccountingHandler implements InvocationHandler {
+        final Object target;
+        final Counters counters;
+        Object controllerProxy;
+
+        AccountingHandler(Object target, Counters counters) {
+            this.target = target;
+            this.counters = counters;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            // Counted under this device, not as a device of its own
+            if (name.equals("getController") && target instanceof HardwareDevice) {
+                Object controller = method.invoke(target, args);
+                if (!(controller instanceof DcMotorController)) return controller;
+                if (controllerProxy == null) controllerProxy = newProxy(controller, counters);
+                return controllerProxy;
+            }
+
+            if (LOCAL_METHODS.contains(name) || method.getDeclaringClass() == HardwareDevice.class) {
+                return invokeTarget(method, args);
+            }
+
+            long start = System.nanoTime();
+            try {
+                return invokeTarget(method, args);
+            } finally {
+                counters.record(isWrite(name), System.nanoTime() - start);
+            }
+        }
+
+        private Object invokeTarget(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private final HardwareMap delegate;
+    private final FtcDashboard dashboard = FtcDashboard.getInstance();
+
+    private final Counters total = new Counters("Hardware", null);
+    private final List<Counters> hubs = new ArrayList<>();
+    private final Map<LynxModule, Counters> countersByHub = new IdentityHashMap<>();
+    private final List<Counters> devices = new ArrayList<>();
+
+    private final Map<Object, Object> proxiesByDevice = new IdentityHashMap<>();
+    private final Map<Object, Object> devicesByProxy = new IdentityHashMap<>();
+
+    private long lastTelemetryTime = 0;
+
+    private HardwareAccounting(HardwareMap delegate) {
+        super(delegate.appContext);
+        this.delegate = delegate;
+
+        dcMotor = delegate.dcMotor;
+        servo = delegate.servo;
+        crservo = delegate.crservo;
+        voltageSensor = delegate.voltageSensor;
+
+        for (LynxModule hub : delegate.getAll(LynxModule.class)) {
+            Counters counters = new Counters("Hub " + hub.getModuleAddress(), total);
+            hubs.add(counters);
+            countersByHub.put(hub, counters);
+        }
+    }
+
+    /**
+     * Wraps the hardware map if {@link #ENABLED}, otherwise returns it as is. Replace the opmode's
+     * hardwareMap with the result before anything gets its devices.
+     */
+    public static HardwareMap wrap(HardwareMap hardwareMap) {
+        if (!ENABLED || hardwareMap instanceof HardwareAccounting) return hardwareMap;
+        return new HardwareAccounting(hardwareMap);
+    }
+
+    private static boolean isWrite(String methodName) {
+        return methodName.startsWith("set") || methodName.startsWith("reset")
+                || methodName.startsWith("write") || methodName.startsWith("enable")
+                || methodName.startsWith("disable") || methodName.equals("ping");
+    }
+
+    /**
+     * Finds the hub a device is plugged into from its connection info, the same way
+     * {@link HubIoDispatcher} does.
+     */
+    private Counters hubCountersOf(HardwareDevice device) {
+        String connectionInfo = device.getConnectionInfo();
+        for (Map.Entry<LynxModule, Counters> entry : countersByHub.entrySet()) {
+            String hubInfo = entry.getKey().getConnectionInfo();
+            if (connectionInfo.equals(hubInfo) || connectionInfo.startsWith(hubInfo + ";")) {
+                return entry.getValue();
+            }
+        }
+        return total;
+    }
+
+    private synchronized Object wrap(Object device, String name) {
+        Object proxy = proxiesByDevice.get(device);
+        if (proxy != null) return proxy;
+
+        Counters hub = device instanceof HardwareDevice ? hubCountersOf((HardwareDevice) device) : total;
+        Counters counters = new Counters(name, hub);
+        devices.add(counters);
+
+        proxy = newProxy(device, counters);
+        proxiesByDevice.put(device, proxy);
+        devicesByProxy.put(proxy, device);
+        return proxy;
+    }
+
+    private static Object newProxy(Object device, Counters counters) {
+        // Every public interface the device implements, so casts to its other interfaces still work
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> type = device.getClass(); type != null; type = type.getSuperclass()) {
+            collectInterfaces(type, interfaces);
+        }
+        if (interfaces.isEmpty()) return device;
+
+        return Proxy.newProxyInstance(device.getClass().getClassLoader(),
+                interfaces.toArray(new Class<?>[0]), new AccountingHandler(device, counters));
+    }
+
+    private static void collectInterfaces(Class<?> type, Set<Class<?>> interfaces) {
+        for (Class<?> anInterface : type.getInterfaces()) {
+            if (Modifier.isPublic(anInterface.getModifiers())) interfaces.add(anInterface);
+            collectInterfaces(anInterface, interfaces);
+        }
+    }
+
+    private <T> T wrapIfInterface(Class<? extends T> classOrInterface, T device, String name) {
+        if (device == null || !classOrInterface.isInterface()) return device;
+        return classOrInterface.cast(wrap(device, name));
+    }
+
+    @Override
+    public <T> T get(Class<? extends T> classOrInterface, String deviceName) {
+        return wrapIfInterface(classOrInterface, delegate.get(classOrInterface, deviceName), deviceName);
+    }
+
+    @Override
+    public <T> T tryGet(Class<? extends T> classOrInterface, String deviceName) {
+        return wrapIfInterface(classOrInterface, delegate.tryGet(classOrInterface, deviceName), deviceName);
+    }
+
+    @Override
+    public HardwareDevice get(String deviceName) {
+        return wrapIfInterface(HardwareDevice.class, delegate.get(deviceName), deviceName);
+    }
+
+    @Override
+    public <T> List<T> getAll(Class<? extends T> classOrInterface) {
+        List<T> all = delegate.getAll(classOrInterface);
+        if (!classOrInterface.isInterface()) return all;
+
+        List<T> wrapped = new ArrayList<>(all.size());
+        for (T device : all) {
+            Set<String> names = device instanceof HardwareDevice
+                    ? delegate.getNamesOf((HardwareDevice) device) : null;
+            String name = names != null && !names.isEmpty() ? names.iterator().next() : device.toString();
+            wrapped.add(wrapIfInterface(classOrInterface, device, name));
+        }
+        return wrapped;
+    }
+
+    @Override
+    public synchronized Set<String> getNamesOf(HardwareDevice device) {
+        Object unwrapped = devicesByProxy.get(device);
+        return delegate.getNamesOf(unwrapped != null ? (HardwareDevice) unwrapped : device);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public Iterator<HardwareDevice> iterator() {
+        return delegate.iterator();
+    }
+
+    /**
+     * Closes out this loop's counts, and sends them to the dashboard every
+     * {@link #TELEMETRY_INTERVAL_MS}. Call once per loop, after the hub writes are flushed.
+     */
+    public void endLoop() {
+        total.endLoop();
+        for (int i = 0; i < hubs.size(); i++) hubs.get(i).endLoop();
+        for (int i = 0; i < devices.size(); i++) devices.get(i).endLoop();
+
+        long now = System.nanoTime();
+        if ((now - lastTelemetryTime) / 1_000_000 < TELEMETRY_INTERVAL_MS) return;
+        lastTelemetryTime = now;
+
+        TelemetryPacket packet = new TelemetryPacket();
+        total.put(packet);
+        for (int i = 0; i < hubs.size(); i++) hubs.get(i).put(packet);
+        for (int i = 0; i < devices.size(); i++) {
+            Counters device = devices.get(i);
+            // idle devices would only bury the ones doing something
+            if (device.loopReads + device.loopWrites > 0) device.put(packet);
+        }
+        dashboard.sendTelemetryPacket(packet);
+    }
+}
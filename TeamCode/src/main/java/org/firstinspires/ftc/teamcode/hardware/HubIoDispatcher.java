@@ -0,0 +1,222 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.acmerobotics.dashboard.config.Config;
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.HardwareDevice;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs hardware transactions on one worker thread per Lynx hub, so the Control Hub's and the
+ * Expansion Hub's transactions overlap instead of running one after the other.
+ * <p>
+ * Between {@link #beginLoop()} and {@link #flush()}, the caching wrappers hand their writes to
+ * {@link #defer} instead of sending them. The writes are grouped by the hub that owns the
+ * device, and flush() sends each group on its hub's worker at the same time and waits for all
+ * of them. Outside of a loop, or for a device whose hub can't be found, writes are sent right
+ * away like before, so opmodes that never call beginLoop() behave exactly as they used to.
+ * <p>
+ * The workers only run while the calling thread is waiting in flush() or {@link #bulkReadAll()},
+ * so a device is never touched by two threads at once.
+ */
+@Config
+public class HubIoDispatcher {
+    public static boolean ENABLED = true;
+
+    private static class HubWorker {
+        final LynxModule hub;
+        final String connectionInfo;
+        final ExecutorService executor;
+        final List<Runnable> queue = new ArrayList<>();
+        final Runnable drain;
+        final Runnable bulkRead;
+        Future<?> future;
+
+        HubWorker(LynxModule hub) {
+            this.hub = hub;
+            this.connectionInfo = hub.getConnectionInfo();
+            this.executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "HubIo-" + hub.getModuleAddress());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            drain = () -> {
+                try {
+                    for (int i = 0; i < queue.size(); i++) queue.get(i).run();
+                } finally {
+                    queue.clear();
+                }
+            };
+            bulkRead = () -> {
+                hub.clearBulkCache();
+                hub.getBulkData();
+            };
+        }
+    }
+
+    private static volatile HubIoDispatcher active;
+
+    private final HardwareMap hardwareMap;
+    private final List<HubWorker> workers = new ArrayList<>();
+    private final Map<HardwareDevice, HubWorker> workersByDevice = new IdentityHashMap<>();
+
+    private boolean deferring = false;
+
+    private HubIoDispatcher(HardwareMap hardwareMap) {
+        this.hardwareMap = hardwareMap;
+
+        for (LynxModule hub : hardwareMap.getAll(LynxModule.class)) {
+            workers.add(new HubWorker(hub));
+        }
+    }
+
+    /**
+     * Returns the shared dispatcher for this hardware map and makes it the one the caching
+     * wrappers defer to. Anything a previous opmode left deferred without flushing is dropped, so
+     * the new opmode starts out sending its writes right away.
+     */
+    public static synchronized HubIoDispatcher get(HardwareMap hardwareMap) {
+        if (active == null || active.hardwareMap != hardwareMap) {
+            if (active != null) active.shutdown();
+            active = new HubIoDispatcher(hardwareMap);
+        } else {
+            active.reset();
+        }
+        return active;
+    }
+
+    private void reset() {
+        deferring = false;
+        for (HubWorker worker : workers) worker.queue.clear();
+    }
+
+    /**
+     * The dispatcher the wrappers should defer to, or null if there isn't one.
+     */
+    static HubIoDispatcher getActive() {
+        return active;
+    }
+
+    private void shutdown() {
+        for (HubWorker worker : workers) worker.executor.shutdown();
+    }
+
+    /**
+     * Finds the hub a device is plugged into from its connection info, which starts with its
+     * hub's ("...; module 2; port 1").
+     */
+    private HubWorker workerFor(HardwareDevice device) {
+        if (workersByDevice.containsKey(device)) return workersByDevice.get(device);
+
+        HubWorker owner = null;
+        String connectionInfo = device.getConnectionInfo();
+        for (HubWorker worker : workers) {
+            if (connectionInfo.equals(worker.connectionInfo) || connectionInfo.startsWith(worker.connectionInfo + ";")) {
+                owner = worker;
+                break;
+            }
+        }
+
+        workersByDevice.put(device, owner);
+        return owner;
+    }
+
+    /**
+     * The hub the device is plugged into, or null if it isn't on a Lynx hub.
+     */
+    public LynxModule hubOf(HardwareDevice device) {
+        HubWorker worker = workerFor(device);
+        return worker != null ? worker.hub : null;
+    }
+
+    public void beginLoop() {
+        deferring = ENABLED;
+    }
+
+    public boolean isDeferring() {
+        return deferring;
+    }
+
+    /**
+     * Queues a write to the device for the next {@link #flush()}, or runs it now if not in a loop.
+     */
+    public void defer(HardwareDevice device, Runnable write) {
+        HubWorker worker = deferring ? workerFor(device) : null;
+        if (worker == null) {
+            write.run();
+        } else {
+            worker.queue.add(write);
+        }
+    }
+
+    /**
+     * Sends every deferred write, each hub's on its own worker at the same time, and waits for
+     * all of them. Ends the loop.
+     */
+    public void flush() {
+        deferring = false;
+
+        int busy = 0;
+        for (HubWorker worker : workers) if (!worker.queue.isEmpty()) busy++;
+
+        // no point handing off to a worker if only one hub has anything to do
+        for (HubWorker worker : workers) {
+            if (worker.queue.isEmpty()) continue;
+            if (busy == 1) worker.drain.run();
+            else worker.future = worker.executor.submit(worker.drain);
+        }
+        if (busy > 1) join();
+    }
+
+    /**
+     * Clears and refills every hub's bulk cache, all at the same time. Blocks until every hub's
+     * read is back.
+     */
+    public void bulkReadAll() {
+        if (!ENABLED || workers.size() == 1) {
+            for (HubWorker worker : workers) worker.bulkRead.run();
+            return;
+        }
+
+        for (HubWorker worker : workers) worker.future = worker.executor.submit(worker.bulkRead);
+        join();
+    }
+
+    /**
+     * Waits for every worker's task, even if interrupted, since the workers are still touching the
+     * hubs until then. The interrupt is passed on once they're all done, and the first failure is
+     * rethrown.
+     */
+    private void join() {
+        boolean interrupted = false;
+        Throwable failure = null;
+
+        for (HubWorker worker : workers) {
+            if (worker.future == null) continue;
+            while (true) {
+                try {
+                    worker.future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (failure == null) failure = e.getCause();
+                    break;
+                }
+            }
+            worker.future = null;
+        }
+
+        if (interrupted) Thread.currentThread().interrupt();
+        if (failure != null) throw new RuntimeException(failure);
+    }
+}
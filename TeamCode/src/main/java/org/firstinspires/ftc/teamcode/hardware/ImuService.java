@@ -0,0 +1,163 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.acmerobotics.dashboard.config.Config;
+import com.qualcomm.hardware.bosch.BNO055IMU;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.AngularVelocity;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesReference;
+
+/**
+ * Reads the BNO055 on its own thread so the multi-millisecond I2C reads never block the loop.
+ * <p>
+ * The latest sample is published through a volatile reference to an immutable {@link Sample}, so
+ * readers never block or see a half written sample. The thread stops by itself once nobody has
+ * read a sample for {@link #IDLE_TIMEOUT_MS}, which is how it ends with the opmode, and starts
+ * again on the next {@link #get} or {@link #getLatest}, so a long init doesn't leave it stopped.
+ * <p>
+ * The BNO055 is only initialized when the service is created, not again for each opmode, so the
+ * heading isn't zeroed at every init anymore. Anything that wants it relative to the pose at init
+ * takes the heading then as its offset.
+ */
+@Config
+public class ImuService {
+    public static long POLL_PERIOD_MS = 10;
+    public static long MAX_SAMPLE_AGE_MS = 50;
+    public static long IDLE_TIMEOUT_MS = 2000;
+
+    public static final class Sample {
+        /**
+         * Radians, intrinsic ZYX first angle, the same as the drive used to read.
+         */
+        public final double heading;
+        /**
+         * Radians per second about each of the hub's axes.
+         */
+        public final double xRotationRate, yRotationRate, zRotationRate;
+        /**
+         * System.nanoTime() halfway through the read.
+         */
+        public final long captureNanos;
+
+        Sample(double heading, double xRotationRate, double yRotationRate, double zRotationRate, long captureNanos) {
+            this.heading = heading;
+            this.xRotationRate = xRotationRate;
+            this.yRotationRate = yRotationRate;
+            this.zRotationRate = zRotationRate;
+            this.captureNanos = captureNanos;
+        }
+
+        public double ageMillis() {
+            return (System.nanoTime() - captureNanos) / 1e6;
+        }
+    }
+
+    private static ImuService instance;
+
+    private final BNO055IMU imu;
+
+    private volatile Sample latest;
+    private volatile long lastReadNanos;
+    private volatile boolean warnedStale = false;
+    //Cleared by the thread itself when it stops, so readers can tell it needs restarting
+    private volatile Thread thread;
+
+    private ImuService(BNO055IMU imu) {
+        this.imu = imu;
+
+        BNO055IMU.Parameters parameters = new BNO055IMU.Parameters();
+        parameters.angleUnit = BNO055IMU.AngleUnit.RADIANS;
+        imu.initialize(parameters);
+
+        // one read up front so there's always a sample
+        latest = read();
+    }
+
+    /**
+     * Returns the shared service for the "imu" in this hardware map, starting its thread if needed.
+     */
+    public static synchronized ImuService get(HardwareMap hardwareMap) {
+        BNO055IMU imu = hardwareMap.get(BNO055IMU.class, "imu");
+        if (instance == null || instance.imu != imu) {
+            if (instance != null) instance.stop();
+            instance = new ImuService(imu);
+        }
+        instance.start();
+        return instance;
+    }
+
+    private synchronized void start() {
+        lastReadNanos = System.nanoTime();
+        if (thread != null && thread.isAlive()) return;
+
+        thread = new Thread(this::run, "ImuService");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if (thread != null) thread.interrupt();
+        thread = null;
+    }
+
+    private Sample read() {
+        long start = System.nanoTime();
+        double heading = imu.getAngularOrientation(AxesReference.INTRINSIC, AxesOrder.ZYX, AngleUnit.RADIANS).firstAngle;
+        AngularVelocity rates = imu.getAngularVelocity().toAngleUnit(AngleUnit.RADIANS);
+        long end = System.nanoTime();
+
+        return new Sample(heading, rates.xRotationRate, rates.yRotationRate, rates.zRotationRate, start + (end - start) / 2);
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if ((System.nanoTime() - lastReadNanos) / 1_000_000 > IDLE_TIMEOUT_MS) break;
+
+                long start = System.nanoTime();
+                latest = read();
+
+                long sleepMillis = POLL_PERIOD_MS - (System.nanoTime() - start) / 1_000_000;
+                if (sleepMillis > 0) {
+                    try {
+                        Thread.sleep(sleepMillis);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            synchronized (this) {
+                if (thread == Thread.currentThread()) thread = null;
+            }
+        }
+    }
+
+    /**
+     * Latest sample, without blocking. Logs a warning the first time it's older than
+     * {@link #MAX_SAMPLE_AGE_MS} (until it's fresh again). Restarts the thread if it went idle, the
+     * sample returned then is the one from before it stopped.
+     */
+    public Sample getLatest() {
+        lastReadNanos = System.nanoTime();
+        if (thread == null) start();
+        Sample sample = latest;
+
+        if (sample.ageMillis() > MAX_SAMPLE_AGE_MS) {
+            if (!warnedStale) {
+                RobotLog.ww("ImuService", "IMU sample is %.1fms old", sample.ageMillis());
+                warnedStale = true;
+            }
+        } else {
+            warnedStale = false;
+        }
+        return sample;
+    }
+
+    public boolean isStale() {
+        return latest.ageMillis() > MAX_SAMPLE_AGE_MS;
+    }
+}
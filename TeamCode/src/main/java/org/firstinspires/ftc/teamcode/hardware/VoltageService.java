@@ -0,0 +1,110 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.acmerobotics.dashboard.config.Config;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.hardware.VoltageSensor;
+
+/**
+ * Samples the battery voltage on its own thread at a low rate and low pass filters it, so power
+ * can be rescaled for the battery every loop without a voltage read in the loop.
+ * <p>
+ * Like {@link ImuService}, the filtered voltage is published through a volatile field, the
+ * thread stops once nobody has read it for {@link #IDLE_TIMEOUT_MS}, and it starts again on the
+ * next {@link #get} or {@link #getVoltage}.
+ */
+@Config
+public class VoltageService {
+    public static long SAMPLE_PERIOD_MS = 100;
+    public static double FILTER_TIME_CONSTANT = 1.0; // s
+    public static double NOMINAL_VOLTAGE = 12.0;
+    public static long IDLE_TIMEOUT_MS = 2000;
+
+    private static VoltageService instance;
+
+    private final VoltageSensor sensor;
+
+    private volatile double voltage;
+    private volatile long lastReadNanos;
+    //Cleared by the thread itself when it stops, so readers can tell it needs restarting
+    private volatile Thread thread;
+
+    private VoltageService(VoltageSensor sensor) {
+        this.sensor = sensor;
+
+        // start the filter at the first reading rather than ramping up from 0
+        voltage = sensor.getVoltage();
+    }
+
+    /**
+     * Returns the shared service for the first voltage sensor in this hardware map, starting its
+     * thread if needed.
+     */
+    public static synchronized VoltageService get(HardwareMap hardwareMap) {
+        VoltageSensor sensor = hardwareMap.voltageSensor.iterator().next();
+        if (instance == null || instance.sensor != sensor) {
+            if (instance != null) instance.stop();
+            instance = new VoltageService(sensor);
+        }
+        instance.start();
+        return instance;
+    }
+
+    private synchronized void start() {
+        lastReadNanos = System.nanoTime();
+        if (thread != null && thread.isAlive()) return;
+
+        thread = new Thread(this::run, "VoltageService");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if (thread != null) thread.interrupt();
+        thread = null;
+    }
+
+    private void run() {
+        long lastSampleNanos = System.nanoTime();
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if ((System.nanoTime() - lastReadNanos) / 1_000_000 > IDLE_TIMEOUT_MS) break;
+
+                try {
+                    Thread.sleep(SAMPLE_PERIOD_MS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+
+                double reading = sensor.getVoltage();
+                long now = System.nanoTime();
+                double dt = (now - lastSampleNanos) / 1e9;
+                lastSampleNanos = now;
+
+                // first order low pass, the motors pull the voltage down in short spikes
+                double alpha = dt / (FILTER_TIME_CONSTANT + dt);
+                voltage = voltage + alpha * (reading - voltage);
+            }
+        } finally {
+            synchronized (this) {
+                if (thread == Thread.currentThread()) thread = null;
+            }
+        }
+    }
+
+    /**
+     * Filtered battery voltage, without blocking. Restarts the thread if it went idle.
+     */
+    public double getVoltage() {
+        lastReadNanos = System.nanoTime();
+        if (thread == null) start();
+        return voltage;
+    }
+
+    /**
+     * What to multiply a power tuned at {@link #NOMINAL_VOLTAGE} by to get the same output now.
+     */
+    public double getCompensation() {
+        return NOMINAL_VOLTAGE / getVoltage();
+    }
+}
@@ -0,0 +1,46 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.acmerobotics.dashboard.config.Config;
+
+/**
+ * Tunables and counters shared by the caching hardware wrappers.
+ * <p>
+ * Every motor power or servo position write is its own Lynx transaction (~2ms), so the wrappers
+ * skip writes that are within an epsilon of the last value actually sent.
+ */
+@Config
+public class WriteCache {
+    public static boolean ENABLED = true;
+
+    public static double MOTOR_POWER_EPSILON = 0.005;
+    public static double SERVO_POSITION_EPSILON = 0.001;
+    public static double CR_SERVO_POWER_EPSILON = 0.005;
+
+    private static long savedWrites = 0;
+
+    /**
+     * @param hasLast False until the first write, or after anything that may have changed the
+     *                output behind the cache's back.
+     * @return Whether the new value has to be sent.
+     */
+    static boolean shouldWrite(boolean hasLast, double last, double value, double epsilon) {
+        // always send an exact stop, even if the last value was within epsilon of it
+        if (!ENABLED || !hasLast || (value == 0.0 && last != 0.0) || Math.abs(value - last) > epsilon) {
+            return true;
+        }
+
+        savedWrites++;
+        return false;
+    }
+
+    /**
+     * Writes skipped by every wrapper since the last reset.
+     */
+    public static long getSavedWrites() {
+        return savedWrites;
+    }
+
+    public static void resetSavedWrites() {
+        savedWrites = 0;
+    }
+}
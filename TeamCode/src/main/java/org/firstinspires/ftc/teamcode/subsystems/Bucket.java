@@ -4,6 +4,8 @@ import com.arcrobotics.ftclib.command.SubsystemBase;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 import com.qualcomm.robotcore.hardware.Servo;
 
+import org.firstinspires.ftc.teamcode.hardware.CachingServo;
+
 public class Bucket extends SubsystemBase {
 
     private final Servo servo;
@@ -12,7 +14,7 @@ public class Bucket extends SubsystemBase {
     private final double closePosition = 0.52;
 
     public Bucket(HardwareMap hardwareMap){
-        servo = hardwareMap.get(Servo.class, "bucketServo");
+        servo = new CachingServo(hardwareMap.get(Servo.class, "bucketServo"));
         open();
     }
 
@@ -5,6 +5,9 @@ import com.qualcomm.robotcore.hardware.CRServo;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 import com.qualcomm.robotcore.hardware.Servo;
 
+import org.firstinspires.ftc.teamcode.hardware.CachingCRServo;
+import org.firstinspires.ftc.teamcode.hardware.CachingServo;
+
 public class CappingMech extends SubsystemBase {
 
 
@@ -14,8 +17,8 @@ public class CappingMech extends SubsystemBase {
     private double position = 0.9;
 
     public CappingMech(HardwareMap hardwareMap){
-        servo = hardwareMap.get(Servo.class, "cappingServo");
-        crServo = hardwareMap.get(CRServo.class, "cappingCRServo");
+        servo = new CachingServo(hardwareMap.get(Servo.class, "cappingServo"));
+        crServo = new CachingCRServo(hardwareMap.get(CRServo.class, "cappingCRServo"));
         servo.setPosition(position);
     }
 
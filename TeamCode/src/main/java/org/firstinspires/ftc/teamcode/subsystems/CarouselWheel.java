@@ -2,16 +2,21 @@ package org.firstinspires.ftc.teamcode.subsystems;
 
 import com.arcrobotics.ftclib.command.SubsystemBase;
 import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
 import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.util.Range;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.teamcode.hardware.CachingDcMotorEx;
+import org.firstinspires.ftc.teamcode.hardware.VoltageService;
 
 public class CarouselWheel extends SubsystemBase {
 
 
     private final DcMotor wheelMotor;
     private final Telemetry telemetry;
+    private final VoltageService batteryVoltage;
     private boolean clockwise = true;
 
     public CarouselWheel(HardwareMap hardwareMap){
@@ -21,8 +26,9 @@ public class CarouselWheel extends SubsystemBase {
     public CarouselWheel(HardwareMap hardwareMap, Telemetry telemetry){
 
         this.telemetry = telemetry;
-        wheelMotor = hardwareMap.get(DcMotor.class, "carouselMotor");
+        wheelMotor = new CachingDcMotorEx(hardwareMap.get(DcMotorEx.class, "carouselMotor"));
         wheelMotor.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+        batteryVoltage = VoltageService.get(hardwareMap);
     }
 
 
@@ -36,11 +42,13 @@ public class CarouselWheel extends SubsystemBase {
 
 
     /**
-     * Turns the wheel the direction it's currently set to
-     * @param power The power to set the motor to
+     * Turns the wheel the direction it's currently set to, rescaled for the battery voltage so
+     * the ducks spin off at the same speed all match
+     * @param power The power to set the motor to, at nominal voltage
      */
     public void setWheelPower(double power){
-        wheelMotor.setPower((clockwise) ? power : -power);
+        double compensatedPower = Range.clip(power * batteryVoltage.getCompensation(), -1, 1);
+        wheelMotor.setPower((clockwise) ? compensatedPower : -compensatedPower);
     }
 
     public void setDirection(boolean clockwise){
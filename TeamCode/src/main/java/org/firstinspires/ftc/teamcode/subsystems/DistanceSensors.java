@@ -6,10 +6,12 @@ import com.qualcomm.robotcore.hardware.HardwareMap;
 import com.qualcomm.robotcore.util.ElapsedTime;
 
 import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.teamcode.util.FixedRateScheduler;
 import org.firstinspires.ftc.teamcode.util.MB1242;
+import org.firstinspires.ftc.teamcode.util.MB1242Ranger;
 import org.outoftheboxrobotics.neutrinoi2c.Rev2mDistanceSensor.AsyncRev2MSensor;
 
-public class DistanceSensors extends SubsystemBase {
+public class DistanceSensors extends SubsystemBase implements FixedRateScheduler.Tiered {
 
     //forward sensors
     private final MB1242 forwardSensor;
@@ -17,6 +19,10 @@ public class DistanceSensors extends SubsystemBase {
     //The TOF Distance sensor on the sides.
     private final AsyncRev2MSensor leftSensor;
 
+    //Pings the forward and backward sensors in turns in the background
+    private final MB1242Ranger ranger;
+    private static final int FORWARD = 0, BACKWARD = 1;
+
     //Debugging rate timer
     private final ElapsedTime cycleTimer = new ElapsedTime(ElapsedTime.Resolution.MILLISECONDS);
     private double cycleTime = 0.0;
@@ -32,14 +38,24 @@ public class DistanceSensors extends SubsystemBase {
 
         leftSensor.setMeasurementIntervalMs(60);
 
+        ranger = new MB1242Ranger(forwardSensor, backwardSensor);
+
 //        disableAll();
         cycleTimer.reset();
 
     }
 
-    public void pingAll(){
-        forwardSensor.ping();
-        backwardSensor.ping();
+    /**
+     * Starts ranging the forward and backward sensors continuously in the background. Ranging
+     * pauses by itself a while after the ranges stop being read and resumes on the next read,
+     * until {@link #stopRanging()}.
+     */
+    public void startRanging(){
+        ranger.start();
+    }
+
+    public void stopRanging(){
+        ranger.stop();
     }
 
 //    public void enableAll(){
@@ -66,12 +82,27 @@ public class DistanceSensors extends SubsystemBase {
         return unit.fromCm(leftSensor.getDistance(DistanceUnit.CM));
     }
 
+    //Latest forward/backward ranges, these never block. Call startRanging() first.
     public double getForwardRange(DistanceUnit unit) {
-        return unit.fromCm(forwardSensor.getDistance(DistanceUnit.CM));
+        return getForwardReading().getDistance(unit);
     }
 
     public double getBackwardRange(DistanceUnit unit) {
-        return unit.fromCm(backwardSensor.getDistance(DistanceUnit.CM));
+        return getBackwardReading().getDistance(unit);
+    }
+
+    public MB1242Ranger.Range getForwardReading() {
+        return ranger.getRange(FORWARD);
+    }
+
+    public MB1242Ranger.Range getBackwardReading() {
+        return ranger.getRange(BACKWARD);
+    }
+
+    //The ranges only update every ~100ms, so there's no point running this every tick
+    @Override
+    public FixedRateScheduler.Tier getTier() {
+        return FixedRateScheduler.Tier.SENSORS;
     }
 
     /**
@@ -81,12 +112,11 @@ public class DistanceSensors extends SubsystemBase {
         return cycleTime;
     }
 
-    //Tests the sensor by running a range command and seeing if there's an output, takes at least 100ms
+    //Tests the sensors by checking the latest ranges for an output, false until both ultrasonics have ranged once
     public boolean test() {
-        ElapsedTime timer = new ElapsedTime();
-        while (timer.milliseconds() < 80) ;
-        return forwardSensor.getDistance(DistanceUnit.CM) > 20 || //20cm is the minimum range, so we test with it
+        startRanging();
+        return getForwardRange(DistanceUnit.CM) > 20 || //20cm is the minimum range, so we test with it
                 leftSensor.getDistance(DistanceUnit.CM) > 3 ||
-                backwardSensor.getDistance(DistanceUnit.CM) > 20;
+                getBackwardRange(DistanceUnit.CM) > 20;
     }
 }
@@ -9,6 +9,8 @@ import com.qualcomm.robotcore.hardware.HardwareMap;
 import com.qualcomm.robotcore.hardware.Servo;
 
 import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.teamcode.hardware.CachingDcMotorEx;
+import org.firstinspires.ftc.teamcode.hardware.CachingServo;
 import org.firstinspires.ftc.teamcode.subsystems.interfaces.IntakeSide;
 
 public class LeftIntake extends SubsystemBase implements IntakeSide {
@@ -20,16 +22,33 @@ public class LeftIntake extends SubsystemBase implements IntakeSide {
     public boolean up = true;
 
     public LeftIntake(HardwareMap hardwareMap){
-        intakeMotor = hardwareMap.get(DcMotorEx.class, "leftIntakeMotor");
-        intakeMotor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        intakeMotor.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        this(hardwareMap, true);
+    }
+
+    /**
+     * @param setUpMotor Whether to run {@link #setUpMotor()} now, otherwise the caller has to
+     *                   before using the intake.
+     */
+    public LeftIntake(HardwareMap hardwareMap, boolean setUpMotor){
+        intakeMotor = new CachingDcMotorEx(hardwareMap.get(DcMotorEx.class, "leftIntakeMotor"));
         intakeMotor.setDirection(DcMotorSimple.Direction.REVERSE);
-        intakeMotor.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.FLOAT);
-        armServo = hardwareMap.get(Servo.class, "leftIntakeArm");
+        if (setUpMotor) setUpMotor();
+        armServo = new CachingServo(hardwareMap.get(Servo.class, "leftIntakeArm"));
 //        intakeSensor = hardwareMap.get(Rev2mDistanceSensor.class, "leftIntakeSensor");
         intakeUp();
     }
 
+    /**
+     * Resets the intake motor's encoder and sets its run mode and zero power behavior. These are
+     * hub transactions, so the autos build the subsystem without them and run this on the init
+     * pool instead.
+     */
+    public void setUpMotor(){
+        intakeMotor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        intakeMotor.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        intakeMotor.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.FLOAT);
+    }
+
     @Override//                        //cycle 4
 //                        new WaitCommand(100),
 //                        dropFreight,
@@ -5,6 +5,11 @@ import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
 import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.util.Range;
+
+import org.firstinspires.ftc.teamcode.hardware.CachingDcMotorEx;
+import org.firstinspires.ftc.teamcode.hardware.VoltageService;
+import org.firstinspires.ftc.teamcode.util.VelocityEstimator;
 
 public class Lift extends SubsystemBase {
 
@@ -21,13 +26,33 @@ public class Lift extends SubsystemBase {
     }
 
     private final DcMotorEx liftMotor;
+    private final VoltageService batteryVoltage;
+    private final VelocityEstimator velocityEstimator = new VelocityEstimator();
 
     public Lift(HardwareMap hardwareMap) {
+        this(hardwareMap, true);
+    }
+
+    /**
+     * @param setUpMotor Whether to run {@link #setUpMotor()} now, otherwise the caller has to
+     *                   before using the lift.
+     */
+    public Lift(HardwareMap hardwareMap, boolean setUpMotor) {
 
-        liftMotor = hardwareMap.get(DcMotorEx.class, "liftMotor");
+        liftMotor = new CachingDcMotorEx(hardwareMap.get(DcMotorEx.class, "liftMotor"));
 
         liftMotor.setDirection(DcMotorSimple.Direction.REVERSE);
 
+        if (setUpMotor) setUpMotor();
+
+        batteryVoltage = VoltageService.get(hardwareMap);
+    }
+
+    /**
+     * Resets the lift encoder, so the current height is the bottom, and sets the motor's run mode
+     * and zero power behavior. Hub transactions, the autos run this on the init pool.
+     */
+    public void setUpMotor() {
         liftMotor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
         liftMotor.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
 
@@ -37,12 +62,21 @@ public class Lift extends SubsystemBase {
     @Override
     public void periodic(){
         //happens every loop
+        velocityEstimator.addSample(System.nanoTime() / 1e9, liftMotor.getCurrentPosition());
     }
 
     public void setLiftPower(double power){
         liftMotor.setPower(power);
     }
 
+    /**
+     * Sets the power rescaled for the battery, so the same power gives the same output at any
+     * voltage.
+     */
+    public void setCompensatedLiftPower(double power){
+        liftMotor.setPower(Range.clip(power * batteryVoltage.getCompensation(), -1, 1));
+    }
+
     public void stop(){
         liftMotor.setPower(0);
     }
@@ -51,9 +85,21 @@ public class Lift extends SubsystemBase {
         return liftMotor.getCurrentPosition();
     }
 
+    /**
+     * Ticks per second, fitted from the positions read each loop.
+     */
+    public double getLiftVelocity(){
+        return velocityEstimator.getVelocity();
+    }
+
+    public double getLiftAcceleration(){
+        return velocityEstimator.getAcceleration();
+    }
+
     public void resetLiftPosition(){
         liftMotor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER); //SDK will automatically switch back to regular mode
         liftMotor.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        velocityEstimator.reset();
     }
 
     public boolean atUpperLimit(){
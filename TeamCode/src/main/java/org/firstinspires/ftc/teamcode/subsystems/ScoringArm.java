@@ -6,10 +6,12 @@ import com.qualcomm.robotcore.hardware.PwmControl;
 import com.qualcomm.robotcore.hardware.Servo;
 import com.qualcomm.robotcore.hardware.ServoImplEx;
 
+import org.firstinspires.ftc.teamcode.hardware.CachingServo;
+
 public class ScoringArm extends SubsystemBase {
 
 
-    private final ServoImplEx servo;
+    private final Servo servo;
 
 
     private final double loadPosition = 0.99;
@@ -18,8 +20,9 @@ public class ScoringArm extends SubsystemBase {
     public boolean loading = true;
 
     public ScoringArm(HardwareMap hardwareMap){
-        servo = hardwareMap.get(ServoImplEx.class, "scoringArmServo");
-        servo.setPwmRange(new PwmControl.PwmRange(500, 2500));
+        ServoImplEx servoImpl = hardwareMap.get(ServoImplEx.class, "scoringArmServo");
+        servoImpl.setPwmRange(new PwmControl.PwmRange(500, 2500));
+        servo = new CachingServo(servoImpl);
         loadingPosition();
     }
 
@@ -11,22 +11,22 @@ import com.arcrobotics.ftclib.command.PerpetualCommand;
 import com.arcrobotics.ftclib.command.button.Trigger;
 import com.arcrobotics.ftclib.gamepad.GamepadEx;
 import com.arcrobotics.ftclib.gamepad.GamepadKeys;
-import com.qualcomm.hardware.bosch.BNO055IMU;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
 
 import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
-import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
-import org.firstinspires.ftc.robotcore.external.navigation.AxesReference;
-import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
 import org.firstinspires.ftc.teamcode.commands.BulkCacheCommand;
 import org.firstinspires.ftc.teamcode.commands.ManualLiftCommand;
 import org.firstinspires.ftc.teamcode.commands.ManualLiftResetCommand;
 import org.firstinspires.ftc.teamcode.commands.MoveLiftToLoadingPositionCommand;
 import org.firstinspires.ftc.teamcode.commands.MoveLiftToMidScoringPositionCommand;
 import org.firstinspires.ftc.teamcode.commands.MoveLiftToScoringPositionCommand;
+import org.firstinspires.ftc.teamcode.hardware.CachingDcMotorEx;
+import org.firstinspires.ftc.teamcode.hardware.HardwareAccounting;
+import org.firstinspires.ftc.teamcode.hardware.HubIoDispatcher;
+import org.firstinspires.ftc.teamcode.hardware.ImuService;
 import org.firstinspires.ftc.teamcode.subsystems.Bucket;
 import org.firstinspires.ftc.teamcode.subsystems.CappingMech;
 import org.firstinspires.ftc.teamcode.subsystems.CarouselWheel;
@@ -40,7 +40,9 @@ import org.firstinspires.ftc.teamcode.util.Extensions;
 public class CheeseTeleOp extends CommandOpMode {
 
     private DcMotorEx rightFront, leftFront, rightBack, leftBack;
-    private BNO055IMU imu;
+    private ImuService imu;
+    private HubIoDispatcher io;
+    private HardwareAccounting accounting;
     private ScoringArm scoringArm;
     private Bucket bucket;
     private LeftIntake leftIntake;
@@ -63,13 +65,15 @@ public class CheeseTeleOp extends CommandOpMode {
     // Starting items and continuous event running
     @Override
     public void initialize() {
+        // Count hardware calls per device when HardwareAccounting.ENABLED is on
+        hardwareMap = HardwareAccounting.wrap(hardwareMap);
+        if (hardwareMap instanceof HardwareAccounting) accounting = (HardwareAccounting) hardwareMap;
 
         schedule(new BulkCacheCommand(hardwareMap));
 
         // Object declarations
         GamepadEx driver = new GamepadEx(gamepad1);
         GamepadEx manipulator = new GamepadEx(gamepad2);
-        BNO055IMU.Parameters parameters = new BNO055IMU.Parameters();
 
         scoringArm = new ScoringArm(hardwareMap);
         bucket = new Bucket(hardwareMap);
@@ -81,11 +85,14 @@ public class CheeseTeleOp extends CommandOpMode {
 
 
         // Motors and Other Stuff
-        rightFront = hardwareMap.get(DcMotorEx.class, "rf");
-        leftFront = hardwareMap.get(DcMotorEx.class, "lf ");
-        rightBack = hardwareMap.get(DcMotorEx.class, "rb");
-        leftBack = hardwareMap.get(DcMotorEx.class, "lb");
-        imu = hardwareMap.get(BNO055IMU.class, "imu");
+        rightFront = new CachingDcMotorEx(hardwareMap.get(DcMotorEx.class, "rf"));
+        leftFront = new CachingDcMotorEx(hardwareMap.get(DcMotorEx.class, "lf "));
+        rightBack = new CachingDcMotorEx(hardwareMap.get(DcMotorEx.class, "rb"));
+        leftBack = new CachingDcMotorEx(hardwareMap.get(DcMotorEx.class, "lb"));
+        imu = ImuService.get(hardwareMap);
+        io = HubIoDispatcher.get(hardwareMap);
+        //The IMU isn't reinitialized for every opmode anymore, so zero the heading here like that used to
+        offset = imu.getLatest().heading;
 
         // Behaviors
         leftFront.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
@@ -96,8 +103,6 @@ public class CheeseTeleOp extends CommandOpMode {
         leftFront.setDirection(DcMotorSimple.Direction.REVERSE);
         leftBack.setDirection(DcMotorSimple.Direction.REVERSE);
 
-        imu.initialize(parameters);
-
 
         telemetry.addLine("Ready to start!");
         telemetry.update();
@@ -224,13 +229,14 @@ public class CheeseTeleOp extends CommandOpMode {
     // What will run continuously while running
     @Override
     public void run() {
+        //Queue this loop's writes and send them per hub at the end
+        io.beginLoop();
         super.run();
 
-        Orientation orientation = imu.getAngularOrientation(AxesReference.INTRINSIC, AxesOrder.ZYX, AngleUnit.RADIANS);
 
 
         //Add the angle offset to be able to reset the 0 heading, and normalize it back to -pi to pi
-        double heading = AngleUnit.normalizeRadians(orientation.firstAngle - offset);
+        double heading = AngleUnit.normalizeRadians(imu.getLatest().heading - offset);
 
         //If reset, set offset to the current ange
         //If we need to reset our zero angle, increment the offset with the current heading to do so
@@ -264,6 +270,8 @@ public class CheeseTeleOp extends CommandOpMode {
         rightFront.setPower((ly - lx - rx) / normalize * powerMultiplier);
         rightBack.setPower((ly + lx - rx) / normalize * powerMultiplier);
 
+        io.flush();
+        if (accounting != null) accounting.endLoop();
 
         telemetry.update();
     }
@@ -10,7 +10,6 @@ import com.arcrobotics.ftclib.command.PerpetualCommand
 import com.arcrobotics.ftclib.command.button.Trigger
 import com.arcrobotics.ftclib.gamepad.GamepadEx
 import com.arcrobotics.ftclib.gamepad.GamepadKeys
-import com.qualcomm.hardware.bosch.BNO055IMU
 import com.qualcomm.robotcore.eventloop.opmode.Disabled
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp
 import com.qualcomm.robotcore.hardware.DcMotor
@@ -22,10 +21,9 @@ import com.qualcomm.robotcore.util.ElapsedTime
 import com.qualcomm.robotcore.util.Range
 import org.firstinspires.ftc.robotcore.external.Telemetry
 import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit
-import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder
-import org.firstinspires.ftc.robotcore.external.navigation.AxesReference
 import org.firstinspires.ftc.teamcode.commands.*
 import org.firstinspires.ftc.teamcode.drive.DriveConstants
+import org.firstinspires.ftc.teamcode.hardware.ImuService
 import org.firstinspires.ftc.teamcode.subsystems.*
 import org.firstinspires.ftc.teamcode.util.Extensions
 import org.firstinspires.ftc.teamcode.util.Extensions.Companion.cubeInput
@@ -55,7 +53,7 @@ class MecTeleOp : CommandOpMode() {
     private lateinit var leftBack: DcMotorEx
     private lateinit var rightFront: DcMotorEx
     private lateinit var rightBack: DcMotorEx
-    private lateinit var imu: BNO055IMU
+    private lateinit var imu: ImuService
     var offset = 0.0
     var prevSlowState = false
 
@@ -69,9 +67,6 @@ class MecTeleOp : CommandOpMode() {
 
     override fun initialize() {
 
-        offset = Extensions.HEADING_SAVER
-
-
         //Extension functions pog see Extensions.kt in util package
         telemetry.sendLine("Initializing Subsystems...")
 
@@ -157,10 +152,9 @@ class MecTeleOp : CommandOpMode() {
 
         telemetry.sendLine("Initializing IMU...")
 
-        imu = hardwareMap.get(BNO055IMU::class.java, "imu")
-        val parameters = BNO055IMU.Parameters()
-        parameters.angleUnit = BNO055IMU.AngleUnit.RADIANS
-        imu.initialize(parameters)
+        imu = ImuService.get(hardwareMap)
+        //The IMU isn't reinitialized for every opmode anymore, so zero the heading here like that used to
+        offset = Extensions.HEADING_SAVER + imu.latest.heading
 
         telemetry.sendLine("Ready for start!")
     }
@@ -260,7 +254,7 @@ class MecTeleOp : CommandOpMode() {
 
     //Gets the robot angle in -pi to pi from the imu,
     private fun getRobotAngle(): Double {
-        var angle: Double = imu.getAngularOrientation(AxesReference.INTRINSIC, AxesOrder.ZYX, AngleUnit.RADIANS).firstAngle.toDouble()
+        var angle: Double = imu.latest.heading
         angle = AngleUnit.normalizeRadians(angle - offset)
         return angle
     }
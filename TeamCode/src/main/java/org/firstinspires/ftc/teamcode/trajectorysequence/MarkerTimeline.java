@@ -0,0 +1,100 @@
+package org.firstinspires.ftc.teamcode.trajectorysequence;
+
+import com.acmerobotics.roadrunner.trajectory.MarkerCallback;
+import com.acmerobotics.roadrunner.trajectory.Trajectory;
+import com.acmerobotics.roadrunner.trajectory.TrajectoryMarker;
+
+import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.SequenceSegment;
+import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.TrajectorySegment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Every marker of a sequence flattened into time sorted primitive arrays, grouped by segment.
+ * <p>
+ * Markers of segment i live at indices [getStart(i), getEnd(i)) with times relative to the start
+ * of that segment, so the runner only has to move a cursor forward while following.
+ * <p>
+ * Trajectory markers are moved here as well, and the trajectories handed to the follower are
+ * copies without markers so that every callback is fired by the runner.
+ */
+public class MarkerTimeline {
+    private final double[] times;
+    private final MarkerCallback[] callbacks;
+    private final int[] segmentStarts;
+
+    private final Trajectory[] unmarkedTrajectories;
+
+    public MarkerTimeline(List<SequenceSegment> segments) {
+        List<TrajectoryMarker> allMarkers = new ArrayList<>();
+        segmentStarts = new int[segments.size() + 1];
+        unmarkedTrajectories = new Trajectory[segments.size()];
+
+        for (int i = 0; i < segments.size(); i++) {
+            SequenceSegment segment = segments.get(i);
+            List<TrajectoryMarker> segmentMarkers;
+
+            if (segment instanceof TrajectorySegment) {
+                Trajectory trajectory = ((TrajectorySegment) segment).getTrajectory();
+                segmentMarkers = new ArrayList<>(trajectory.getMarkers());
+
+                unmarkedTrajectories[i] = segmentMarkers.isEmpty() ? trajectory :
+                        new Trajectory(trajectory.getPath(), trajectory.getProfile(), Collections.emptyList());
+            } else {
+                segmentMarkers = new ArrayList<>(segment.getMarkers());
+            }
+
+            Collections.sort(segmentMarkers, (t1, t2) -> Double.compare(t1.getTime(), t2.getTime()));
+
+            segmentStarts[i] = allMarkers.size();
+            allMarkers.addAll(segmentMarkers);
+        }
+
+        segmentStarts[segments.size()] = allMarkers.size();
+
+        times = new double[allMarkers.size()];
+        callbacks = new MarkerCallback[allMarkers.size()];
+        for (int i = 0; i < allMarkers.size(); i++) {
+            times[i] = allMarkers.get(i).getTime();
+            callbacks[i] = allMarkers.get(i).getCallback();
+        }
+    }
+
+    /**
+     * Index of the first marker of the segment.
+     */
+    public int getStart(int segmentIndex) {
+        return segmentStarts[segmentIndex];
+    }
+
+    /**
+     * Index after the last marker of the segment.
+     */
+    public int getEnd(int segmentIndex) {
+        return segmentStarts[segmentIndex + 1];
+    }
+
+    /**
+     * Time of the marker relative to the start of its segment.
+     */
+    public double getTime(int markerIndex) {
+        return times[markerIndex];
+    }
+
+    public MarkerCallback getCallback(int markerIndex) {
+        return callbacks[markerIndex];
+    }
+
+    public int size() {
+        return times.length;
+    }
+
+    /**
+     * The trajectory of a trajectory segment without its markers, or null for other segments.
+     */
+    public Trajectory getUnmarkedTrajectory(int segmentIndex) {
+        return unmarkedTrajectories[segmentIndex];
+    }
+}
@@ -0,0 +1,32 @@
+package org.firstinspires.ftc.teamcode.trajectorysequence;
+
+import com.acmerobotics.roadrunner.drive.DriveSignal;
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+
+/**
+ * Robot frame velocity and acceleration the drive should follow, like Road Runner's DriveSignal
+ * but mutable, so the runner can write into the same one every loop in
+ * {@link TrajectorySequenceRunner#ALLOCATION_FREE} mode.
+ */
+public final class MutableDriveSignal {
+    public double velX, velY, velHeading;
+    public double accelX, accelY, accelHeading;
+
+    public void set(double velX, double velY, double velHeading,
+                    double accelX, double accelY, double accelHeading) {
+        this.velX = velX;
+        this.velY = velY;
+        this.velHeading = velHeading;
+        this.accelX = accelX;
+        this.accelY = accelY;
+        this.accelHeading = accelHeading;
+    }
+
+    public void setZero() {
+        set(0, 0, 0, 0, 0, 0);
+    }
+
+    public DriveSignal toDriveSignal() {
+        return new DriveSignal(new Pose2d(velX, velY, velHeading), new Pose2d(accelX, accelY, accelHeading));
+    }
+}
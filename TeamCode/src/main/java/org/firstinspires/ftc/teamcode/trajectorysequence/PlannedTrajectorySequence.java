@@ -0,0 +1,119 @@
+package org.firstinspires.ftc.teamcode.trajectorysequence;
+
+import androidx.annotation.Nullable;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.util.Angle;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A trajectory sequence that is being built on a background thread from a predicted start pose,
+ * usually the end pose of the sequence that is currently being followed.
+ * <p>
+ * The route function is run on the planning thread, so it must only call builder methods and
+ * must not touch hardware or command state.
+ */
+public class PlannedTrajectorySequence {
+    private static final double PRECOMPILED_TOLERANCE = 1e-6; // in and rad
+
+    private final Pose2d predictedStartPose;
+    private final Function<Pose2d, TrajectorySequenceBuilder> builderFactory;
+    private final Function<TrajectorySequenceBuilder, TrajectorySequenceBuilder> route;
+    private final double maxPositionError;
+    private final double maxHeadingError;
+
+    private final Future<TrajectorySequence> future;
+
+    private TrajectorySequence resolvedSequence = null;
+
+    /**
+     * @param builderFactory   Creates a builder starting at the given pose, normally drive::trajectorySequenceBuilder.
+     * @param maxPositionError Largest start position error (in) that the planned sequence is still used for.
+     * @param maxHeadingError  Largest start heading error (rad) that the planned sequence is still used for.
+     */
+    public PlannedTrajectorySequence(
+            ExecutorService planner,
+            Pose2d predictedStartPose,
+            Function<Pose2d, TrajectorySequenceBuilder> builderFactory,
+            Function<TrajectorySequenceBuilder, TrajectorySequenceBuilder> route,
+            double maxPositionError, double maxHeadingError
+    ) {
+        this(planner, predictedStartPose, null, builderFactory, route, maxPositionError, maxHeadingError);
+    }
+
+    /**
+     * @param precompiled Loads a precompiled copy of the route on the planning thread, used
+     *                    instead of building when it starts at the predicted start pose.
+     *                    May return null.
+     */
+    public PlannedTrajectorySequence(
+            ExecutorService planner,
+            Pose2d predictedStartPose,
+            @Nullable Supplier<TrajectorySequence> precompiled,
+            Function<Pose2d, TrajectorySequenceBuilder> builderFactory,
+            Function<TrajectorySequenceBuilder, TrajectorySequenceBuilder> route,
+            double maxPositionError, double maxHeadingError
+    ) {
+        this.predictedStartPose = predictedStartPose;
+        this.builderFactory = builderFactory;
+        this.route = route;
+        this.maxPositionError = maxPositionError;
+        this.maxHeadingError = maxHeadingError;
+
+        future = planner.submit(() -> {
+            TrajectorySequence sequence = precompiled != null ? precompiled.get() : null;
+            if (sequence != null && startsAt(sequence, predictedStartPose)) return sequence;
+            return route.apply(builderFactory.apply(predictedStartPose)).build();
+        });
+    }
+
+    //Only rounding apart, a spline's end pose depends on the last bits of where it started
+    private static boolean startsAt(TrajectorySequence sequence, Pose2d pose) {
+        Pose2d error = sequence.start().minus(pose);
+        return error.vec().norm() < PRECOMPILED_TOLERANCE &&
+                Math.abs(Angle.normDelta(error.getHeading())) < PRECOMPILED_TOLERANCE;
+    }
+
+    public Pose2d getPredictedStartPose() {
+        return predictedStartPose;
+    }
+
+    /**
+     * Returns if the background build has finished (successfully or not).
+     */
+    public boolean isReady() {
+        return future.isDone();
+    }
+
+    /**
+     * Hands off the planned sequence. If the background build isn't done yet, failed, or the robot
+     * ended up too far from the predicted start pose, the route is built synchronously from the
+     * actual pose instead.
+     */
+    public TrajectorySequence resolve(Pose2d actualStartPose) {
+        if (resolvedSequence != null) return resolvedSequence;
+
+        Pose2d error = actualStartPose.minus(predictedStartPose);
+        boolean withinTolerance = error.vec().norm() <= maxPositionError &&
+                Math.abs(Angle.normDelta(error.getHeading())) <= maxHeadingError;
+
+        if (withinTolerance && future.isDone()) {
+            try {
+                resolvedSequence = future.get();
+                return resolvedSequence;
+            } catch (ExecutionException | InterruptedException e) {
+                //Fall back to the synchronous build, which will rethrow any route errors here
+            }
+        }
+
+        future.cancel(false);
+
+        resolvedSequence = route.apply(builderFactory.apply(actualStartPose)).build();
+        return resolvedSequence;
+    }
+}
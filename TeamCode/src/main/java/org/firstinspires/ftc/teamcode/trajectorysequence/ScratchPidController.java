@@ -0,0 +1,64 @@
+package org.firstinspires.ftc.teamcode.trajectorysequence;
+
+import com.acmerobotics.roadrunner.control.PIDCoefficients;
+import com.acmerobotics.roadrunner.util.Angle;
+import com.acmerobotics.roadrunner.util.NanoClock;
+
+/**
+ * The PID part of Road Runner's PIDFController on primitives only. RR's calls its feedforward
+ * lambda with boxed doubles every update, which the allocation free runner can't afford.
+ * <p>
+ * Same behaviour for what the runner uses: trapezoidal integral, derivative of the error, zero
+ * output on the first update after a reset, and optionally an error wrapped to [-pi, pi).
+ */
+final class ScratchPidController {
+    private final PIDCoefficients pid;
+    private final boolean angular;
+    private final NanoClock clock;
+
+    private double targetPosition;
+    private double errorSum;
+    private double lastError;
+    private double lastUpdateTimestamp = Double.NaN;
+
+    ScratchPidController(PIDCoefficients pid, boolean angular, NanoClock clock) {
+        this.pid = pid;
+        this.angular = angular;
+        this.clock = clock;
+    }
+
+    void setTargetPosition(double targetPosition) {
+        this.targetPosition = targetPosition;
+    }
+
+    double getLastError() {
+        return lastError;
+    }
+
+    void reset() {
+        errorSum = 0.0;
+        lastError = 0.0;
+        lastUpdateTimestamp = Double.NaN;
+    }
+
+    double update(double measuredPosition) {
+        double now = clock.seconds();
+        double error = targetPosition - measuredPosition;
+        if (angular) error = Angle.normDelta(error);
+
+        if (Double.isNaN(lastUpdateTimestamp)) {
+            lastError = error;
+            lastUpdateTimestamp = now;
+            return 0.0;
+        }
+
+        double dt = now - lastUpdateTimestamp;
+        errorSum += 0.5 * (error + lastError) * dt;
+        double errorDeriv = dt > 0 ? (error - lastError) / dt : 0.0;
+
+        lastError = error;
+        lastUpdateTimestamp = now;
+
+        return pid.kP * error + pid.kI * errorSum + pid.kD * errorDeriv;
+    }
+}
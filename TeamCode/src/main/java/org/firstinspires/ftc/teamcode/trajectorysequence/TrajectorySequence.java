@@ -9,11 +9,15 @@ import java.util.List;
 
 public class TrajectorySequence {
     private final List<SequenceSegment> sequenceList;
+    private final MarkerTimeline markerTimeline;
 
     public TrajectorySequence(List<SequenceSegment> sequenceList) {
         if (sequenceList.size() == 0) throw new EmptySequenceException();
 
         this.sequenceList = Collections.unmodifiableList(sequenceList);
+
+        //Compiled once here so the runner never has to sort or search markers while following
+        this.markerTimeline = new MarkerTimeline(this.sequenceList);
     }
 
     public Pose2d start() {
@@ -41,4 +45,8 @@ public class TrajectorySequence {
     public int size() {
         return sequenceList.size();
     }
+
+    public MarkerTimeline getMarkerTimeline() {
+        return markerTimeline;
+    }
 }
@@ -25,6 +25,7 @@ import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.TurnSeg
 import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.WaitSegment;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -64,13 +65,26 @@ public class TrajectorySequenceBuilder {
     private double lastDurationTraj;
     private double lastDisplacementTraj;
 
+    private final TrajectorySequenceCache cache;
+    private final Pose2d startPose;
+    private final Double startTangent;
+
+    // While a cache is attached, operations are only recorded and are replayed on a cache miss.
+    // Both lists are null once the builder runs eagerly.
+    private List<Object> cacheKeyOperations;
+    private List<Runnable> deferredOperations;
+
+    // Index of the operation being replayed while checkpoints are recorded, -1 otherwise
+    private int replayIndex = -1;
+
     public TrajectorySequenceBuilder(
             Pose2d startPose,
             Double startTangent,
             TrajectoryVelocityConstraint baseVelConstraint,
             TrajectoryAccelerationConstraint baseAccelConstraint,
             double baseTurnConstraintMaxAngVel,
-            double baseTurnConstraintMaxAngAccel
+            double baseTurnConstraintMaxAngAccel,
+            TrajectorySequenceCache cache
     ) {
         this.baseVelConstraint = baseVelConstraint;
         this.baseAccelConstraint = baseAccelConstraint;
@@ -104,6 +118,31 @@ public class TrajectorySequenceBuilder {
 
         lastDurationTraj = 0.0;
         lastDisplacementTraj = 0.0;
+
+        this.cache = cache;
+        this.startPose = startPose;
+        this.startTangent = startTangent;
+
+        if (cache != null) {
+            cacheKeyOperations = new ArrayList<>();
+            deferredOperations = new ArrayList<>();
+        }
+    }
+
+    public TrajectorySequenceBuilder(
+            Pose2d startPose,
+            Double startTangent,
+            TrajectoryVelocityConstraint baseVelConstraint,
+            TrajectoryAccelerationConstraint baseAccelConstraint,
+            double baseTurnConstraintMaxAngVel,
+            double baseTurnConstraintMaxAngAccel
+    ) {
+        this(
+                startPose, startTangent,
+                baseVelConstraint, baseAccelConstraint,
+                baseTurnConstraintMaxAngVel, baseTurnConstraintMaxAngAccel,
+                null
+        );
     }
 
     public TrajectorySequenceBuilder(
@@ -121,7 +160,7 @@ public class TrajectorySequenceBuilder {
     }
 
     public TrajectorySequenceBuilder lineTo(Vector2d endPosition) {
-        return addPath(() -> currentTrajectoryBuilder.lineTo(endPosition, currentVelConstraint, currentAccelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.lineTo(endPosition, currentVelConstraint, currentAccelConstraint), "lineTo", endPosition);
     }
 
     public TrajectorySequenceBuilder lineTo(
@@ -129,11 +168,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.lineTo(endPosition, velConstraint, accelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.lineTo(endPosition, velConstraint, accelConstraint), "lineTo", endPosition, velConstraint, accelConstraint);
     }
 
     public TrajectorySequenceBuilder lineToConstantHeading(Vector2d endPosition) {
-        return addPath(() -> currentTrajectoryBuilder.lineToConstantHeading(endPosition, currentVelConstraint, currentAccelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.lineToConstantHeading(endPosition, currentVelConstraint, currentAccelConstraint), "lineToConstantHeading", endPosition);
     }
 
     public TrajectorySequenceBuilder lineToConstantHeading(
@@ -141,11 +180,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.lineToConstantHeading(endPosition, velConstraint, accelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.lineToConstantHeading(endPosition, velConstraint, accelConstraint), "lineToConstantHeading", endPosition, velConstraint, accelConstraint);
     }
 
     public TrajectorySequenceBuilder lineToLinearHeading(Pose2d endPose) {
-        return addPath(() -> currentTrajectoryBuilder.lineToLinearHeading(endPose, currentVelConstraint, currentAccelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.lineToLinearHeading(endPose, currentVelConstraint, currentAccelConstraint), "lineToLinearHeading", endPose);
     }
 
     public TrajectorySequenceBuilder lineToLinearHeading(
@@ -153,11 +192,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.lineToLinearHeading(endPose, velConstraint, accelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.lineToLinearHeading(endPose, velConstraint, accelConstraint), "lineToLinearHeading", endPose, velConstraint, accelConstraint);
     }
 
     public TrajectorySequenceBuilder lineToSplineHeading(Pose2d endPose) {
-        return addPath(() -> currentTrajectoryBuilder.lineToSplineHeading(endPose, currentVelConstraint, currentAccelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.lineToSplineHeading(endPose, currentVelConstraint, currentAccelConstraint), "lineToSplineHeading", endPose);
     }
 
     public TrajectorySequenceBuilder lineToSplineHeading(
@@ -165,11 +204,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.lineToSplineHeading(endPose, velConstraint, accelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.lineToSplineHeading(endPose, velConstraint, accelConstraint), "lineToSplineHeading", endPose, velConstraint, accelConstraint);
     }
 
     public TrajectorySequenceBuilder strafeTo(Vector2d endPosition) {
-        return addPath(() -> currentTrajectoryBuilder.strafeTo(endPosition, currentVelConstraint, currentAccelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.strafeTo(endPosition, currentVelConstraint, currentAccelConstraint), "strafeTo", endPosition);
     }
 
     public TrajectorySequenceBuilder strafeTo(
@@ -177,11 +216,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.strafeTo(endPosition, velConstraint, accelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.strafeTo(endPosition, velConstraint, accelConstraint), "strafeTo", endPosition, velConstraint, accelConstraint);
     }
 
     public TrajectorySequenceBuilder forward(double distance) {
-        return addPath(() -> currentTrajectoryBuilder.forward(distance, currentVelConstraint, currentAccelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.forward(distance, currentVelConstraint, currentAccelConstraint), "forward", distance);
     }
 
     public TrajectorySequenceBuilder forward(
@@ -189,11 +228,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.forward(distance, velConstraint, accelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.forward(distance, velConstraint, accelConstraint), "forward", distance, velConstraint, accelConstraint);
     }
 
     public TrajectorySequenceBuilder back(double distance) {
-        return addPath(() -> currentTrajectoryBuilder.back(distance, currentVelConstraint, currentAccelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.back(distance, currentVelConstraint, currentAccelConstraint), "back", distance);
     }
 
     public TrajectorySequenceBuilder back(
@@ -201,11 +240,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.back(distance, velConstraint, accelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.back(distance, velConstraint, accelConstraint), "back", distance, velConstraint, accelConstraint);
     }
 
     public TrajectorySequenceBuilder strafeLeft(double distance) {
-        return addPath(() -> currentTrajectoryBuilder.strafeLeft(distance, currentVelConstraint, currentAccelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.strafeLeft(distance, currentVelConstraint, currentAccelConstraint), "strafeLeft", distance);
     }
 
     public TrajectorySequenceBuilder strafeLeft(
@@ -213,11 +252,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.strafeLeft(distance, velConstraint, accelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.strafeLeft(distance, velConstraint, accelConstraint), "strafeLeft", distance, velConstraint, accelConstraint);
     }
 
     public TrajectorySequenceBuilder strafeRight(double distance) {
-        return addPath(() -> currentTrajectoryBuilder.strafeRight(distance, currentVelConstraint, currentAccelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.strafeRight(distance, currentVelConstraint, currentAccelConstraint), "strafeRight", distance);
     }
 
     public TrajectorySequenceBuilder strafeRight(
@@ -225,11 +264,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.strafeRight(distance, velConstraint, accelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.strafeRight(distance, velConstraint, accelConstraint), "strafeRight", distance, velConstraint, accelConstraint);
     }
 
     public TrajectorySequenceBuilder splineTo(Vector2d endPosition, double endHeading) {
-        return addPath(() -> currentTrajectoryBuilder.splineTo(endPosition, endHeading, currentVelConstraint, currentAccelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.splineTo(endPosition, endHeading, currentVelConstraint, currentAccelConstraint), "splineTo", endPosition, endHeading);
     }
 
     public TrajectorySequenceBuilder splineTo(
@@ -238,11 +277,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.splineTo(endPosition, endHeading, velConstraint, accelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.splineTo(endPosition, endHeading, velConstraint, accelConstraint), "splineTo", endPosition, endHeading, velConstraint, accelConstraint);
     }
 
     public TrajectorySequenceBuilder splineToConstantHeading(Vector2d endPosition, double endHeading) {
-        return addPath(() -> currentTrajectoryBuilder.splineToConstantHeading(endPosition, endHeading, currentVelConstraint, currentAccelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.splineToConstantHeading(endPosition, endHeading, currentVelConstraint, currentAccelConstraint), "splineToConstantHeading", endPosition, endHeading);
     }
 
     public TrajectorySequenceBuilder splineToConstantHeading(
@@ -251,11 +290,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.splineToConstantHeading(endPosition, endHeading, velConstraint, accelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.splineToConstantHeading(endPosition, endHeading, velConstraint, accelConstraint), "splineToConstantHeading", endPosition, endHeading, velConstraint, accelConstraint);
     }
 
     public TrajectorySequenceBuilder splineToLinearHeading(Pose2d endPose, double endHeading) {
-        return addPath(() -> currentTrajectoryBuilder.splineToLinearHeading(endPose, endHeading, currentVelConstraint, currentAccelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.splineToLinearHeading(endPose, endHeading, currentVelConstraint, currentAccelConstraint), "splineToLinearHeading", endPose, endHeading);
     }
 
     public TrajectorySequenceBuilder splineToLinearHeading(
@@ -264,11 +303,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.splineToLinearHeading(endPose, endHeading, velConstraint, accelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.splineToLinearHeading(endPose, endHeading, velConstraint, accelConstraint), "splineToLinearHeading", endPose, endHeading, velConstraint, accelConstraint);
     }
 
     public TrajectorySequenceBuilder splineToSplineHeading(Pose2d endPose, double endHeading) {
-        return addPath(() -> currentTrajectoryBuilder.splineToSplineHeading(endPose, endHeading, currentVelConstraint, currentAccelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.splineToSplineHeading(endPose, endHeading, currentVelConstraint, currentAccelConstraint), "splineToSplineHeading", endPose, endHeading);
     }
 
     public TrajectorySequenceBuilder splineToSplineHeading(
@@ -277,15 +316,21 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.splineToSplineHeading(endPose, endHeading, velConstraint, accelConstraint));
+        return addPath(() -> currentTrajectoryBuilder.splineToSplineHeading(endPose, endHeading, velConstraint, accelConstraint), "splineToSplineHeading", endPose, endHeading, velConstraint, accelConstraint);
     }
 
-    private TrajectorySequenceBuilder addPath(AddPathCallback callback) {
+    private TrajectorySequenceBuilder addPath(AddPathCallback callback, Object... operation) {
+        if (defer(() -> addPath(callback, operation), operation)) return this;
+
         if (currentTrajectoryBuilder == null) newPath();
 
         try {
             callback.run();
         } catch (PathContinuityViolationException e) {
+            //The path breaks here, which leaves a clean state to resume from before this operation
+            pushPath();
+            saveCheckpoint(replayIndex);
+
             newPath();
             callback.run();
         }
@@ -306,6 +351,8 @@ public class TrajectorySequenceBuilder {
     }
 
     public TrajectorySequenceBuilder setTangent(double tangent) {
+        if (defer(() -> setTangent(tangent), "setTangent", tangent)) return this;
+
         setAbsoluteTangent = true;
         absoluteTangent = tangent;
 
@@ -324,6 +371,8 @@ public class TrajectorySequenceBuilder {
     }
 
     public TrajectorySequenceBuilder setReversed(boolean reversed) {
+        if (defer(() -> setReversed(reversed), "setReversed", reversed)) return this;
+
         return reversed ? this.setTangentOffset(Math.toRadians(180.0)) : this.setTangentOffset(0.0);
     }
 
@@ -331,6 +380,9 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
+        if (defer(() -> setConstraints(velConstraint, accelConstraint), "setConstraints", velConstraint, accelConstraint))
+            return this;
+
         this.currentVelConstraint = velConstraint;
         this.currentAccelConstraint = accelConstraint;
 
@@ -338,6 +390,8 @@ public class TrajectorySequenceBuilder {
     }
 
     public TrajectorySequenceBuilder resetConstraints() {
+        if (defer(this::resetConstraints, "resetConstraints")) return this;
+
         this.currentVelConstraint = this.baseVelConstraint;
         this.currentAccelConstraint = this.baseAccelConstraint;
 
@@ -345,30 +399,41 @@ public class TrajectorySequenceBuilder {
     }
 
     public TrajectorySequenceBuilder setVelConstraint(TrajectoryVelocityConstraint velConstraint) {
+        if (defer(() -> setVelConstraint(velConstraint), "setVelConstraint", velConstraint)) return this;
+
         this.currentVelConstraint = velConstraint;
 
         return this;
     }
 
     public TrajectorySequenceBuilder resetVelConstraint() {
+        if (defer(this::resetVelConstraint, "resetVelConstraint")) return this;
+
         this.currentVelConstraint = this.baseVelConstraint;
 
         return this;
     }
 
     public TrajectorySequenceBuilder setAccelConstraint(TrajectoryAccelerationConstraint accelConstraint) {
+        if (defer(() -> setAccelConstraint(accelConstraint), "setAccelConstraint", accelConstraint)) return this;
+
         this.currentAccelConstraint = accelConstraint;
 
         return this;
     }
 
     public TrajectorySequenceBuilder resetAccelConstraint() {
+        if (defer(this::resetAccelConstraint, "resetAccelConstraint")) return this;
+
         this.currentAccelConstraint = this.baseAccelConstraint;
 
         return this;
     }
 
     public TrajectorySequenceBuilder setTurnConstraint(double maxAngVel, double maxAngAccel) {
+        if (defer(() -> setTurnConstraint(maxAngVel, maxAngAccel), "setTurnConstraint", maxAngVel, maxAngAccel))
+            return this;
+
         this.currentTurnConstraintMaxAngVel = maxAngVel;
         this.currentTurnConstraintMaxAngAccel = maxAngAccel;
 
@@ -376,6 +441,8 @@ public class TrajectorySequenceBuilder {
     }
 
     public TrajectorySequenceBuilder resetTurnConstraint() {
+        if (defer(this::resetTurnConstraint, "resetTurnConstraint")) return this;
+
         this.currentTurnConstraintMaxAngVel = baseTurnConstraintMaxAngVel;
         this.currentTurnConstraintMaxAngAccel = baseTurnConstraintMaxAngAccel;
 
@@ -383,10 +450,12 @@ public class TrajectorySequenceBuilder {
     }
 
     public TrajectorySequenceBuilder addTemporalMarker(MarkerCallback callback) {
+        disableCache();
         return this.addTemporalMarker(currentDuration, callback);
     }
 
     public TrajectorySequenceBuilder UNSTABLE_addTemporalMarkerOffset(double offset, MarkerCallback callback) {
+        disableCache();
         return this.addTemporalMarker(currentDuration + offset, callback);
     }
 
@@ -399,20 +468,24 @@ public class TrajectorySequenceBuilder {
     }
 
     public TrajectorySequenceBuilder addTemporalMarker(TimeProducer time, MarkerCallback callback) {
+        disableCache();
         this.temporalMarkers.add(new TemporalMarker(time, callback));
         return this;
     }
 
     public TrajectorySequenceBuilder addSpatialMarker(Vector2d point, MarkerCallback callback) {
+        disableCache();
         this.spatialMarkers.add(new SpatialMarker(point, callback));
         return this;
     }
 
     public TrajectorySequenceBuilder addDisplacementMarker(MarkerCallback callback) {
+        disableCache();
         return this.addDisplacementMarker(currentDisplacement, callback);
     }
 
     public TrajectorySequenceBuilder UNSTABLE_addDisplacementMarkerOffset(double offset, MarkerCallback callback) {
+        disableCache();
         return this.addDisplacementMarker(currentDisplacement + offset, callback);
     }
 
@@ -425,16 +498,21 @@ public class TrajectorySequenceBuilder {
     }
 
     public TrajectorySequenceBuilder addDisplacementMarker(DisplacementProducer displacement, MarkerCallback callback) {
+        disableCache();
         displacementMarkers.add(new DisplacementMarker(displacement, callback));
 
         return this;
     }
 
     public TrajectorySequenceBuilder turn(double angle) {
+        if (defer(() -> turn(angle), "turn", angle)) return this;
+
         return turn(angle, currentTurnConstraintMaxAngVel, currentTurnConstraintMaxAngAccel);
     }
 
     public TrajectorySequenceBuilder turn(double angle, double maxAngVel, double maxAngAccel) {
+        if (defer(() -> turn(angle, maxAngVel, maxAngAccel), "turn", angle, maxAngVel, maxAngAccel)) return this;
+
         pushPath();
 
         MotionProfile turnProfile = MotionProfileGenerator.generateSimpleMotionProfile(
@@ -457,6 +535,8 @@ public class TrajectorySequenceBuilder {
     }
 
     public TrajectorySequenceBuilder waitSeconds(double seconds) {
+        if (defer(() -> waitSeconds(seconds), "waitSeconds", seconds)) return this;
+
         pushPath();
         sequenceSegments.add(new WaitSegment(lastPose, seconds, Collections.emptyList()));
 
@@ -465,6 +545,8 @@ public class TrajectorySequenceBuilder {
     }
 
     public TrajectorySequenceBuilder addTrajectory(Trajectory trajectory) {
+        if (defer(() -> addTrajectory(trajectory), "addTrajectory", trajectory)) return this;
+
         pushPath();
 
         sequenceSegments.add(new TrajectorySegment(trajectory));
@@ -492,7 +574,117 @@ public class TrajectorySequenceBuilder {
         currentTrajectoryBuilder = new TrajectoryBuilder(lastPose, tangent, currentVelConstraint, currentAccelConstraint, resolution);
     }
 
+    /**
+     * Records an operation instead of running it if the builder is deferring for the cache.
+     *
+     * @return true if the operation was deferred and the caller should return immediately
+     */
+    private boolean defer(Runnable operation, Object... arguments) {
+        if (deferredOperations == null) return false;
+
+        deferredOperations.add(operation);
+        cacheKeyOperations.add(Arrays.asList(arguments));
+
+        return true;
+    }
+
+    /**
+     * Runs every deferred operation and switches the builder to eager mode.
+     */
+    private void replayDeferredOperations() {
+        if (deferredOperations == null) return;
+
+        List<Runnable> operations = deferredOperations;
+        deferredOperations = null;
+
+        for (Runnable operation : operations) {
+            operation.run();
+        }
+    }
+
+    /**
+     * Runs the deferred operations from the longest prefix that has a checkpoint in the cache,
+     * saving new checkpoints along the way.
+     */
+    private void replayFromCheckpoint() {
+        List<Runnable> operations = deferredOperations;
+        deferredOperations = null;
+
+        int start = 0;
+        for (int length = operations.size(); length > 0; length--) {
+            Checkpoint checkpoint = cache.getCheckpoint(createPrefixKey(length));
+
+            if (checkpoint != null) {
+                checkpoint.restore(this);
+                start = length;
+                break;
+            }
+        }
+
+        for (int i = start; i < operations.size(); i++) {
+            replayIndex = i;
+            operations.get(i).run();
+
+            if (currentTrajectoryBuilder == null) saveCheckpoint(i + 1);
+        }
+
+        replayIndex = -1;
+    }
+
+    private void saveCheckpoint(int prefixLength) {
+        if (replayIndex < 0 || prefixLength <= 0) return;
+
+        cache.putCheckpoint(createPrefixKey(prefixLength), new Checkpoint(this));
+    }
+
+    private List<Object> createPrefixKey(int prefixLength) {
+        return TrajectorySequenceCache.createKey(
+                startPose, startTangent,
+                Arrays.asList(
+                        baseVelConstraint, baseAccelConstraint,
+                        baseTurnConstraintMaxAngVel, baseTurnConstraintMaxAngAccel
+                ),
+                new ArrayList<>(cacheKeyOperations.subList(0, prefixLength))
+        );
+    }
+
+    /**
+     * Markers read the current duration and displacement, so the builder has to catch up and
+     * from then on build eagerly. Their callbacks also make the result unsafe to share.
+     */
+    private void disableCache() {
+        replayDeferredOperations();
+        cacheKeyOperations = null;
+    }
+
     public TrajectorySequence build() {
+        if (cacheKeyOperations == null) return compile();
+
+        List<Object> key = TrajectorySequenceCache.createKey(
+                startPose, startTangent,
+                Arrays.asList(
+                        baseVelConstraint, baseAccelConstraint,
+                        baseTurnConstraintMaxAngVel, baseTurnConstraintMaxAngAccel
+                ),
+                cacheKeyOperations
+        );
+
+        TrajectorySequence cachedSequence = cache.get(key);
+        if (cachedSequence != null) return cachedSequence;
+
+        if (TrajectorySequenceCache.MEMOIZE_PREFIXES) {
+            replayFromCheckpoint();
+        } else {
+            replayDeferredOperations();
+        }
+
+        TrajectorySequence sequence = compile();
+        cache.put(key, sequence);
+
+        return sequence;
+    }
+
+    private TrajectorySequence compile() {
         pushPath();
 
         List<TrajectoryMarker> globalMarkers = convertMarkersToGlobal(
@@ -548,49 +740,45 @@ public class TrajectorySequenceBuilder {
 
     private List<SequenceSegment> projectGlobalMarkersToLocalSegments(List<TrajectoryMarker> markers, List<SequenceSegment> sequenceSegments) {
         if (sequenceSegments.isEmpty()) return Collections.emptyList();
+        if (markers.isEmpty()) return sequenceSegments;
 
+        //End time of every segment, so finding a marker's segment is a binary search
+        double[] segmentEndTimes = new double[sequenceSegments.size()];
         double totalSequenceDuration = 0;
-        for (SequenceSegment segment : sequenceSegments) {
-            totalSequenceDuration += segment.getDuration();
+        for (int i = 0; i < sequenceSegments.size(); i++) {
+            totalSequenceDuration += sequenceSegments.get(i).getDuration();
+            segmentEndTimes[i] = totalSequenceDuration;
         }
 
+        //Group the markers by segment first so every segment is rebuilt at most once
+        List<List<TrajectoryMarker>> segmentMarkers = new ArrayList<>(Collections.nCopies(sequenceSegments.size(), null));
+
         for (TrajectoryMarker marker : markers) {
-            SequenceSegment segment = null;
-            int segmentIndex = 0;
-            double segmentOffsetTime = 0;
+            double markerTime = Math.min(marker.getTime(), totalSequenceDuration);
 
-            double currentTime = 0;
-            for (int i = 0; i < sequenceSegments.size(); i++) {
-                SequenceSegment seg = sequenceSegments.get(i);
+            int segmentIndex = findSegmentIndex(segmentEndTimes, markerTime);
+            double segmentStartTime = segmentIndex == 0 ? 0 : segmentEndTimes[segmentIndex - 1];
 
-                double markerTime = Math.min(marker.getTime(), totalSequenceDuration);
+            if (segmentMarkers.get(segmentIndex) == null) segmentMarkers.set(segmentIndex, new ArrayList<>());
+            segmentMarkers.get(segmentIndex).add(new TrajectoryMarker(markerTime - segmentStartTime, marker.getCallback()));
+        }
 
-                if (currentTime + seg.getDuration() >= markerTime) {
-                    segment = seg;
-                    segmentIndex = i;
-                    segmentOffsetTime = markerTime - currentTime;
-
-                    break;
-                } else {
-                    currentTime += seg.getDuration();
-                }
-            }
+        for (int i = 0; i < sequenceSegments.size(); i++) {
+            List<TrajectoryMarker> addedMarkers = segmentMarkers.get(i);
+            if (addedMarkers == null) continue;
 
+            SequenceSegment segment = sequenceSegments.get(i);
             SequenceSegment newSegment = null;
 
             if (segment instanceof WaitSegment) {
                 List<TrajectoryMarker> newMarkers = new ArrayList<>(segment.getMarkers());
-
-                newMarkers.addAll(sequenceSegments.get(segmentIndex).getMarkers());
-                newMarkers.add(new TrajectoryMarker(segmentOffsetTime, marker.getCallback()));
+                newMarkers.addAll(addedMarkers);
 
                 WaitSegment thisSegment = (WaitSegment) segment;
                 newSegment = new WaitSegment(thisSegment.getStartPose(), thisSegment.getDuration(), newMarkers);
             } else if (segment instanceof TurnSegment) {
                 List<TrajectoryMarker> newMarkers = new ArrayList<>(segment.getMarkers());
-
-                newMarkers.addAll(sequenceSegments.get(segmentIndex).getMarkers());
-                newMarkers.add(new TrajectoryMarker(segmentOffsetTime, marker.getCallback()));
+                newMarkers.addAll(addedMarkers);
 
                 TurnSegment thisSegment = (TurnSegment) segment;
                 newSegment = new TurnSegment(thisSegment.getStartPose(), thisSegment.getTotalRotation(), thisSegment.getMotionProfile(), newMarkers);
@@ -598,17 +786,34 @@ public class TrajectorySequenceBuilder {
                 TrajectorySegment thisSegment = (TrajectorySegment) segment;
 
                 List<TrajectoryMarker> newMarkers = new ArrayList<>(thisSegment.getTrajectory().getMarkers());
-                newMarkers.add(new TrajectoryMarker(segmentOffsetTime, marker.getCallback()));
+                newMarkers.addAll(addedMarkers);
 
                 newSegment = new TrajectorySegment(new Trajectory(thisSegment.getTrajectory().getPath(), thisSegment.getTrajectory().getProfile(), newMarkers));
             }
 
-            sequenceSegments.set(segmentIndex, newSegment);
+            sequenceSegments.set(i, newSegment);
         }
 
         return sequenceSegments;
     }
 
+    /**
+     * Index of the first segment that ends at or after the given time.
+     */
+    private static int findSegmentIndex(double[] segmentEndTimes, double time) {
+        int lo = 0;
+        int hi = segmentEndTimes.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (segmentEndTimes[mid] >= time) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
     // Taken from Road Runner's TrajectoryGenerator.displacementToTime() since it's private
     // note: this assumes that the profile position is monotonic increasing
     private Double motionProfileDisplacementToTime(MotionProfile profile, double s) {
@@ -708,4 +913,62 @@ public class TrajectorySequenceBuilder {
     private interface AddPathCallback {
         void run();
     }
+
+    /**
+     * Builder state between two operations with no path in progress, shared through the cache
+     * so a later build with the same leading operations can resume from it.
+     */
+    static final class Checkpoint {
+        private final List<SequenceSegment> sequenceSegments;
+        private final Pose2d lastPose;
+
+        private final double tangentOffset;
+        private final boolean setAbsoluteTangent;
+        private final double absoluteTangent;
+
+        private final TrajectoryVelocityConstraint currentVelConstraint;
+        private final TrajectoryAccelerationConstraint currentAccelConstraint;
+        private final double currentTurnConstraintMaxAngVel;
+        private final double currentTurnConstraintMaxAngAccel;
+
+        private final double currentDuration;
+        private final double currentDisplacement;
+
+        private Checkpoint(TrajectorySequenceBuilder builder) {
+            sequenceSegments = new ArrayList<>(builder.sequenceSegments);
+            lastPose = builder.lastPose;
+
+            tangentOffset = builder.tangentOffset;
+            setAbsoluteTangent = builder.setAbsoluteTangent;
+            absoluteTangent = builder.absoluteTangent;
+
+            currentVelConstraint = builder.currentVelConstraint;
+            currentAccelConstraint = builder.currentAccelConstraint;
+            currentTurnConstraintMaxAngVel = builder.currentTurnConstraintMaxAngVel;
+            currentTurnConstraintMaxAngAccel = builder.currentTurnConstraintMaxAngAccel;
+
+            currentDuration = builder.currentDuration;
+            currentDisplacement = builder.currentDisplacement;
+        }
+
+        private void restore(TrajectorySequenceBuilder builder) {
+            builder.sequenceSegments.clear();
+            builder.sequenceSegments.addAll(sequenceSegments);
+            builder.lastPose = lastPose;
+
+            builder.tangentOffset = tangentOffset;
+            builder.setAbsoluteTangent = setAbsoluteTangent;
+            builder.absoluteTangent = absoluteTangent;
+
+            builder.currentVelConstraint = currentVelConstraint;
+            builder.currentAccelConstraint = currentAccelConstraint;
+            builder.currentTurnConstraintMaxAngVel = currentTurnConstraintMaxAngVel;
+            builder.currentTurnConstraintMaxAngAccel = currentTurnConstraintMaxAngAccel;
+
+            builder.currentDuration = currentDuration;
+            builder.currentDisplacement = currentDisplacement;
+
+            builder.currentTrajectoryBuilder = null;
+        }
+    }
 }
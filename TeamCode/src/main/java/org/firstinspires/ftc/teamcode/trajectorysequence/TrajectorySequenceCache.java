@@ -0,0 +1,127 @@
+package org.firstinspires.ftc.teamcode.trajectorysequence;
+
+import com.acmerobotics.dashboard.config.Config;
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.util.Angle;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of compiled {@link TrajectorySequence}s.
+ * <p>
+ * Entries are keyed by the start pose, the exact list of builder operations (with their
+ * arguments) and the base constraint set of the builder. Two builders that start at the same pose
+ * and issue the same calls will therefore share one compiled sequence, which skips the spline
+ * fitting and profile generation that happens on every {@code build()}.
+ * <p>
+ * The start pose is quantized to {@link #POSITION_QUANTUM} and {@link #HEADING_QUANTUM}, so routes
+ * built from the measured pose hit whenever the robot stopped close to where it did last time. A
+ * hit starts up to half a quantum from the asked for pose, which the follower corrects like any
+ * other tracking error. Set the quanta to 0 to compare exactly.
+ * <p>
+ * Sequences containing markers are never cached since the marker callbacks usually capture
+ * per-command state.
+ * <p>
+ * With MEMOIZE_PREFIXES the builder also stores checkpoints of its state keyed by the leading
+ * operations, so a sequence that only differs from an earlier one in its last few operations is
+ * rebuilt from the longest matching checkpoint instead of from scratch.
+ */
+@Config
+public class TrajectorySequenceCache {
+    public static boolean MEMOIZE_PREFIXES = true;
+    public static int CHECKPOINTS_PER_ENTRY = 4;
+    public static double POSITION_QUANTUM = 0.25; // in
+    public static double HEADING_QUANTUM = Math.toRadians(0.5);
+
+    private final int capacity;
+    private final LinkedHashMap<List<Object>, TrajectorySequence> entries;
+    private final LinkedHashMap<List<Object>, TrajectorySequenceBuilder.Checkpoint> checkpoints;
+
+    private int hits = 0;
+    private int misses = 0;
+
+    public TrajectorySequenceCache(int capacity) {
+        this.capacity = capacity;
+
+        entries = createLruMap(capacity);
+        checkpoints = createLruMap(capacity * CHECKPOINTS_PER_ENTRY);
+    }
+
+    private static <V> LinkedHashMap<List<Object>, V> createLruMap(int capacity) {
+        //Access ordered so the eldest entry is always the least recently used one
+        return new LinkedHashMap<List<Object>, V>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Creates the key for a sequence, with the start pose quantized. Constraints and other argument
+     * objects without value equality only match by identity.
+     */
+    public static List<Object> createKey(Pose2d startPose, Double startTangent, List<Object> constraints, List<Object> operations) {
+        return Arrays.asList(
+                quantize(startPose.getX(), POSITION_QUANTUM),
+                quantize(startPose.getY(), POSITION_QUANTUM),
+                quantize(Angle.norm(startPose.getHeading()), HEADING_QUANTUM),
+                startTangent != null ? quantize(Angle.norm(startTangent), HEADING_QUANTUM) : null,
+                constraints,
+                operations
+        );
+    }
+
+    //Index of the bucket the value falls in, or the value itself when not quantizing
+    private static Object quantize(double value, double quantum) {
+        if (!(quantum > 0)) return value;
+        return Math.round(value / quantum);
+    }
+
+    public synchronized TrajectorySequence get(List<Object> key) {
+        TrajectorySequence sequence = entries.get(key);
+
+        if (sequence == null) misses++;
+        else hits++;
+
+        return sequence;
+    }
+
+    public synchronized void put(List<Object> key, TrajectorySequence sequence) {
+        entries.put(key, sequence);
+    }
+
+    synchronized TrajectorySequenceBuilder.Checkpoint getCheckpoint(List<Object> key) {
+        return checkpoints.get(key);
+    }
+
+    synchronized void putCheckpoint(List<Object> key, TrajectorySequenceBuilder.Checkpoint checkpoint) {
+        checkpoints.put(key, checkpoint);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        checkpoints.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,140 @@
+package org.firstinspires.ftc.teamcode.trajectorysequence;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.trajectory.MarkerCallback;
+import com.acmerobotics.roadrunner.trajectory.TrajectoryMarker;
+
+import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.SampledTrajectorySegment;
+import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.SequenceSegment;
+import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.WaitSegment;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary format for precompiled trajectory sequences.
+ * <p>
+ * Trajectory and turn segments are stored as evenly spaced samples of pose, velocity and
+ * acceleration versus time, wait segments as just their pose and duration. Markers are stored by
+ * time and id (their index in the sequence's marker timeline) and bound to callbacks when loaded.
+ * <pre>
+ * int magic, int version, int segmentCount
+ * per segment:
+ *   int type, double duration, double x, double y, double heading
+ *   int markerCount, markerCount * (double time, int id)
+ *   sampled only: int sampleCount, sampleCount * 9 doubles
+ * </pre>
+ * Everything is big endian, which is what DataOutputStream writes and ByteBuffer reads by default.
+ */
+public class TrajectorySequenceFormat {
+    public static final String FILE_EXTENSION = ".rrsq";
+
+    private static final int MAGIC = 0x52525351; // "RRSQ"
+    private static final int VERSION = 1;
+
+    private static final int TYPE_SAMPLED = 0;
+    private static final int TYPE_WAIT = 1;
+
+    /**
+     * Samples and writes a sequence.
+     *
+     * @param sampleInterval Time between samples in seconds; each segment is sampled at the
+     *                       closest interval that lands exactly on its end.
+     */
+    public static void write(TrajectorySequence sequence, double sampleInterval, OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        MarkerTimeline timeline = sequence.getMarkerTimeline();
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(sequence.size());
+
+        for (int i = 0; i < sequence.size(); i++) {
+            SequenceSegment segment = sequence.get(i);
+            Pose2d startPose = segment.getStartPose();
+
+            out.writeInt(segment instanceof WaitSegment ? TYPE_WAIT : TYPE_SAMPLED);
+            out.writeDouble(segment.getDuration());
+            out.writeDouble(startPose.getX());
+            out.writeDouble(startPose.getY());
+            out.writeDouble(startPose.getHeading());
+
+            out.writeInt(timeline.getEnd(i) - timeline.getStart(i));
+            for (int marker = timeline.getStart(i); marker < timeline.getEnd(i); marker++) {
+                out.writeDouble(timeline.getTime(marker));
+                out.writeInt(marker);
+            }
+
+            if (segment instanceof WaitSegment) continue;
+
+            SampledTrajectorySegment sampled = SampledTrajectorySegment.of(segment, sampleInterval);
+            out.writeInt(sampled.getSampleCount());
+            for (int sample = 0; sample < sampled.getSampleCount(); sample++) {
+                for (int component = 0; component < SampledTrajectorySegment.SAMPLE_SIZE; component++) {
+                    out.writeDouble(sampled.getSample(sample, component));
+                }
+            }
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Reads a sequence. The samples are not copied, so a memory mapped buffer stays mapped and is
+     * read straight from the page cache while following.
+     *
+     * @param markerCallbacks Callbacks bound to the markers by id, one for every marker in the file.
+     * @throws IllegalArgumentException If a marker in the file has no callback.
+     */
+    public static TrajectorySequence read(ByteBuffer buffer, MarkerCallback... markerCallbacks) throws IOException {
+        if (buffer.getInt() != MAGIC) throw new IOException("Not a compiled trajectory sequence");
+
+        int version = buffer.getInt();
+        if (version != VERSION) throw new IOException("Unsupported trajectory sequence version " + version);
+
+        int segmentCount = buffer.getInt();
+        List<SequenceSegment> segments = new ArrayList<>(segmentCount);
+
+        for (int i = 0; i < segmentCount; i++) {
+            int type = buffer.getInt();
+            double duration = buffer.getDouble();
+            Pose2d startPose = new Pose2d(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+
+            int markerCount = buffer.getInt();
+            List<TrajectoryMarker> markers = new ArrayList<>(markerCount);
+            for (int marker = 0; marker < markerCount; marker++) {
+                double time = buffer.getDouble();
+                int id = buffer.getInt();
+                if (id < 0 || id >= markerCallbacks.length) {
+                    throw new IllegalArgumentException(
+                            "No callback for marker " + id + ", only " + markerCallbacks.length + " given");
+                }
+                markers.add(new TrajectoryMarker(time, markerCallbacks[id]));
+            }
+
+            if (type == TYPE_WAIT) {
+                segments.add(new WaitSegment(startPose, duration, markers));
+            } else if (type == TYPE_SAMPLED) {
+                int sampleCount = buffer.getInt();
+                int sampleBytes = sampleCount * SampledTrajectorySegment.SAMPLE_SIZE * Double.BYTES;
+
+                ByteBuffer sampleSlice = buffer.slice();
+                sampleSlice.limit(sampleBytes);
+                DoubleBuffer samples = sampleSlice.asDoubleBuffer();
+                buffer.position(buffer.position() + sampleBytes);
+
+                double interval = sampleCount > 1 ? duration / (sampleCount - 1) : 0.0;
+                segments.add(new SampledTrajectorySegment(samples, sampleCount, interval, markers));
+            } else {
+                throw new IOException("Unknown segment type " + type);
+            }
+        }
+
+        return new TrajectorySequence(segments);
+    }
+}
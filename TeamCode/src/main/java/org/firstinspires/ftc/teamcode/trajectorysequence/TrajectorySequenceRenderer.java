@@ -0,0 +1,300 @@
+package org.firstinspires.ftc.teamcode.trajectorysequence;
+
+import com.acmerobotics.dashboard.FtcDashboard;
+import com.acmerobotics.dashboard.canvas.Canvas;
+import com.acmerobotics.dashboard.config.Config;
+import com.acmerobotics.dashboard.telemetry.TelemetryPacket;
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.path.Path;
+import com.acmerobotics.roadrunner.trajectory.Trajectory;
+
+import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.SampledTrajectorySegment;
+import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.SequenceSegment;
+import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.TrajectorySegment;
+import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.TurnSegment;
+import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.WaitSegment;
+import org.firstinspires.ftc.teamcode.util.DashboardUtil;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceRunner.COLOR_ACTIVE_TRAJECTORY;
+import static org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceRunner.COLOR_ACTIVE_TURN;
+import static org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceRunner.COLOR_ACTIVE_WAIT;
+import static org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceRunner.COLOR_INACTIVE_TRAJECTORY;
+import static org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceRunner.COLOR_INACTIVE_TURN;
+import static org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceRunner.COLOR_INACTIVE_WAIT;
+
+/**
+ * Draws the trajectory sequence overlay and sends the follower telemetry from its own low
+ * priority thread, so none of the dashboard work happens in the control loop.
+ * <p>
+ * The control thread only copies a few numbers into a snapshot and swaps it into a lock-free
+ * slot (triple buffering: the writer, the reader and the slot each own one snapshot at a time).
+ * The segment polylines are sampled once per sequence, on the render thread.
+ */
+@Config
+public class TrajectorySequenceRenderer {
+    public static double RENDER_RATE_HZ = 20;
+    public static double PATH_RESOLUTION = 2.0; // in
+
+    private static TrajectorySequenceRenderer instance;
+
+    private static class Snapshot {
+        private long number = 0;
+
+        private double x, y, heading;
+        private double errorX, errorY, errorHeading;
+
+        private TrajectorySequence sequence;
+        private int segmentIndex;
+        private double segmentTime;
+
+        private double[] historyX = new double[0];
+        private double[] historyY = new double[0];
+        private int historySize;
+    }
+
+    /**
+     * Polylines of every segment of a sequence, sampled once and then shared by every packet.
+     */
+    private static class SequenceOverlay {
+        private final TrajectorySequence sequence;
+        private final double[][] xPoints;
+        private final double[][] yPoints;
+
+        private SequenceOverlay(TrajectorySequence sequence) {
+            this.sequence = sequence;
+
+            xPoints = new double[sequence.size()][];
+            yPoints = new double[sequence.size()][];
+
+            for (int i = 0; i < sequence.size(); i++) {
+                SequenceSegment segment = sequence.get(i);
+                if (segment instanceof SampledTrajectorySegment) {
+                    sampleSampled(i, (SampledTrajectorySegment) segment);
+                    continue;
+                }
+                if (!(segment instanceof TrajectorySegment)) continue;
+
+                Path path = ((TrajectorySegment) segment).getTrajectory().getPath();
+
+                int samples = Math.max((int) Math.ceil(path.length() / PATH_RESOLUTION), 2);
+                double dx = path.length() / (samples - 1);
+
+                xPoints[i] = new double[samples];
+                yPoints[i] = new double[samples];
+                for (int j = 0; j < samples; j++) {
+                    Pose2d pose = path.get(j * dx);
+                    xPoints[i][j] = pose.getX();
+                    yPoints[i][j] = pose.getY();
+                }
+            }
+        }
+
+        /**
+         * A sampled segment has no path to walk, so its samples are thinned to about
+         * PATH_RESOLUTION apart instead, keeping the first and last.
+         */
+        private void sampleSampled(int index, SampledTrajectorySegment segment) {
+            int sampleCount = segment.getSampleCount();
+            double[] x = new double[sampleCount];
+            double[] y = new double[sampleCount];
+            int points = 0;
+
+            for (int j = 0; j < sampleCount; j++) {
+                double sampleX = segment.getSample(j, 0), sampleY = segment.getSample(j, 1);
+                boolean isLast = j == sampleCount - 1;
+                if (points > 0 && !isLast
+                        && Math.hypot(sampleX - x[points - 1], sampleY - y[points - 1]) < PATH_RESOLUTION) {
+                    continue;
+                }
+
+                x[points] = sampleX;
+                y[points] = sampleY;
+                points++;
+            }
+
+            xPoints[index] = Arrays.copyOf(x, points);
+            yPoints[index] = Arrays.copyOf(y, points);
+        }
+    }
+
+    private final AtomicReference<Snapshot> latest = new AtomicReference<>(new Snapshot());
+
+    //Owned by the control thread
+    private Snapshot writeBuffer = new Snapshot();
+    private long publishedCount = 0;
+
+    //Owned by the render thread
+    private Snapshot readBuffer = new Snapshot();
+    private long renderedCount = 0;
+    private SequenceOverlay overlay = null;
+
+    private final FtcDashboard dashboard;
+
+    private TrajectorySequenceRenderer() {
+        dashboard = FtcDashboard.getInstance();
+        dashboard.setTelemetryTransmissionInterval(25);
+
+        Thread renderThread = new Thread(this::renderLoop, "TrajectorySequenceRenderer");
+        renderThread.setDaemon(true);
+        renderThread.setPriority(Thread.MIN_PRIORITY);
+        renderThread.start();
+    }
+
+    public static synchronized TrajectorySequenceRenderer getInstance() {
+        if (instance == null) instance = new TrajectorySequenceRenderer();
+        return instance;
+    }
+
+    /**
+     * Publishes the state of the current loop. Called from the control thread; does not allocate
+     * unless the pose history size changed.
+     *
+     * @param segmentIndex Index of the segment being followed, or -1 if idle.
+     * @param segmentTime  Time since the start of that segment, used to find the target pose.
+     */
+    public void publish(
+            Pose2d poseEstimate,
+            double errorX, double errorY, double errorHeading,
+            TrajectorySequence sequence, int segmentIndex, double segmentTime,
+            double[] historyXRing, double[] historyYRing, int historyStart, int historySize
+    ) {
+        publish(
+                poseEstimate.getX(), poseEstimate.getY(), poseEstimate.getHeading(),
+                errorX, errorY, errorHeading,
+                sequence, segmentIndex, segmentTime,
+                historyXRing, historyYRing, historyStart, historySize
+        );
+    }
+
+    public void publish(
+            double x, double y, double heading,
+            double errorX, double errorY, double errorHeading,
+            TrajectorySequence sequence, int segmentIndex, double segmentTime,
+            double[] historyXRing, double[] historyYRing, int historyStart, int historySize
+    ) {
+        Snapshot snapshot = writeBuffer;
+
+        snapshot.x = x;
+        snapshot.y = y;
+        snapshot.heading = heading;
+
+        snapshot.errorX = errorX;
+        snapshot.errorY = errorY;
+        snapshot.errorHeading = errorHeading;
+
+        snapshot.sequence = sequence;
+        snapshot.segmentIndex = segmentIndex;
+        snapshot.segmentTime = segmentTime;
+
+        if (snapshot.historyX.length != historyXRing.length) {
+            snapshot.historyX = new double[historyXRing.length];
+            snapshot.historyY = new double[historyYRing.length];
+        }
+        for (int i = 0; i < historySize; i++) {
+            int index = (historyStart + i) % historyXRing.length;
+            snapshot.historyX[i] = historyXRing[index];
+            snapshot.historyY[i] = historyYRing[index];
+        }
+        snapshot.historySize = historySize;
+
+        snapshot.number = ++publishedCount;
+
+        writeBuffer = latest.getAndSet(snapshot);
+    }
+
+    private void renderLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            readBuffer = latest.getAndSet(readBuffer);
+
+            if (readBuffer.number > renderedCount) {
+                renderedCount = readBuffer.number;
+                render(readBuffer);
+            }
+
+            try {
+                Thread.sleep((long) (1000.0 / Math.max(RENDER_RATE_HZ, 0.1)));
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void render(Snapshot snapshot) {
+        TelemetryPacket packet = new TelemetryPacket();
+        Canvas fieldOverlay = packet.fieldOverlay();
+
+        packet.put("x", snapshot.x);
+        packet.put("y", snapshot.y);
+        packet.put("heading (deg)", Math.toDegrees(snapshot.heading));
+
+        packet.put("xError", snapshot.errorX);
+        packet.put("yError", snapshot.errorY);
+        packet.put("headingError (deg)", Math.toDegrees(snapshot.errorHeading));
+
+        TrajectorySequence sequence = snapshot.sequence;
+
+        if (sequence != null) {
+            if (overlay == null || overlay.sequence != sequence) overlay = new SequenceOverlay(sequence);
+
+            for (int i = 0; i < sequence.size(); i++) {
+                drawSegment(fieldOverlay, i, false);
+            }
+
+            if (snapshot.segmentIndex >= 0 && snapshot.segmentIndex < sequence.size()) {
+                drawSegment(fieldOverlay, snapshot.segmentIndex, true);
+
+                Pose2d targetPose = getTargetPose(sequence.get(snapshot.segmentIndex), snapshot.segmentTime);
+                fieldOverlay.setStrokeWidth(1);
+                fieldOverlay.setStroke("#4CAF50");
+                DashboardUtil.drawRobot(fieldOverlay, targetPose);
+            }
+        }
+
+        fieldOverlay.setStroke("#3F51B5");
+        DashboardUtil.drawPoseHistory(fieldOverlay, snapshot.historyX, snapshot.historyY, 0, snapshot.historySize);
+
+        fieldOverlay.setStroke("#3F51B5");
+        DashboardUtil.drawRobot(fieldOverlay, new Pose2d(snapshot.x, snapshot.y, snapshot.heading));
+
+        dashboard.sendTelemetryPacket(packet);
+    }
+
+    private void drawSegment(Canvas fieldOverlay, int index, boolean active) {
+        SequenceSegment segment = overlay.sequence.get(index);
+
+        if (segment instanceof TrajectorySegment || segment instanceof SampledTrajectorySegment) {
+            fieldOverlay.setStrokeWidth(1);
+            fieldOverlay.setStroke(active ? COLOR_ACTIVE_TRAJECTORY : COLOR_INACTIVE_TRAJECTORY);
+            fieldOverlay.strokePolyline(overlay.xPoints[index], overlay.yPoints[index]);
+        } else if (segment instanceof TurnSegment) {
+            Pose2d pose = segment.getStartPose();
+
+            fieldOverlay.setFill(active ? COLOR_ACTIVE_TURN : COLOR_INACTIVE_TURN);
+            fieldOverlay.fillCircle(pose.getX(), pose.getY(), active ? 3 : 2);
+        } else if (segment instanceof WaitSegment) {
+            Pose2d pose = segment.getStartPose();
+
+            fieldOverlay.setStrokeWidth(1);
+            fieldOverlay.setStroke(active ? COLOR_ACTIVE_WAIT : COLOR_INACTIVE_WAIT);
+            fieldOverlay.strokeCircle(pose.getX(), pose.getY(), 3);
+        }
+    }
+
+    private static Pose2d getTargetPose(SequenceSegment segment, double segmentTime) {
+        if (segment instanceof TrajectorySegment) {
+            Trajectory trajectory = ((TrajectorySegment) segment).getTrajectory();
+            return trajectory.get(segmentTime);
+        } else if (segment instanceof SampledTrajectorySegment) {
+            return ((SampledTrajectorySegment) segment).get(segmentTime);
+        } else if (segment instanceof TurnSegment) {
+            Pose2d startPose = segment.getStartPose();
+            double heading = ((TurnSegment) segment).getMotionProfile().get(segmentTime).getX();
+            return new Pose2d(startPose.getX(), startPose.getY(), heading);
+        }
+
+        return segment.getStartPose();
+    }
+}
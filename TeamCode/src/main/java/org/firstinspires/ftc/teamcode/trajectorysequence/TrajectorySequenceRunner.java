@@ -2,30 +2,25 @@ package org.firstinspires.ftc.teamcode.trajectorysequence;
 
 import androidx.annotation.Nullable;
 
-import com.acmerobotics.dashboard.FtcDashboard;
-import com.acmerobotics.dashboard.canvas.Canvas;
 import com.acmerobotics.dashboard.config.Config;
-import com.acmerobotics.dashboard.telemetry.TelemetryPacket;
 import com.acmerobotics.roadrunner.control.PIDCoefficients;
 import com.acmerobotics.roadrunner.control.PIDFController;
 import com.acmerobotics.roadrunner.drive.DriveSignal;
 import com.acmerobotics.roadrunner.followers.TrajectoryFollower;
 import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.kinematics.Kinematics;
 import com.acmerobotics.roadrunner.profile.MotionState;
-import com.acmerobotics.roadrunner.trajectory.Trajectory;
-import com.acmerobotics.roadrunner.trajectory.TrajectoryMarker;
+import com.acmerobotics.roadrunner.trajectory.MarkerCallback;
+import com.acmerobotics.roadrunner.util.Angle;
 import com.acmerobotics.roadrunner.util.NanoClock;
 
+import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.SampledTrajectorySegment;
 import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.SequenceSegment;
 import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.TrajectorySegment;
 import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.TurnSegment;
 import org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment.WaitSegment;
-import org.firstinspires.ftc.teamcode.util.DashboardUtil;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.concurrent.Executor;
 
 @Config
 public class TrajectorySequenceRunner {
@@ -37,36 +32,111 @@ public class TrajectorySequenceRunner {
     public static String COLOR_ACTIVE_TURN = "#7c4dff";
     public static String COLOR_ACTIVE_WAIT = "#dd2c00";
 
-    public static int POSE_HISTORY_LIMIT = 100;
+    public static int POSE_HISTORY_LIMIT = 100; // fixed size ring buffer, 0 disables the history
+
+    //Follow with primitives only, see update(double, double, double, MutableDriveSignal)
+    public static boolean ALLOCATION_FREE = false;
+    public static double SAMPLE_INTERVAL = 0.01; // s, trajectories and turns are sampled at this in that mode
+
+    private static final DriveSignal ZERO_SIGNAL = new DriveSignal();
 
     private final TrajectoryFollower follower;
 
     private final PIDFController turnController;
 
+    //Holonomic PIDVA used for sampled segments, which the follower can't take
+    private final PIDFController axialController;
+    private final PIDFController lateralController;
+    private final PIDFController headingController;
+
+    //The same controllers on primitives, for ALLOCATION_FREE mode
+    private final ScratchPidController scratchTurnController;
+    private final ScratchPidController scratchAxialController;
+    private final ScratchPidController scratchLateralController;
+    private final ScratchPidController scratchHeadingController;
+
+    //How close to the end a sampled trajectory has to get, and for how long past its duration it
+    //may try, before it's done; the same settle as the follower's. Zero ends it at its duration.
+    private double admissibleErrorX, admissibleErrorY, admissibleErrorHeading;
+    private double timeout; // s
+
+    //The current sequence with its trajectories and turns sampled, for ALLOCATION_FREE mode
+    private TrajectorySequence sampledSequence;
+    private SampledTrajectorySegment[] sampledSegments;
+
+    //What update(Pose2d, Pose2d) writes into in ALLOCATION_FREE mode
+    private final MutableDriveSignal compatibilitySignal = new MutableDriveSignal();
+
     private final NanoClock clock;
 
-    private TrajectorySequence currentTrajectorySequence;
+    protected TrajectorySequence currentTrajectorySequence;
     private double currentSegmentStartTime;
     private int currentSegmentIndex;
     private int lastSegmentIndex;
 
-    private Pose2d lastPoseError = new Pose2d();
+    //Kept as primitives so the error doesn't need a new Pose2d every loop
+    private double lastErrorX, lastErrorY, lastErrorHeading;
 
-    List<TrajectoryMarker> remainingMarkers = new ArrayList<>();
+    //Markers of the current segment that haven't fired yet are [markerCursor, markerEnd)
+    private MarkerTimeline markerTimeline;
+    private int markerCursor = 0;
+    private int markerEnd = 0;
 
-    private final FtcDashboard dashboard;
-    private final LinkedList<Pose2d> poseHistory = new LinkedList<>();
+    //Optional executor the marker callbacks are run on, so slow ones can't stretch the loop
+    private Executor markerExecutor = null;
+
+    //Dashboard drawing happens on the renderer's thread, the runner only publishes its state
+    private final TrajectorySequenceRenderer renderer;
+
+    //Ring buffer of past (x, y) positions, oldest entry at poseHistoryStart
+    private double[] poseHistoryX = new double[0];
+    private double[] poseHistoryY = new double[0];
+    private int poseHistoryStart = 0;
+    private int poseHistorySize = 0;
 
     public TrajectorySequenceRunner(TrajectoryFollower follower, PIDCoefficients headingPIDCoefficients) {
+        this(follower, headingPIDCoefficients, new PIDCoefficients(0, 0, 0));
+    }
+
+    /**
+     * @param translationalPIDCoefficients Gains used for the axial and lateral error while following
+     *                                     sampled segments.
+     */
+    public TrajectorySequenceRunner(
+            TrajectoryFollower follower,
+            PIDCoefficients headingPIDCoefficients,
+            PIDCoefficients translationalPIDCoefficients
+    ) {
+        this(follower, headingPIDCoefficients, translationalPIDCoefficients, NanoClock.system());
+    }
+
+    /**
+     * @param clock Clock segment times are measured with; should be the same one the follower uses.
+     */
+    public TrajectorySequenceRunner(
+            TrajectoryFollower follower,
+            PIDCoefficients headingPIDCoefficients,
+            PIDCoefficients translationalPIDCoefficients,
+            NanoClock clock
+    ) {
         this.follower = follower;
 
         turnController = new PIDFController(headingPIDCoefficients);
         turnController.setInputBounds(0, 2 * Math.PI);
 
-        clock = NanoClock.system();
+        axialController = new PIDFController(translationalPIDCoefficients);
+        lateralController = new PIDFController(translationalPIDCoefficients);
+        headingController = new PIDFController(headingPIDCoefficients);
+        headingController.setInputBounds(-Math.PI, Math.PI);
+
+        scratchTurnController = new ScratchPidController(headingPIDCoefficients, true, clock);
+        scratchAxialController = new ScratchPidController(translationalPIDCoefficients, false, clock);
+        scratchLateralController = new ScratchPidController(translationalPIDCoefficients, false, clock);
+        scratchHeadingController = new ScratchPidController(headingPIDCoefficients, true, clock);
 
-        dashboard = FtcDashboard.getInstance();
-        dashboard.setTelemetryTransmissionInterval(25);
+        this.clock = clock;
+
+        renderer = TrajectorySequenceRenderer.getInstance();
     }
 
     public void followTrajectorySequenceAsync(TrajectorySequence trajectorySequence) {
@@ -74,69 +144,109 @@ public class TrajectorySequenceRunner {
         currentSegmentStartTime = clock.seconds();
         currentSegmentIndex = 0;
         lastSegmentIndex = -1;
+
+        markerTimeline = trajectorySequence.getMarkerTimeline();
+        markerCursor = 0;
+        markerEnd = 0;
+
+        if (ALLOCATION_FREE) sampleSegments();
+    }
+
+    /**
+     * Samples the current sequence's trajectories and turns, once per sequence so following the
+     * same one again doesn't redo it.
+     */
+    private void sampleSegments() {
+        if (sampledSequence == currentTrajectorySequence) return;
+
+        sampledSegments = new SampledTrajectorySegment[currentTrajectorySequence.size()];
+        for (int i = 0; i < sampledSegments.length; i++) {
+            SequenceSegment segment = currentTrajectorySequence.get(i);
+            if (!(segment instanceof WaitSegment)) {
+                sampledSegments[i] = SampledTrajectorySegment.of(segment, SAMPLE_INTERVAL);
+            }
+        }
+        sampledSequence = currentTrajectorySequence;
+    }
+
+    /**
+     * Gives sampled trajectories the settle the follower gives RR's: past its duration a sampled
+     * trajectory keeps correcting towards its end pose until the robot frame error is within
+     * admissibleError or timeout seconds have passed. Pass the follower's own values.
+     */
+    public void setAdmissibleError(Pose2d admissibleError, double timeout) {
+        admissibleErrorX = admissibleError.getX();
+        admissibleErrorY = admissibleError.getY();
+        admissibleErrorHeading = admissibleError.getHeading();
+        this.timeout = timeout;
+    }
+
+    /**
+     * Sets the executor marker callbacks are dispatched to. Use a single threaded executor if the
+     * callbacks depend on running in order. Null runs them inline on the control thread.
+     */
+    public void setMarkerExecutor(@Nullable Executor markerExecutor) {
+        this.markerExecutor = markerExecutor;
     }
 
     public @Nullable
     DriveSignal update(Pose2d poseEstimate, Pose2d poseVelocity) {
-        Pose2d targetPose = null;
-        DriveSignal driveSignal = null;
+        if (ALLOCATION_FREE) {
+            boolean hasSignal = update(poseEstimate.getX(), poseEstimate.getY(), poseEstimate.getHeading(), compatibilitySignal);
+            return hasSignal ? compatibilitySignal.toDriveSignal() : null;
+        }
 
-        TelemetryPacket packet = new TelemetryPacket();
-        Canvas fieldOverlay = packet.fieldOverlay();
+        DriveSignal driveSignal = null;
 
-        SequenceSegment currentSegment = null;
+        int activeSegmentIndex = -1;
+        double activeSegmentTime = 0.0;
 
         if (currentTrajectorySequence != null) {
             if (currentSegmentIndex >= currentTrajectorySequence.size()) {
-                for (TrajectoryMarker marker : remainingMarkers) {
-                    marker.getCallback().onMarkerReached();
-                }
-
-                remainingMarkers.clear();
+                dispatchMarkers(Double.POSITIVE_INFINITY);
 
                 currentTrajectorySequence = null;
             }
 
             if (currentTrajectorySequence == null)
-                return new DriveSignal();
+                return ZERO_SIGNAL;
 
             double now = clock.seconds();
-            boolean isNewTransition = currentSegmentIndex != lastSegmentIndex;
-
-            currentSegment = currentTrajectorySequence.get(currentSegmentIndex);
+            boolean isNewTransition = beginSegment(now);
 
-            if (isNewTransition) {
-                currentSegmentStartTime = now;
-                lastSegmentIndex = currentSegmentIndex;
-
-                for (TrajectoryMarker marker : remainingMarkers) {
-                    marker.getCallback().onMarkerReached();
-                }
-
-                remainingMarkers.clear();
-
-                remainingMarkers.addAll(currentSegment.getMarkers());
-                Collections.sort(remainingMarkers, (t1, t2) -> Double.compare(t1.getTime(), t2.getTime()));
-            }
+            SequenceSegment currentSegment = currentTrajectorySequence.get(currentSegmentIndex);
 
             double deltaTime = now - currentSegmentStartTime;
 
-            if (currentSegment instanceof TrajectorySegment) {
-                Trajectory currentTrajectory = ((TrajectorySegment) currentSegment).getTrajectory();
+            activeSegmentIndex = currentSegmentIndex;
+            activeSegmentTime = deltaTime;
 
+            if (currentSegment instanceof TrajectorySegment) {
+                //The timeline owns this trajectory's markers, so the follower gets a copy without them
                 if (isNewTransition)
-                    follower.followTrajectory(currentTrajectory);
+                    follower.followTrajectory(markerTimeline.getUnmarkedTrajectory(currentSegmentIndex));
 
                 if (!follower.isFollowing()) {
                     currentSegmentIndex++;
 
-                    driveSignal = new DriveSignal();
+                    driveSignal = ZERO_SIGNAL;
                 } else {
                     driveSignal = follower.update(poseEstimate, poseVelocity);
-                    lastPoseError = follower.getLastError();
+                    setLastPoseError(follower.getLastError());
                 }
+            } else if (currentSegment instanceof SampledTrajectorySegment) {
+                if (isNewTransition) {
+                    axialController.reset();
+                    lateralController.reset();
+                    headingController.reset();
+                }
+
+                driveSignal = followSampled((SampledTrajectorySegment) currentSegment, deltaTime, poseEstimate);
 
-                targetPose = currentTrajectory.get(deltaTime);
+                if (isSettled(deltaTime, currentSegment.getDuration())) {
+                    currentSegmentIndex++;
+                    driveSignal = ZERO_SIGNAL;
+                }
             } else if (currentSegment instanceof TurnSegment) {
                 MotionState targetState = ((TurnSegment) currentSegment).getMotionProfile().get(deltaTime);
 
@@ -147,10 +257,9 @@ public class TrajectorySequenceRunner {
                 double targetOmega = targetState.getV();
                 double targetAlpha = targetState.getA();
 
-                lastPoseError = new Pose2d(0, 0, turnController.getLastError());
-
-                Pose2d startPose = currentSegment.getStartPose();
-                targetPose = startPose.copy(startPose.getX(), startPose.getY(), targetState.getX());
+                lastErrorX = 0;
+                lastErrorY = 0;
+                lastErrorHeading = turnController.getLastError();
 
                 driveSignal = new DriveSignal(
                         new Pose2d(0, 0, targetOmega + correction),
@@ -159,115 +268,301 @@ public class TrajectorySequenceRunner {
 
                 if (deltaTime >= currentSegment.getDuration()) {
                     currentSegmentIndex++;
-                    driveSignal = new DriveSignal();
+                    driveSignal = ZERO_SIGNAL;
                 }
             } else if (currentSegment instanceof WaitSegment) {
-                lastPoseError = new Pose2d();
+                lastErrorX = 0;
+                lastErrorY = 0;
+                lastErrorHeading = 0;
 
-                targetPose = currentSegment.getStartPose();
-                driveSignal = new DriveSignal();
+                driveSignal = ZERO_SIGNAL;
 
                 if (deltaTime >= currentSegment.getDuration()) {
                     currentSegmentIndex++;
                 }
             }
 
-            while (remainingMarkers.size() > 0 && deltaTime > remainingMarkers.get(0).getTime()) {
-                remainingMarkers.get(0).getCallback().onMarkerReached();
-                remainingMarkers.remove(0);
-            }
+            dispatchMarkers(deltaTime);
         }
 
-        poseHistory.add(poseEstimate);
+        addPoseHistory(poseEstimate);
 
-        if (POSE_HISTORY_LIMIT > -1 && poseHistory.size() > POSE_HISTORY_LIMIT) {
-            poseHistory.removeFirst();
-        }
+        renderer.publish(
+                poseEstimate,
+                lastErrorX, lastErrorY, lastErrorHeading,
+                currentTrajectorySequence, activeSegmentIndex, activeSegmentTime,
+                poseHistoryX, poseHistoryY, poseHistoryStart, poseHistorySize
+        );
+
+        return driveSignal;
+    }
+
+    /**
+     * {@link #update(Pose2d, Pose2d)} for {@link #ALLOCATION_FREE} mode. The pose goes in as
+     * primitives and the signal is written into target, so once a sequence has started nothing is
+     * allocated; RR's follower, motion profiles and PIDFController all allocate every loop.
+     * <p>
+     * Trajectories and turns are sampled when the sequence starts and followed like sampled
+     * segments are, trajectories settling with the admissible error in place of the follower.
+     *
+     * @return false when idle, where update(Pose2d, Pose2d) returns null.
+     */
+    public boolean update(double x, double y, double heading, MutableDriveSignal target) {
+        int activeSegmentIndex = -1;
+        double activeSegmentTime = 0.0;
+
+        if (currentTrajectorySequence != null) {
+            if (currentSegmentIndex >= currentTrajectorySequence.size()) {
+                dispatchMarkers(Double.POSITIVE_INFINITY);
 
-        packet.put("x", poseEstimate.getX());
-        packet.put("y", poseEstimate.getY());
-        packet.put("heading (deg)", Math.toDegrees(poseEstimate.getHeading()));
+                currentTrajectorySequence = null;
+                target.setZero();
+                return true;
+            }
 
-        packet.put("xError", getLastPoseError().getX());
-        packet.put("yError", getLastPoseError().getY());
-        packet.put("headingError (deg)", Math.toDegrees(getLastPoseError().getHeading()));
+            sampleSegments();
 
-        draw(fieldOverlay, currentTrajectorySequence, currentSegment, targetPose, poseEstimate);
+            double now = clock.seconds();
+            boolean isNewTransition = beginSegment(now);
 
-        dashboard.sendTelemetryPacket(packet);
+            SequenceSegment currentSegment = currentTrajectorySequence.get(currentSegmentIndex);
+            double deltaTime = now - currentSegmentStartTime;
 
-        return driveSignal;
-    }
+            activeSegmentIndex = currentSegmentIndex;
+            activeSegmentTime = deltaTime;
 
-    private void draw(
-            Canvas fieldOverlay,
-            TrajectorySequence sequence, SequenceSegment currentSegment,
-            Pose2d targetPose, Pose2d poseEstimate
-    ) {
-        if (sequence != null) {
-            for (int i = 0; i < sequence.size(); i++) {
-                SequenceSegment segment = sequence.get(i);
-
-                if (segment instanceof TrajectorySegment) {
-                    fieldOverlay.setStrokeWidth(1);
-                    fieldOverlay.setStroke(COLOR_INACTIVE_TRAJECTORY);
-
-                    DashboardUtil.drawSampledPath(fieldOverlay, ((TrajectorySegment) segment).getTrajectory().getPath());
-                } else if (segment instanceof TurnSegment) {
-                    Pose2d pose = segment.getStartPose();
-
-                    fieldOverlay.setFill(COLOR_INACTIVE_TURN);
-                    fieldOverlay.fillCircle(pose.getX(), pose.getY(), 2);
-                } else if (segment instanceof WaitSegment) {
-                    Pose2d pose = segment.getStartPose();
-
-                    fieldOverlay.setStrokeWidth(1);
-                    fieldOverlay.setStroke(COLOR_INACTIVE_WAIT);
-                    fieldOverlay.strokeCircle(pose.getX(), pose.getY(), 3);
+            boolean isDone = deltaTime >= currentSegment.getDuration();
+
+            if (currentSegment instanceof WaitSegment) {
+                lastErrorX = 0;
+                lastErrorY = 0;
+                lastErrorHeading = 0;
+
+                target.setZero();
+            } else {
+                if (isNewTransition) {
+                    scratchTurnController.reset();
+                    scratchAxialController.reset();
+                    scratchLateralController.reset();
+                    scratchHeadingController.reset();
+                }
+
+                SampledTrajectorySegment segment = sampledSegments[currentSegmentIndex];
+                if (currentSegment instanceof TurnSegment) {
+                    followTurn(segment, deltaTime, heading, target);
+                } else {
+                    followSampled(segment, deltaTime, x, y, heading, target);
+                    isDone = isSettled(deltaTime, currentSegment.getDuration());
                 }
             }
+
+            if (isDone) {
+                currentSegmentIndex++;
+                target.setZero();
+            }
+
+            dispatchMarkers(deltaTime);
         }
 
-        if (currentSegment != null) {
-            if (currentSegment instanceof TrajectorySegment) {
-                Trajectory currentTrajectory = ((TrajectorySegment) currentSegment).getTrajectory();
+        addPoseHistory(x, y);
 
-                fieldOverlay.setStrokeWidth(1);
-                fieldOverlay.setStroke(COLOR_ACTIVE_TRAJECTORY);
+        renderer.publish(
+                x, y, heading,
+                lastErrorX, lastErrorY, lastErrorHeading,
+                currentTrajectorySequence, activeSegmentIndex, activeSegmentTime,
+                poseHistoryX, poseHistoryY, poseHistoryStart, poseHistorySize
+        );
 
-                DashboardUtil.drawSampledPath(fieldOverlay, currentTrajectory.getPath());
-            } else if (currentSegment instanceof TurnSegment) {
-                Pose2d pose = currentSegment.getStartPose();
+        return activeSegmentIndex >= 0;
+    }
 
-                fieldOverlay.setFill(COLOR_ACTIVE_TURN);
-                fieldOverlay.fillCircle(pose.getX(), pose.getY(), 3);
-            } else if (currentSegment instanceof WaitSegment) {
-                Pose2d pose = currentSegment.getStartPose();
+    /**
+     * Whether a sampled trajectory is done, on the error of the update just run: like
+     * TrajectoryFollower, once past its duration when it's within the admissible error of its end
+     * or out of time to get there.
+     */
+    private boolean isSettled(double t, double duration) {
+        if (t < duration) return false;
+        if (t >= duration + timeout) return true;
+
+        return Math.abs(lastErrorX) < admissibleErrorX
+                && Math.abs(lastErrorY) < admissibleErrorY
+                && Math.abs(lastErrorHeading) < admissibleErrorHeading;
+    }
+
+    /**
+     * Starts timing the current segment and moves on to its markers the first loop it's active.
+     * Returns if this is that first loop.
+     */
+    private boolean beginSegment(double now) {
+        if (currentSegmentIndex == lastSegmentIndex) return false;
+
+        currentSegmentStartTime = now;
+        lastSegmentIndex = currentSegmentIndex;
+
+        dispatchMarkers(Double.POSITIVE_INFINITY);
+
+        markerCursor = markerTimeline.getStart(currentSegmentIndex);
+        markerEnd = markerTimeline.getEnd(currentSegmentIndex);
+        return true;
+    }
+
+    /**
+     * The turn control law of update(), on the sampled turn profile.
+     */
+    private void followTurn(SampledTrajectorySegment segment, double t, double heading, MutableDriveSignal target) {
+        scratchTurnController.setTargetPosition(segment.interpolate(t, 2));
+        double correction = scratchTurnController.update(heading);
 
-                fieldOverlay.setStrokeWidth(1);
-                fieldOverlay.setStroke(COLOR_ACTIVE_WAIT);
-                fieldOverlay.strokeCircle(pose.getX(), pose.getY(), 3);
+        lastErrorX = 0;
+        lastErrorY = 0;
+        lastErrorHeading = scratchTurnController.getLastError();
+
+        target.set(0, 0, segment.interpolate(t, 5) + correction, 0, 0, segment.interpolate(t, 8));
+    }
+
+    /**
+     * {@link #followSampled(SampledTrajectorySegment, double, Pose2d)} with RR's Kinematics
+     * written out on primitives.
+     */
+    private void followSampled(SampledTrajectorySegment segment, double t, double x, double y, double heading, MutableDriveSignal target) {
+        double targetX = segment.interpolate(t, 0);
+        double targetY = segment.interpolate(t, 1);
+        double targetHeading = segment.interpolate(t, 2);
+        double velX = segment.interpolate(t, 3);
+        double velY = segment.interpolate(t, 4);
+        double velHeading = segment.interpolate(t, 5);
+        double accelX = segment.interpolate(t, 6);
+        double accelY = segment.interpolate(t, 7);
+        double accelHeading = segment.interpolate(t, 8);
+
+        //Kinematics.fieldToRobotVelocity and fieldToRobotAcceleration
+        double cos = Math.cos(targetHeading), sin = Math.sin(targetHeading);
+        double robotVelX = velX * cos + velY * sin;
+        double robotVelY = -velX * sin + velY * cos;
+        double robotAccelX = accelX * cos + accelY * sin + (-velX * sin + velY * cos) * velHeading;
+        double robotAccelY = -accelX * sin + accelY * cos + (-velX * cos - velY * sin) * velHeading;
+
+        //Kinematics.calculateRobotPoseError
+        double fieldErrorX = targetX - x, fieldErrorY = targetY - y;
+        double currentCos = Math.cos(heading), currentSin = Math.sin(heading);
+        lastErrorX = fieldErrorX * currentCos + fieldErrorY * currentSin;
+        lastErrorY = -fieldErrorX * currentSin + fieldErrorY * currentCos;
+        lastErrorHeading = Angle.normDelta(targetHeading - heading);
+
+        //The controllers run on the error, so the measured position is always zero
+        scratchAxialController.setTargetPosition(lastErrorX);
+        scratchLateralController.setTargetPosition(lastErrorY);
+        scratchHeadingController.setTargetPosition(lastErrorHeading);
+
+        target.set(
+                robotVelX + scratchAxialController.update(0.0),
+                robotVelY + scratchLateralController.update(0.0),
+                velHeading + scratchHeadingController.update(0.0),
+                robotAccelX, robotAccelY, accelHeading
+        );
+    }
+
+    /**
+     * Same control law as HolonomicPIDVAFollower, with the targets read from the samples.
+     */
+    private DriveSignal followSampled(SampledTrajectorySegment segment, double t, Pose2d poseEstimate) {
+        Pose2d targetPose = segment.get(t);
+        Pose2d targetVel = segment.velocity(t);
+        Pose2d targetAccel = segment.acceleration(t);
+
+        Pose2d targetRobotVel = Kinematics.fieldToRobotVelocity(targetPose, targetVel);
+        Pose2d targetRobotAccel = Kinematics.fieldToRobotAcceleration(targetPose, targetVel, targetAccel);
+
+        Pose2d poseError = Kinematics.calculateRobotPoseError(targetPose, poseEstimate);
+
+        axialController.setTargetPosition(poseError.getX());
+        lateralController.setTargetPosition(poseError.getY());
+        headingController.setTargetPosition(poseError.getHeading());
+
+        axialController.setTargetVelocity(targetRobotVel.getX());
+        lateralController.setTargetVelocity(targetRobotVel.getY());
+        headingController.setTargetVelocity(targetRobotVel.getHeading());
+
+        //The controllers run on the error, so the measured position is always zero
+        double axialCorrection = axialController.update(0.0);
+        double lateralCorrection = lateralController.update(0.0);
+        double headingCorrection = headingController.update(0.0);
+
+        setLastPoseError(poseError);
+
+        return new DriveSignal(
+                targetRobotVel.plus(new Pose2d(axialCorrection, lateralCorrection, headingCorrection)),
+                targetRobotAccel
+        );
+    }
+
+    /**
+     * Fires every pending marker of the current segment with a time before segmentTime.
+     */
+    private void dispatchMarkers(double segmentTime) {
+        while (markerCursor < markerEnd && segmentTime > markerTimeline.getTime(markerCursor)) {
+            MarkerCallback callback = markerTimeline.getCallback(markerCursor);
+            markerCursor++;
+
+            if (markerExecutor == null) {
+                callback.onMarkerReached();
+            } else {
+                markerExecutor.execute(callback::onMarkerReached);
             }
         }
+    }
+
+    /**
+     * Drops the markers of the current segment that haven't fired yet.
+     */
+    protected void clearRemainingMarkers() {
+        markerCursor = markerEnd;
+    }
 
-        if (targetPose != null) {
-            fieldOverlay.setStrokeWidth(1);
-            fieldOverlay.setStroke("#4CAF50");
-            DashboardUtil.drawRobot(fieldOverlay, targetPose);
+    private void setLastPoseError(Pose2d error) {
+        lastErrorX = error.getX();
+        lastErrorY = error.getY();
+        lastErrorHeading = error.getHeading();
+    }
+
+    private void addPoseHistory(Pose2d poseEstimate) {
+        addPoseHistory(poseEstimate.getX(), poseEstimate.getY());
+    }
+
+    private void addPoseHistory(double x, double y) {
+        //Only reallocates when the limit is changed from the dashboard
+        int capacity = Math.max(POSE_HISTORY_LIMIT, 0);
+        if (poseHistoryX.length != capacity) {
+            poseHistoryX = new double[capacity];
+            poseHistoryY = new double[capacity];
+            poseHistoryStart = 0;
+            poseHistorySize = 0;
         }
 
-        fieldOverlay.setStroke("#3F51B5");
-        DashboardUtil.drawPoseHistory(fieldOverlay, poseHistory);
+        if (capacity == 0) return;
+
+        int index = (poseHistoryStart + poseHistorySize) % capacity;
+        poseHistoryX[index] = x;
+        poseHistoryY[index] = y;
 
-        fieldOverlay.setStroke("#3F51B5");
-        DashboardUtil.drawRobot(fieldOverlay, poseEstimate);
+        if (poseHistorySize < capacity) {
+            poseHistorySize++;
+        } else {
+            poseHistoryStart = (poseHistoryStart + 1) % capacity;
+        }
     }
 
     public Pose2d getLastPoseError() {
-        return lastPoseError;
+        return new Pose2d(lastErrorX, lastErrorY, lastErrorHeading);
     }
 
     public boolean isBusy() {
         return currentTrajectorySequence != null;
     }
+
+    public @Nullable
+    TrajectorySequence getCurrentTrajectorySequence() {
+        return currentTrajectorySequence;
+    }
 }
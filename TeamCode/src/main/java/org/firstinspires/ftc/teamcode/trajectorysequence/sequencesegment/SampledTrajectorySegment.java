@@ -0,0 +1,138 @@
+package org.firstinspires.ftc.teamcode.trajectorysequence.sequencesegment;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.profile.MotionState;
+import com.acmerobotics.roadrunner.trajectory.Trajectory;
+import com.acmerobotics.roadrunner.trajectory.TrajectoryMarker;
+import com.acmerobotics.roadrunner.util.Angle;
+
+import java.nio.DoubleBuffer;
+import java.util.List;
+
+/**
+ * A fully time parameterized trajectory stored as evenly spaced samples of the field frame pose,
+ * velocity and acceleration, usually loaded from a precompiled file.
+ * <p>
+ * Everything is linearly interpolated between samples, so following it requires no spline or
+ * motion profile work at all.
+ */
+public final class SampledTrajectorySegment extends SequenceSegment {
+    /**
+     * Doubles per sample: x, y, heading, then the velocity and acceleration of each.
+     */
+    public static final int SAMPLE_SIZE = 9;
+
+    private final DoubleBuffer samples;
+    private final int sampleCount;
+    private final double sampleInterval;
+
+    /**
+     * @param samples        sampleCount * SAMPLE_SIZE doubles starting at index 0; not copied.
+     * @param sampleInterval Time between samples in seconds.
+     */
+    public SampledTrajectorySegment(DoubleBuffer samples, int sampleCount, double sampleInterval, List<TrajectoryMarker> markers) {
+        super(
+                (sampleCount - 1) * sampleInterval,
+                samplePose(samples, 0, 0),
+                samplePose(samples, sampleCount - 1, 0),
+                markers
+        );
+
+        this.samples = samples;
+        this.sampleCount = sampleCount;
+        this.sampleInterval = sampleInterval;
+    }
+
+    private static Pose2d samplePose(DoubleBuffer samples, int index, int offset) {
+        int base = index * SAMPLE_SIZE + offset;
+        return new Pose2d(samples.get(base), samples.get(base + 1), samples.get(base + 2));
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public double getSampleInterval() {
+        return sampleInterval;
+    }
+
+    public double getSample(int index, int component) {
+        return samples.get(index * SAMPLE_SIZE + component);
+    }
+
+    public Pose2d get(double t) {
+        return new Pose2d(interpolate(t, 0), interpolate(t, 1), interpolate(t, 2));
+    }
+
+    public Pose2d velocity(double t) {
+        return new Pose2d(interpolate(t, 3), interpolate(t, 4), interpolate(t, 5));
+    }
+
+    public Pose2d acceleration(double t) {
+        return new Pose2d(interpolate(t, 6), interpolate(t, 7), interpolate(t, 8));
+    }
+
+    /**
+     * One component of a sample (see {@link #SAMPLE_SIZE}) at time t, without allocating. The
+     * heading (component 2) is interpolated the short way around.
+     */
+    public double interpolate(double t, int component) {
+        if (sampleCount == 1) return samples.get(component);
+
+        double position = Math.max(0.0, Math.min(t / sampleInterval, sampleCount - 1));
+        int i = Math.min((int) position, sampleCount - 2);
+        double fraction = position - i;
+
+        double a = samples.get(i * SAMPLE_SIZE + component);
+        double b = samples.get((i + 1) * SAMPLE_SIZE + component);
+
+        return component == 2 ?
+                Angle.norm(a + fraction * Angle.normDelta(b - a)) :
+                a + fraction * (b - a);
+    }
+
+    /**
+     * Samples a trajectory or turn segment at the closest interval to sampleInterval that lands
+     * exactly on its end. Turns hold the start position.
+     */
+    public static SampledTrajectorySegment of(SequenceSegment segment, double sampleInterval) {
+        if (segment instanceof SampledTrajectorySegment) return (SampledTrajectorySegment) segment;
+
+        int sampleCount = Math.max((int) Math.ceil(segment.getDuration() / sampleInterval), 1) + 1;
+        double interval = segment.getDuration() / (sampleCount - 1);
+        double[] samples = new double[sampleCount * SAMPLE_SIZE];
+
+        for (int sample = 0; sample < sampleCount; sample++) {
+            double t = sample * interval;
+            Pose2d pose, velocity, acceleration;
+
+            if (segment instanceof TrajectorySegment) {
+                Trajectory trajectory = ((TrajectorySegment) segment).getTrajectory();
+                pose = trajectory.get(t);
+                velocity = trajectory.velocity(t);
+                acceleration = trajectory.acceleration(t);
+            } else if (segment instanceof TurnSegment) {
+                MotionState state = ((TurnSegment) segment).getMotionProfile().get(t);
+                Pose2d startPose = segment.getStartPose();
+                pose = new Pose2d(startPose.getX(), startPose.getY(), state.getX());
+                velocity = new Pose2d(0, 0, state.getV());
+                acceleration = new Pose2d(0, 0, state.getA());
+            } else {
+                throw new IllegalArgumentException("Unsupported segment type " + segment.getClass().getSimpleName());
+            }
+
+            int base = sample * SAMPLE_SIZE;
+            samples[base] = pose.getX();
+            samples[base + 1] = pose.getY();
+            samples[base + 2] = pose.getHeading();
+            samples[base + 3] = velocity.getX();
+            samples[base + 4] = velocity.getY();
+            samples[base + 5] = velocity.getHeading();
+            samples[base + 6] = acceleration.getX();
+            samples[base + 7] = acceleration.getY();
+            samples[base + 8] = acceleration.getHeading();
+        }
+
+        return new SampledTrajectorySegment(DoubleBuffer.wrap(samples), sampleCount, interval, segment.getMarkers());
+    }
+}
@@ -1,7 +1,10 @@
 package org.firstinspires.ftc.teamcode.util;
 
+import android.content.res.AssetFileDescriptor;
+
 import androidx.annotation.Nullable;
 
+import com.acmerobotics.roadrunner.trajectory.MarkerCallback;
 import com.acmerobotics.roadrunner.trajectory.Trajectory;
 import com.acmerobotics.roadrunner.trajectory.TrajectoryBuilder;
 import com.acmerobotics.roadrunner.trajectory.config.TrajectoryConfig;
@@ -9,24 +12,46 @@ import com.acmerobotics.roadrunner.trajectory.config.TrajectoryConfigManager;
 import com.acmerobotics.roadrunner.trajectory.config.TrajectoryGroupConfig;
 
 import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequence;
+import org.firstinspires.ftc.teamcode.trajectorysequence.TrajectorySequenceFormat;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Set of utilities for loading trajectories from assets (the plugin save location).
  */
 public class AssetsTrajectoryManager {
+    /**
+     * Where exported trajectory sequences are written on the robot controller.
+     */
+    public static final File COMPILED_FOLDER = new File(AppUtil.ROOT_FOLDER + "/RoadRunner/trajectory/");
+
+    //The group config doesn't change at runtime, so it's only parsed once
+    private static TrajectoryGroupConfig groupConfig = null;
+    private static final Map<String, Trajectory> trajectories = new HashMap<>();
 
     /**
      * Loads the group config.
      */
-    public static @Nullable
+    public static synchronized @Nullable
     TrajectoryGroupConfig loadGroupConfig() {
+        if (groupConfig != null) return groupConfig;
+
         try {
             InputStream inputStream = AppUtil.getDefContext().getAssets().open(
                     "trajectory/" + TrajectoryConfigManager.GROUP_FILENAME);
-            return TrajectoryConfigManager.loadGroupConfig(inputStream);
+            groupConfig = TrajectoryConfigManager.loadGroupConfig(inputStream);
+            return groupConfig;
         } catch (IOException e) {
             return null;
         }
@@ -58,13 +83,71 @@ public class AssetsTrajectoryManager {
     }
 
     /**
-     * Loads a trajectory with the given name.
+     * Loads a trajectory with the given name. Built once per name, the YAML can't change at runtime.
      */
-    public static @Nullable Trajectory load(String name) {
+    public static synchronized @Nullable Trajectory load(String name) {
+        Trajectory trajectory = trajectories.get(name);
+        if (trajectory != null) return trajectory;
+
         TrajectoryBuilder builder = loadBuilder(name);
         if (builder == null) {
             return null;
         }
-        return builder.build();
+        trajectory = builder.build();
+        trajectories.put(name, trajectory);
+        return trajectory;
+    }
+
+    /**
+     * Loads a precompiled trajectory sequence with the given name from assets. The file is memory
+     * mapped, which requires it to be stored uncompressed in the APK (see TeamCode/build.gradle).
+     *
+     * @param markerCallbacks Callbacks for the sequence's markers, in the order they fire.
+     */
+    public static @Nullable TrajectorySequence loadCompiled(String name, MarkerCallback... markerCallbacks) {
+        try (AssetFileDescriptor descriptor = AppUtil.getDefContext().getAssets().openFd(
+                "trajectory/" + name + TrajectorySequenceFormat.FILE_EXTENSION);
+             FileInputStream inputStream = descriptor.createInputStream()) {
+            MappedByteBuffer buffer = inputStream.getChannel().map(
+                    FileChannel.MapMode.READ_ONLY, descriptor.getStartOffset(), descriptor.getDeclaredLength());
+            return TrajectorySequenceFormat.read(buffer, markerCallbacks);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Loads a precompiled trajectory sequence with the given name from {@link #COMPILED_FOLDER}.
+     */
+    public static @Nullable TrajectorySequence loadCompiledFromStorage(String name, MarkerCallback... markerCallbacks) {
+        File file = new File(COMPILED_FOLDER, name + TrajectorySequenceFormat.FILE_EXTENSION);
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return TrajectorySequenceFormat.read(buffer, markerCallbacks);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Samples a trajectory sequence and writes it to {@link #COMPILED_FOLDER}, from where it can be
+     * pulled and added to assets.
+     *
+     * @param sampleInterval Time between samples in seconds, 0.01 is plenty at 100 Hz and below.
+     * @return If the file was written.
+     */
+    public static boolean exportCompiled(String name, TrajectorySequence sequence, double sampleInterval) {
+        if (!COMPILED_FOLDER.isDirectory() && !COMPILED_FOLDER.mkdirs()) return false;
+
+        File file = new File(COMPILED_FOLDER, name + TrajectorySequenceFormat.FILE_EXTENSION);
+
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            TrajectorySequenceFormat.write(sequence, sampleInterval, outputStream);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
     }
 }
@@ -26,6 +26,20 @@ public class DashboardUtil {
         canvas.strokePolyline(xPoints, yPoints);
     }
 
+    /**
+     * Draws a pose history stored in a ring buffer, starting from the oldest entry at start.
+     */
+    public static void drawPoseHistory(Canvas canvas, double[] xRing, double[] yRing, int start, int size) {
+        double[] xPoints = new double[size];
+        double[] yPoints = new double[size];
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % xRing.length;
+            xPoints[i] = xRing[index];
+            yPoints[i] = yRing[index];
+        }
+        canvas.strokePolyline(xPoints, yPoints);
+    }
+
     public static void drawSampledPath(Canvas canvas, Path path, double resolution) {
         int samples = (int) Math.ceil(path.length() / resolution);
         double[] xPoints = new double[samples];
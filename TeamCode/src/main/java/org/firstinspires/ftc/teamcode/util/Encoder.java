@@ -39,19 +39,13 @@ public class Encoder {
 
     private Direction direction;
 
-    private int lastPosition;
-    private double velocityEstimate;
-    private double lastUpdateTime;
+    private final VelocityEstimator velocityEstimator = new VelocityEstimator();
 
     public Encoder(DcMotorEx motor, NanoClock clock) {
         this.motor = motor;
         this.clock = clock;
 
         this.direction = Direction.FORWARD;
-
-        this.lastPosition = 0;
-        this.velocityEstimate = 0.0;
-        this.lastUpdateTime = clock.seconds();
     }
 
     public Encoder(DcMotorEx motor) {
@@ -77,13 +71,7 @@ public class Encoder {
     public int getCurrentPosition() {
         int multiplier = getMultiplier();
         int currentPosition = motor.getCurrentPosition() * multiplier;
-        if (currentPosition != lastPosition) {
-            double currentTime = clock.seconds();
-            double dt = currentTime - lastUpdateTime;
-            velocityEstimate = (currentPosition - lastPosition) / dt;
-            lastPosition = currentPosition;
-            lastUpdateTime = currentTime;
-        }
+        velocityEstimator.addSample(clock.seconds(), currentPosition);
         return currentPosition;
     }
 
@@ -93,6 +81,18 @@ public class Encoder {
     }
 
     public double getCorrectedVelocity() {
-        return inverseOverflow(getRawVelocity(), velocityEstimate);
+        return inverseOverflow(getRawVelocity(), velocityEstimator.getVelocity());
+    }
+
+    /**
+     * Velocity fitted from the positions read through {@link #getCurrentPosition()}, see
+     * {@link VelocityEstimator}. Doesn't read the motor.
+     */
+    public double getEstimatedVelocity() {
+        return velocityEstimator.getVelocity();
+    }
+
+    public double getEstimatedAcceleration() {
+        return velocityEstimator.getAcceleration();
     }
 }
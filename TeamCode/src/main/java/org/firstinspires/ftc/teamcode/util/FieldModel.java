@@ -0,0 +1,129 @@
+package org.firstinspires.ftc.teamcode.util;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+
+/**
+ * 2D map of the field for ray casting distance sensor beams: the perimeter walls plus whatever
+ * else a beam can hit at sensor height, as line segments and circles in Road Runner field
+ * coordinates (inches).
+ * <p>
+ * Everything is kept in flat double arrays and a cast is a straight loop over them, so a cast
+ * costs a few dozen multiplies, allocates nothing, and can be run from any number of threads at
+ * once.
+ */
+public class FieldModel {
+    public static final double HALF_FIELD = 72.0;
+
+    /**
+     * Freight Frenzy, from the game manual's field drawings, with the blue alliance at +y and the
+     * warehouses at +x. The barriers are the pipes' footprint; whether the beam clears them
+     * depends on how high the sensor is.
+     */
+    public static final FieldModel FREIGHT_FRENZY = new FieldModel(
+            new double[]{
+                    //Barriers between each warehouse and the rest of the field, with the gap by the wall
+                    44, 24, 44, 58.5,
+                    44, -24, 44, -58.5,
+                    //Barriers between each warehouse and the shared hub
+                    44, 24, 72, 24,
+                    44, -24, 72, -24,
+            },
+            new double[]{
+                    //Alliance shipping hubs
+                    -12, 24, 9,
+                    -12, -24, 9,
+                    //Shared shipping hub
+                    60, 0, 9,
+                    //Carousels
+                    -65, 65, 7.5,
+                    -65, -65, 7.5,
+            }
+    );
+
+    //x1, y1, x2, y2 per segment and x, y, radius per circle
+    private final double[] segments;
+    private final double[] circles;
+
+    public FieldModel(double[] segments, double[] circles) {
+        this.segments = segments.clone();
+        this.circles = circles.clone();
+    }
+
+    /**
+     * Distance along the ray to the perimeter wall, ignoring everything on the field.
+     */
+    public double castWalls(double originX, double originY, double angle) {
+        double dx = Math.cos(angle), dy = Math.sin(angle);
+        double t = Double.POSITIVE_INFINITY;
+
+        if (dx > 0) t = Math.min(t, (HALF_FIELD - originX) / dx);
+        else if (dx < 0) t = Math.min(t, (-HALF_FIELD - originX) / dx);
+        if (dy > 0) t = Math.min(t, (HALF_FIELD - originY) / dy);
+        else if (dy < 0) t = Math.min(t, (-HALF_FIELD - originY) / dy);
+
+        return Math.max(t, 0.0);
+    }
+
+    /**
+     * Distance along the ray to the first thing it hits, walls included.
+     */
+    public double cast(double originX, double originY, double angle) {
+        double dx = Math.cos(angle), dy = Math.sin(angle);
+        double t = castWalls(originX, originY, angle);
+
+        for (int i = 0; i < segments.length; i += 4) {
+            double ax = segments[i], ay = segments[i + 1];
+            double ex = segments[i + 2] - ax, ey = segments[i + 3] - ay;
+
+            // origin + t d = a + u e, solved with 2D cross products
+            double denominator = dx * ey - dy * ex;
+            if (denominator == 0) continue;
+
+            double fx = ax - originX, fy = ay - originY;
+            double hit = (fx * ey - fy * ex) / denominator;
+            double u = (fx * dy - fy * dx) / denominator;
+            if (hit >= 0 && hit < t && u >= 0 && u <= 1) t = hit;
+        }
+
+        for (int i = 0; i < circles.length; i += 3) {
+            double fx = originX - circles[i], fy = originY - circles[i + 1];
+            double r = circles[i + 2];
+
+            // |f + t d|^2 = r^2, with d a unit vector
+            double b = fx * dx + fy * dy;
+            double c = fx * fx + fy * fy - r * r;
+            double discriminant = b * b - c;
+            if (discriminant < 0) continue;
+
+            double root = Math.sqrt(discriminant);
+            double hit = -b - root;
+            if (hit < 0) hit = c < 0 ? 0 : -b + root; //inside the circle already
+            if (hit >= 0 && hit < t) t = hit;
+        }
+
+        return t;
+    }
+
+    /**
+     * What a sensor mounted at the given pose on the robot (x forward, y left, heading the way it
+     * points) should read with the robot at this field pose.
+     */
+    public double expectedRange(double robotX, double robotY, double robotHeading, Pose2d mount) {
+        double cos = Math.cos(robotHeading), sin = Math.sin(robotHeading);
+        double sensorX = robotX + mount.getX() * cos - mount.getY() * sin;
+        double sensorY = robotY + mount.getX() * sin + mount.getY() * cos;
+        return cast(sensorX, sensorY, robotHeading + mount.getHeading());
+    }
+
+    /**
+     * Whether the map has the sensor's beam reaching the perimeter wall, rather than stopping at
+     * something on the field more than tolerance inches before it.
+     */
+    public boolean beamReachesWall(double robotX, double robotY, double robotHeading, Pose2d mount, double tolerance) {
+        double cos = Math.cos(robotHeading), sin = Math.sin(robotHeading);
+        double sensorX = robotX + mount.getX() * cos - mount.getY() * sin;
+        double sensorY = robotY + mount.getX() * sin + mount.getY() * cos;
+        double angle = robotHeading + mount.getHeading();
+        return cast(sensorX, sensorY, angle) >= castWalls(sensorX, sensorY, angle) - tolerance;
+    }
+}
@@ -0,0 +1,174 @@
+package org.firstinspires.ftc.teamcode.util;
+
+import com.acmerobotics.dashboard.config.Config;
+import com.arcrobotics.ftclib.command.Command;
+import com.arcrobotics.ftclib.command.CommandBase;
+import com.arcrobotics.ftclib.command.Subsystem;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the loop on a fixed tick instead of as fast as it can, and lets slower work run on every
+ * few ticks instead of every tick.
+ * <p>
+ * {@link #waitForNextTick()} holds each tick to its deadline, {@link #TICK_PERIOD_MS} after the
+ * last one. When the last tick ran past its deadline, that counts as an overrun and the
+ * deadlines start over from now rather than running the missed ticks back to back.
+ * <p>
+ * Subsystems and commands run at a {@link Tier}, either declared by implementing {@link Tiered}
+ * or given with {@link #setTier}/{@link #tiered}. Tracked subsystems are gated through the
+ * {@link LoopProfiler}; commands have to be wrapped with {@link #tiered} since the scheduler runs
+ * every scheduled command each time. Anything without a tier runs every tick.
+ * <p>
+ * In the autos that's nearly everything: the drive, the follower and the lift are control, and
+ * only the duck autos' CarouselWheel, whose periodic() just reports telemetry, is slowed down.
+ * DistanceSensors declares the sensor tier for opmodes that track it, none of the autos do yet.
+ */
+@Config
+public class FixedRateScheduler {
+    public static double TICK_PERIOD_MS = 15;
+    public static int SENSOR_TICK_DIVISOR = 5;
+    public static double TELEMETRY_HZ = 10;
+
+    public enum Tier {
+        /**
+         * Every tick: drive, follower, lift control.
+         */
+        CONTROL,
+        /**
+         * Every {@link FixedRateScheduler#SENSOR_TICK_DIVISOR} ticks: slow sensors, battery voltage.
+         */
+        SENSORS,
+        /**
+         * At about {@link FixedRateScheduler#TELEMETRY_HZ}.
+         */
+        TELEMETRY;
+
+        int divisor() {
+            switch (this) {
+                case SENSORS:
+                    return Math.max(SENSOR_TICK_DIVISOR, 1);
+                case TELEMETRY:
+                    return Math.max((int) Math.round(1000.0 / TELEMETRY_HZ / TICK_PERIOD_MS), 1);
+                default:
+                    return 1;
+            }
+        }
+
+        //Offsets so the slower tiers don't all land on the same tick
+        int phase() {
+            return ordinal();
+        }
+    }
+
+    /**
+     * Implemented by subsystems and commands that should run slower than every tick.
+     */
+    public interface Tiered {
+        Tier getTier();
+    }
+
+    private final Map<Subsystem, Tier> subsystemTiers = new IdentityHashMap<>();
+
+    private long tick = -1;
+    private long deadline = 0;
+    private long overruns = 0;
+
+    public FixedRateScheduler(LoopProfiler profiler) {
+        profiler.setSubsystemGate(this::shouldRun);
+    }
+
+    public void setTier(Subsystem subsystem, Tier tier) {
+        subsystemTiers.put(subsystem, tier);
+    }
+
+    private Tier tierOf(Object object) {
+        return object instanceof Tiered ? ((Tiered) object).getTier() : Tier.CONTROL;
+    }
+
+    public boolean isDue(Tier tier) {
+        int divisor = tier.divisor();
+        return divisor == 1 || tick % divisor == tier.phase() % divisor;
+    }
+
+    public boolean shouldRun(Subsystem subsystem) {
+        Tier tier = subsystemTiers.get(subsystem);
+        return isDue(tier != null ? tier : tierOf(subsystem));
+    }
+
+    /**
+     * Sleeps until the next tick's deadline, then starts it.
+     */
+    public void waitForNextTick() {
+        long period = (long) (TICK_PERIOD_MS * 1e6);
+        long now = System.nanoTime();
+
+        if (tick < 0) {
+            deadline = now;
+        } else if (now - deadline > 0) {
+            overruns++;
+            deadline = now;
+        } else {
+            while (deadline - now > 0 && !Thread.currentThread().isInterrupted()) {
+                LockSupport.parkNanos(deadline - now);
+                now = System.nanoTime();
+            }
+        }
+
+        deadline += period;
+        tick++;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Ticks that ran past the next tick's deadline.
+     */
+    public long getOverruns() {
+        return overruns;
+    }
+
+    /**
+     * Wraps a command so its execute() only runs on its tier's ticks. It's still checked for
+     * being finished every tick.
+     */
+    public Command tiered(Command command) {
+        return tiered(command, tierOf(command));
+    }
+
+    public Command tiered(Command command, Tier tier) {
+        CommandBase wrapper = new CommandBase() {
+            @Override
+            public void initialize() {
+                command.initialize();
+            }
+
+            @Override
+            public void execute() {
+                if (isDue(tier)) command.execute();
+            }
+
+            @Override
+            public boolean isFinished() {
+                return command.isFinished();
+            }
+
+            @Override
+            public void end(boolean interrupted) {
+                command.end(interrupted);
+            }
+
+            @Override
+            public boolean runsWhenDisabled() {
+                return command.runsWhenDisabled();
+            }
+        };
+        wrapper.setName(command.getName());
+        wrapper.addRequirements(command.getRequirements().toArray(new Subsystem[0]));
+        return wrapper;
+    }
+}
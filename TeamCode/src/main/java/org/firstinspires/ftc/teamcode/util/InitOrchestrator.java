@@ -0,0 +1,177 @@
+package org.firstinspires.ftc.teamcode.util;
+
+import com.acmerobotics.dashboard.config.Config;
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs an opmode's init steps (building the drive, opening the camera, resetting encoders, ...)
+ * in parallel where they don't depend on each other, and keeps a timeline of when each one ran.
+ * <p>
+ * Each step is added with the steps it needs to run after, which have to be added before it, so
+ * the order steps are added in is always a valid order to run them in. {@link #run()} hands the
+ * steps to a pool of {@link #POOL_SIZE} threads in that order, and each waits for its dependencies
+ * before starting.
+ * <p>
+ * FTCLib subsystems register themselves with the command scheduler when they're constructed, and
+ * the scheduler isn't thread safe, so a step that builds a SubsystemBase has to be added with
+ * {@link #addOnMainThread}. Those steps run one after the other on the thread that called run(),
+ * while the pool works through the rest.
+ */
+@Config
+public class InitOrchestrator {
+    public static int POOL_SIZE = 3;
+
+    public static final class Step<T> {
+        private final String name;
+        private final Callable<T> init;
+        private final Step<?>[] dependencies;
+        private final boolean onMainThread;
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private volatile T result;
+        private volatile Throwable failure;
+        private long startNanos, endNanos;
+        private boolean started;
+
+        private Step(String name, Callable<T> init, Step<?>[] dependencies, boolean onMainThread) {
+            this.name = name;
+            this.init = init;
+            this.dependencies = dependencies;
+            this.onMainThread = onMainThread;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * What the step returned. Only valid once {@link #run()} has returned.
+         */
+        public T get() {
+            if (done.getCount() > 0) throw new IllegalStateException(name + " hasn't run yet");
+            return result;
+        }
+    }
+
+    private final List<Step<?>> steps = new ArrayList<>();
+    private long runStartNanos;
+
+    public <T> Step<T> add(String name, Callable<T> init, Step<?>... dependencies) {
+        return add(name, init, dependencies, false);
+    }
+
+    /**
+     * Adds a step that has to run on the thread that calls {@link #run()}.
+     */
+    public <T> Step<T> addOnMainThread(String name, Callable<T> init, Step<?>... dependencies) {
+        return add(name, init, dependencies, true);
+    }
+
+    private <T> Step<T> add(String name, Callable<T> init, Step<?>[] dependencies, boolean onMainThread) {
+        for (Step<?> dependency : dependencies) {
+            if (!steps.contains(dependency)) {
+                throw new IllegalArgumentException(name + " depends on " + dependency.name + ", which has to be added first");
+            }
+        }
+
+        Step<T> step = new Step<>(name, init, dependencies, onMainThread);
+        steps.add(step);
+        return step;
+    }
+
+    /**
+     * Runs every step and waits for all of them. Throws if any step failed, after the rest have
+     * finished.
+     */
+    public void run() {
+        runStartNanos = System.nanoTime();
+
+        // Pool steps are taken in the order they were added, so by the time a step is waiting on
+        // a dependency, that dependency has already been picked up by a thread
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(POOL_SIZE, 1), runnable -> {
+            Thread thread = new Thread(runnable, "Init");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            for (Step<?> step : steps) {
+                if (!step.onMainThread) pool.execute(() -> execute(step));
+            }
+            for (Step<?> step : steps) {
+                if (step.onMainThread) execute(step);
+            }
+
+            for (Step<?> step : steps) step.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+        }
+
+        for (String line : getTimeline()) RobotLog.ii("InitOrchestrator", line);
+
+        for (Step<?> step : steps) {
+            if (step.failure != null) throw new RuntimeException("Init of " + step.name + " failed", step.failure);
+        }
+    }
+
+    private <T> void execute(Step<T> step) {
+        try {
+            for (Step<?> dependency : step.dependencies) {
+                dependency.done.await();
+                if (dependency.failure != null) {
+                    throw new IllegalStateException(dependency.name + " failed");
+                }
+            }
+
+            step.started = true;
+            step.startNanos = System.nanoTime();
+            step.result = step.init.call();
+        } catch (Throwable t) {
+            step.failure = t;
+        } finally {
+            step.endNanos = System.nanoTime();
+            step.done.countDown();
+        }
+    }
+
+    /**
+     * One line per step: when it started and finished relative to {@link #run()}, how long it
+     * took and whether it ran on the main thread or the pool.
+     */
+    public List<String> getTimeline() {
+        List<String> lines = new ArrayList<>();
+        for (Step<?> step : steps) {
+            if (step.done.getCount() > 0) continue;
+
+            // a step whose dependency failed never started
+            long start = step.started ? step.startNanos : step.endNanos;
+            lines.add(String.format(Locale.US, "%-16s %5d -> %5d ms (%4d ms) %s%s",
+                    step.name,
+                    (start - runStartNanos) / 1_000_000,
+                    (step.endNanos - runStartNanos) / 1_000_000,
+                    (step.endNanos - start) / 1_000_000,
+                    step.onMainThread ? "main" : "pool",
+                    step.failure != null ? " FAILED" : ""));
+        }
+        return lines;
+    }
+
+    /**
+     * Adds the timeline to the telemetry, without updating it. run() already logs it.
+     */
+    public void report(Telemetry telemetry) {
+        for (String line : getTimeline()) telemetry.addLine(line);
+    }
+}
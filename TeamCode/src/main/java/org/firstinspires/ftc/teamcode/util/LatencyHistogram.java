@@ -0,0 +1,82 @@
+package org.firstinspires.ftc.teamcode.util;
+
+/**
+ * Fixed size histogram of durations in nanoseconds with log-linear buckets (16 per power of two,
+ * so percentiles are within ~6%). Recording never allocates.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_VALUE_BITS = 40; // ~18 minutes, anything longer is clamped
+
+    private final long[] counts = new long[SUB_BUCKETS * (MAX_VALUE_BITS - SUB_BUCKET_BITS + 2)];
+
+    private long count = 0;
+    private long total = 0;
+    private long max = 0;
+
+    private static int indexFor(long value) {
+        if (value < SUB_BUCKETS) return (int) Math.max(value, 0);
+
+        value = Math.min(value, (1L << MAX_VALUE_BITS) - 1);
+
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int shift = highestBit - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Largest value that falls into the bucket.
+     */
+    private static long highestValueAt(int index) {
+        if (index < SUB_BUCKETS) return index;
+
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+
+        return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+
+    public void record(long nanos) {
+        counts[indexFor(nanos)]++;
+        count++;
+        total += nanos;
+        max = Math.max(max, nanos);
+    }
+
+    public void reset() {
+        java.util.Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0.0 : (double) total / count;
+    }
+
+    /**
+     * @param fraction 0.5 for the median, 0.99 for p99 and so on.
+     */
+    public long getPercentile(double fraction) {
+        if (count == 0) return 0;
+
+        long target = Math.max((long) Math.ceil(fraction * count), 1);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) return Math.min(highestValueAt(i), max);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,235 @@
+package org.firstinspires.ftc.teamcode.util;
+
+import com.acmerobotics.dashboard.FtcDashboard;
+import com.acmerobotics.dashboard.config.Config;
+import com.acmerobotics.dashboard.telemetry.TelemetryPacket;
+import com.arcrobotics.ftclib.command.Command;
+import com.arcrobotics.ftclib.command.CommandBase;
+import com.arcrobotics.ftclib.command.CommandScheduler;
+import com.arcrobotics.ftclib.command.Subsystem;
+import com.qualcomm.robotcore.util.RobotLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs the command scheduler and records how long each command and subsystem takes per loop.
+ * <p>
+ * Subsystems passed to {@link #trackSubsystems} are taken off the scheduler and have their
+ * periodic() called (and timed) here instead. Scheduled commands are timed through the
+ * scheduler's execute hooks, so a command group is measured as a whole; wrap a command with
+ * {@link #profiled} to also time it on its own inside a group. Subsystems that aren't tracked are
+ * still run by the scheduler, but their time lands on the first command of the loop.
+ * <p>
+ * Everything is kept in {@link LatencyHistogram}s, one per command name, so nothing is allocated
+ * once every name has been seen once, except when telemetry is sent.
+ */
+@Config
+public class LoopProfiler {
+    public static boolean ENABLED = true;
+    public static long TELEMETRY_INTERVAL_MS = 500;
+
+    private static class Entry {
+        final String name;
+        final String p50Key, p99Key, maxKey;
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        Entry(String name) {
+            this.name = name;
+            p50Key = name + " p50 (us)";
+            p99Key = name + " p99 (us)";
+            maxKey = name + " max (us)";
+        }
+    }
+
+    private final CommandScheduler scheduler;
+    private final FtcDashboard dashboard = FtcDashboard.getInstance();
+
+    private final Entry loopEntry = new Entry("Loop");
+    private final List<Entry> entries = new ArrayList<>();
+    //By name, so commands built anew every cycle share one entry instead of adding one each
+    private final Map<String, Entry> entriesByName = new HashMap<>();
+
+    private final List<Subsystem> subsystems = new ArrayList<>();
+    private final List<Entry> subsystemEntries = new ArrayList<>();
+
+    /**
+     * Decides which tracked subsystems run in a loop, see {@link FixedRateScheduler}.
+     */
+    public interface SubsystemGate {
+        boolean shouldRun(Subsystem subsystem);
+    }
+
+    private SubsystemGate subsystemGate = subsystem -> true;
+
+    private long lastMark;
+    private long lastTelemetryTime = 0;
+
+    public LoopProfiler() {
+        this(CommandScheduler.getInstance());
+    }
+
+    public LoopProfiler(CommandScheduler scheduler) {
+        this.scheduler = scheduler;
+
+        entries.add(loopEntry);
+
+        scheduler.onCommandExecute(this::onCommandExecute);
+        scheduler.onCommandFinish(command -> lastMark = System.nanoTime());
+        scheduler.onCommandInterrupt(command -> lastMark = System.nanoTime());
+    }
+
+    private Entry entryFor(String name) {
+        Entry entry = entriesByName.get(name);
+        if (entry == null) {
+            entry = new Entry(name);
+            entriesByName.put(name, entry);
+            entries.add(entry);
+        }
+        return entry;
+    }
+
+    private void onCommandExecute(Command command) {
+        long now = System.nanoTime();
+        if (ENABLED) entryFor(command.getName()).histogram.record(now - lastMark);
+        lastMark = now;
+    }
+
+    /**
+     * Takes the subsystems off the scheduler so their periodic() can be timed by the profiler.
+     */
+    public void trackSubsystems(Subsystem... subsystems) {
+        scheduler.unregisterSubsystem(subsystems);
+
+        for (Subsystem subsystem : subsystems) {
+            this.subsystems.add(subsystem);
+            subsystemEntries.add(entryFor(subsystem.getClass().getSimpleName() + " periodic"));
+        }
+    }
+
+    public void setSubsystemGate(SubsystemGate subsystemGate) {
+        this.subsystemGate = subsystemGate;
+    }
+
+    /**
+     * Wraps a command so its execute() is timed under its own name, even inside a group.
+     */
+    public Command profiled(Command command) {
+        Entry entry = entryFor(command.getName());
+
+        CommandBase wrapper = new CommandBase() {
+            @Override
+            public void initialize() {
+                command.initialize();
+            }
+
+            @Override
+            public void execute() {
+                long start = System.nanoTime();
+                command.execute();
+                if (ENABLED) entry.histogram.record(System.nanoTime() - start);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return command.isFinished();
+            }
+
+            @Override
+            public void end(boolean interrupted) {
+                command.end(interrupted);
+            }
+
+            @Override
+            public boolean runsWhenDisabled() {
+                return command.runsWhenDisabled();
+            }
+        };
+        wrapper.setName(command.getName());
+        wrapper.addRequirements(command.getRequirements().toArray(new Subsystem[0]));
+        return wrapper;
+    }
+
+    /**
+     * One loop: tracked subsystems (the ones the gate lets through), then the scheduler.
+     */
+    public void run() {
+        long loopStart = System.nanoTime();
+
+        for (int i = 0; i < subsystems.size(); i++) {
+            Subsystem subsystem = subsystems.get(i);
+            if (!subsystemGate.shouldRun(subsystem)) continue;
+
+            long start = System.nanoTime();
+            subsystem.periodic();
+            if (ENABLED) subsystemEntries.get(i).histogram.record(System.nanoTime() - start);
+        }
+
+        lastMark = System.nanoTime();
+        scheduler.run();
+
+        long loopEnd = System.nanoTime();
+        if (ENABLED) loopEntry.histogram.record(loopEnd - loopStart);
+
+        if (ENABLED && (loopEnd - lastTelemetryTime) / 1_000_000 >= TELEMETRY_INTERVAL_MS) {
+            lastTelemetryTime = loopEnd;
+            sendTelemetry();
+        }
+    }
+
+    private void sendTelemetry() {
+        TelemetryPacket packet = new TelemetryPacket();
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            LatencyHistogram histogram = entry.histogram;
+            if (histogram.getCount() == 0) continue;
+
+            packet.put(entry.p50Key, histogram.getPercentile(0.5) / 1000);
+            packet.put(entry.p99Key, histogram.getPercentile(0.99) / 1000);
+            packet.put(entry.maxKey, histogram.getMax() / 1000);
+        }
+        dashboard.sendTelemetryPacket(packet);
+    }
+
+    public void reset() {
+        for (Entry entry : entries) entry.histogram.reset();
+    }
+
+    /**
+     * Writes a table of loop count, mean, p50, p99 and max per entry, in microseconds.
+     */
+    public void writeSummary(File file) {
+        try (PrintWriter writer = new PrintWriter(file)) {
+            writer.println(String.format(Locale.US, "%-40s %8s %10s %10s %10s %10s",
+                    "name", "count", "mean", "p50", "p99", "max"));
+
+            for (Entry entry : entries) {
+                LatencyHistogram histogram = entry.histogram;
+                writer.println(String.format(Locale.US, "%-40s %8d %10.1f %10.1f %10.1f %10.1f",
+                        entry.name,
+                        histogram.getCount(),
+                        histogram.getMean() / 1000.0,
+                        histogram.getPercentile(0.5) / 1000.0,
+                        histogram.getPercentile(0.99) / 1000.0,
+                        histogram.getMax() / 1000.0
+                ));
+            }
+        } catch (IOException e) {
+            RobotLog.ee("LoopProfiler", e, "Couldn't write the loop profile to %s", file);
+        }
+    }
+
+    /**
+     * Writes the summary to the RoadRunner log folder, named after the opmode and the time.
+     */
+    public void writeSummary(String opModeName) {
+        writeSummary(LoggingUtil.getLogFile(String.format(Locale.US,
+                "LoopProfile-%s-%d.txt", opModeName, System.currentTimeMillis())));
+    }
+}
@@ -0,0 +1,133 @@
+package org.firstinspires.ftc.teamcode.util;
+
+import com.acmerobotics.dashboard.config.Config;
+
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Continuously ranges a set of {@link MB1242}s on a background thread.
+ * <p>
+ * The sensors take turns: each slot pings one sensor, waits {@link #RANGE_TIME_MS} for the echo,
+ * then reads it, so two sensors are never pinging at once and can't pick up each other's echo.
+ * Each result is published with the time it was read through an atomic slot per sensor, so
+ * readers never block. Like {@link org.firstinspires.ftc.teamcode.hardware.ImuService}, the
+ * thread stops once nobody has read a range for {@link #IDLE_TIMEOUT_MS} and starts again on
+ * {@link #start()} or the next {@link #getRange}, unless it was stopped with {@link #stop()}.
+ */
+@Config
+public class MB1242Ranger {
+    public static long RANGE_TIME_MS = 100;
+    public static long IDLE_TIMEOUT_MS = 2000;
+
+    public static final class Range {
+        public static final Range NONE = new Range(0.0, 0, 0);
+
+        public final double distanceCm;
+        /**
+         * System.nanoTime() when the sensor was pinged, which is when it actually measured the
+         * distance, about {@link #RANGE_TIME_MS} before the range could be read.
+         */
+        public final long pingNanos;
+        /**
+         * System.nanoTime() when the range was read, 0 if there hasn't been one yet.
+         */
+        public final long captureNanos;
+
+        Range(double distanceCm, long pingNanos, long captureNanos) {
+            this.distanceCm = distanceCm;
+            this.pingNanos = pingNanos;
+            this.captureNanos = captureNanos;
+        }
+
+        public double getDistance(DistanceUnit unit) {
+            return unit.fromCm(distanceCm);
+        }
+
+        public boolean isValid() {
+            return captureNanos != 0;
+        }
+
+        /**
+         * Whether the range was read after the given System.nanoTime().
+         */
+        public boolean isNewerThan(long nanos) {
+            return isValid() && captureNanos - nanos > 0;
+        }
+    }
+
+    private final MB1242[] sensors;
+    private final AtomicReferenceArray<Range> ranges;
+
+    private volatile long lastReadNanos;
+    //Cleared by the thread itself when it stops, so readers can tell it needs restarting
+    private volatile Thread thread;
+    //Between start() and stop(), reads bring the thread back after it went idle
+    private volatile boolean started = false;
+
+    public MB1242Ranger(MB1242... sensors) {
+        this.sensors = sensors;
+        this.ranges = new AtomicReferenceArray<>(sensors.length);
+        for (int i = 0; i < sensors.length; i++) ranges.set(i, Range.NONE);
+    }
+
+    public synchronized void start() {
+        lastReadNanos = System.nanoTime();
+        started = true;
+        if (thread != null && thread.isAlive()) return;
+
+        thread = new Thread(this::run, "MB1242Ranger");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        started = false;
+        if (thread != null) thread.interrupt();
+        thread = null;
+    }
+
+    public synchronized boolean isRunning() {
+        return thread != null && thread.isAlive();
+    }
+
+    private void run() {
+        int index = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if ((System.nanoTime() - lastReadNanos) / 1_000_000 > IDLE_TIMEOUT_MS) break;
+
+                MB1242 sensor = sensors[index];
+                long pingNanos = System.nanoTime();
+                sensor.ping();
+
+                try {
+                    Thread.sleep(RANGE_TIME_MS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+
+                double distance = sensor.getDistance(DistanceUnit.CM);
+                ranges.set(index, new Range(distance, pingNanos, System.nanoTime()));
+
+                index = (index + 1) % sensors.length;
+            }
+        } finally {
+            synchronized (this) {
+                if (thread == Thread.currentThread()) thread = null;
+            }
+        }
+    }
+
+    /**
+     * Latest range of the sensor at the given index (in the order passed to the constructor),
+     * {@link Range#NONE} until it has been ranged once. Restarts the thread if it went idle; the
+     * range returned then is the last one from before it stopped, see {@link Range#captureNanos}.
+     */
+    public Range getRange(int index) {
+        lastReadNanos = System.nanoTime();
+        if (started && thread == null) start();
+        return ranges.get(index);
+    }
+}
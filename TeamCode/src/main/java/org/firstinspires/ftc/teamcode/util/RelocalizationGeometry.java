@@ -0,0 +1,204 @@
+package org.firstinspires.ftc.teamcode.util;
+
+import static java.lang.Math.PI;
+import static java.lang.Math.toRadians;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.geometry.Vector2d;
+import com.acmerobotics.roadrunner.util.Angle;
+
+/**
+ * The trig that turns distance sensor readings and a heading into a field position, kept free of
+ * any hardware so it can be shared and benchmarked off the robot.
+ */
+public class RelocalizationGeometry {
+
+    /*
+     * If the robot is sitting in the exact middle of the field (0,0)
+     * and facing straight down the x-axis (0 degrees), then the distances
+     * from each sensor to the wall they are pointing at would be the following
+     * in inches.
+     */
+    public static final double FORWARD_SENSOR_BASE_DISTANCE_TO_WALL = 66.78125;//63.125;
+    public static final double BACKWARD_SENSOR_BASE_DISTANCE_TO_WALL = 64.75;
+    public static final double LEFT_SENSOR_BASE_DISTANCE_TO_WALL = 69.425;
+    public static final double RIGHT_SENSOR_BASE_DISTANCE_TO_WALL = 66.0625;
+
+
+    /*
+     * These are the relative positions of each sensor from the center of the
+     * robot. They are relative because the actual coordinates doesn't matter,
+     * only the horizontal and vertical distances (eg, the abs value of the x and y).
+     *
+     * y is forward, x is left/right
+     * Inches
+     */
+    public static final Vector2d FORWARD_SENSOR_POSITION = new Vector2d(-3.5, 5.53125);
+    public static final Vector2d BACKWARD_SENSOR_POSITION = new Vector2d(-3.5, -8.59375);
+    public static final Vector2d LEFT_SENSOR_POSITION = new Vector2d(-7.1875, -1.15625);
+    public static final Vector2d RIGHT_SENSOR_POSITION = new Vector2d(4, -4.78125);
+
+    /*
+     * The same sensors as mounts in Road Runner's robot frame (x forward, y left) with the
+     * direction each one points, for ray casting them against a FieldModel.
+     * Both side sensors point at the wall on the robot's left, the way they're used.
+     */
+    public static final Pose2d FORWARD_SENSOR_MOUNT = new Pose2d(FORWARD_SENSOR_POSITION.getY(), -FORWARD_SENSOR_POSITION.getX(), toRadians(-4));
+    public static final Pose2d BACKWARD_SENSOR_MOUNT = new Pose2d(BACKWARD_SENSOR_POSITION.getY(), -BACKWARD_SENSOR_POSITION.getX(), PI);
+    public static final Pose2d LEFT_SENSOR_MOUNT = new Pose2d(LEFT_SENSOR_POSITION.getY(), -LEFT_SENSOR_POSITION.getX(), PI / 2);
+    public static final Pose2d RIGHT_SENSOR_MOUNT = new Pose2d(RIGHT_SENSOR_POSITION.getY(), RIGHT_SENSOR_POSITION.getX(), PI / 2);
+
+    /**
+     * Function that runs the trig needed to correctly offset the distance sensor measurements by
+     * their horizontal and vertical positions on the robot.
+     * <p>
+     * The distance values given need to be the raw distance values from the sensors.
+     * <p>
+     * Heading is in pi to -pi range (left=+).
+     *
+     * @param forwardDistance Forward distance sensor value, inches.
+     * @param sideDistance    Side distance sensor value, inches
+     * @param headingRad      Heading value, radians, euler
+     * @param redSide         Side of the robot that the side sensor is on.
+     * @return Array with (forward, side) absolute distances of the robot to the field walls.
+     */
+    public static double[] findRotatedDistance(double forwardDistance, double sideDistance, double headingRad, boolean redSide) {
+        double[] newDistances = new double[2];
+
+
+        //Rotate the vector with the sensor's position by the current heading
+        //TODO: find exact error, the front sensor is slightly turned in its mount
+
+        /*
+        Red is the back of the robot facing the front wall, and the left side facing the side wall
+        Blue is the front of the robot facing the front wall, and the right side facing the side wall
+
+        For the red side, we need to rotate our heading by 180 since the robot is backwards.
+        For the blue side, we don't, but the sensor is placed a little oddly in its case
+         */
+        Vector2d rotatedForwardSensorPosition = (redSide) ?
+                BACKWARD_SENSOR_POSITION.rotated(Angle.normDelta(headingRad + PI)) :
+                FORWARD_SENSOR_POSITION.rotated(Angle.normDelta(headingRad - toRadians(4)));
+
+        //Do the same for the side sensor
+        Vector2d rotatedSideSensorPosition = (redSide) ?
+                LEFT_SENSOR_POSITION.rotated(Angle.normDelta(headingRad + PI)) :
+                RIGHT_SENSOR_POSITION.rotated(headingRad);
+
+        /*
+        Now find the theoretical distances from the walls, assuming no offset from one of the axes.
+
+        This is just the reportedDistance * cos(heading) for both, since we know the
+        hypot (reported distance) and the angle (heading of robot)
+         */
+
+        double correctedForwardDistance = forwardDistance * Math.cos(headingRad);
+        double correctedSideDistance = sideDistance * Math.cos(headingRad);
+
+        /*
+        Finally, offset the distances by their y components. This is because we defined each sensor
+        position in Q1, so the component needed is y for both of them.
+         */
+
+        //positive heading would cause the actual distance to be less, so add the offset
+        newDistances[0] = correctedForwardDistance + rotatedForwardSensorPosition.getY();
+        //positive heading would cause the actual distance to be more, so subtract the offset
+        newDistances[1] = correctedSideDistance - rotatedSideSensorPosition.getY();
+
+        return newDistances;
+    }
+
+    /**
+     * Finds the field pose of the robot from the forward (backward on red) and side readings.
+     *
+     * @param forwardDistance Forward distance sensor value, inches.
+     * @param sideDistance    Side distance sensor value, inches
+     * @param headingRad      Heading value, radians, euler
+     */
+    public static Pose2d estimatePose(double forwardDistance, double sideDistance, double headingRad, boolean redSide) {
+        double[] rotatedDistances = findRotatedDistance(forwardDistance, sideDistance, headingRad, redSide);
+
+        //Find our forward distance (x in field coordinates)
+        double x = (!redSide) ?
+                (FORWARD_SENSOR_BASE_DISTANCE_TO_WALL - rotatedDistances[0]) :
+                (BACKWARD_SENSOR_BASE_DISTANCE_TO_WALL - rotatedDistances[0]);
+
+        //Find our side distance (y in field coordinates)
+        double y = (!redSide) ?
+                (RIGHT_SENSOR_BASE_DISTANCE_TO_WALL - rotatedDistances[1]) :
+                (rotatedDistances[1] - LEFT_SENSOR_BASE_DISTANCE_TO_WALL);
+
+        return new Pose2d(x, y, headingRad);
+    }
+
+    /**
+     * The reverse of {@link #estimatePose}: what the forward (backward on red) sensor should read
+     * with the robot at this x and heading. Done on primitives so it can run every loop.
+     */
+    public static double expectedForwardDistance(double x, double headingRad, boolean redSide) {
+        //y component of the sensor position rotated the same way findRotatedDistance does
+        double offset = (redSide) ?
+                -(BACKWARD_SENSOR_POSITION.getX() * Math.sin(headingRad) + BACKWARD_SENSOR_POSITION.getY() * Math.cos(headingRad)) :
+                FORWARD_SENSOR_POSITION.getX() * Math.sin(headingRad - toRadians(4)) + FORWARD_SENSOR_POSITION.getY() * Math.cos(headingRad - toRadians(4));
+
+        double base = (!redSide) ? FORWARD_SENSOR_BASE_DISTANCE_TO_WALL : BACKWARD_SENSOR_BASE_DISTANCE_TO_WALL;
+        return (base - x - offset) / Math.cos(headingRad);
+    }
+
+    /**
+     * The reverse of {@link #estimatePose}: what the side sensor should read with the robot at
+     * this y and heading.
+     */
+    public static double expectedSideDistance(double y, double headingRad, boolean redSide) {
+        if (redSide) {
+            double offset = -(LEFT_SENSOR_POSITION.getX() * Math.sin(headingRad) + LEFT_SENSOR_POSITION.getY() * Math.cos(headingRad));
+            return (y + LEFT_SENSOR_BASE_DISTANCE_TO_WALL + offset) / Math.cos(headingRad);
+        }
+
+        double offset = RIGHT_SENSOR_POSITION.getX() * Math.sin(headingRad) + RIGHT_SENSOR_POSITION.getY() * Math.cos(headingRad);
+        return (RIGHT_SENSOR_BASE_DISTANCE_TO_WALL - y + offset) / Math.cos(headingRad);
+    }
+
+    /**
+     * The heading the functions above take for a Road Runner field heading. On red the robot
+     * drives along the wall backwards, facing pi, and the trig above is written for it turned
+     * around to face 0 like on blue.
+     */
+    public static double geometryHeading(double fieldHeading, boolean redSide) {
+        return (redSide) ? Angle.normDelta(fieldHeading - PI) : Angle.normDelta(fieldHeading);
+    }
+
+    /**
+     * The reverse of {@link #geometryHeading}: the Road Runner field heading for a heading the
+     * functions above take.
+     */
+    public static double fieldHeading(double geometryHeading, boolean redSide) {
+        return (redSide) ? Angle.norm(geometryHeading + PI) : Angle.norm(geometryHeading);
+    }
+
+    /**
+     * Whether the map has both the forward (backward on red) and the side sensor's beams reaching
+     * the walls the functions above measure from, for a robot at this position and heading (as the
+     * functions above take it), rather than stopping more than tolerance inches short of them at a
+     * hub, barrier or carousel.
+     */
+    public static boolean beamsReachWalls(FieldModel field, double x, double y, double geometryHeading, boolean redSide, double tolerance) {
+        double heading = fieldHeading(geometryHeading, redSide);
+        return field.beamReachesWall(x, y, heading, redSide ? BACKWARD_SENSOR_MOUNT : FORWARD_SENSOR_MOUNT, tolerance)
+                && field.beamReachesWall(x, y, heading, redSide ? LEFT_SENSOR_MOUNT : RIGHT_SENSOR_MOUNT, tolerance);
+    }
+
+    /**
+     * {@link #expectedForwardDistance} for a robot at this Road Runner field heading.
+     */
+    public static double expectedForwardRange(double x, double fieldHeading, boolean redSide) {
+        return expectedForwardDistance(x, geometryHeading(fieldHeading, redSide), redSide);
+    }
+
+    /**
+     * {@link #expectedSideDistance} for a robot at this Road Runner field heading.
+     */
+    public static double expectedSideRange(double y, double fieldHeading, boolean redSide) {
+        return expectedSideDistance(y, geometryHeading(fieldHeading, redSide), redSide);
+    }
+}
@@ -0,0 +1,120 @@
+package org.firstinspires.ftc.teamcode.util;
+
+import com.acmerobotics.dashboard.config.Config;
+
+/**
+ * Estimates the velocity and acceleration of an encoder from its last few positions, by fitting a
+ * parabola to them with least squares.
+ * <p>
+ * Positions go into a ring buffer of primitives along with the time they were read, and every new
+ * one refits the last {@link #WINDOW_SIZE} samples, so reading the estimate costs nothing and
+ * nothing is allocated. Compared to differencing the last two positions, a wider window averages
+ * out the one count steps at low speed, and since the fit is taken at the newest sample it doesn't
+ * lag behind like a filtered difference would.
+ * <p>
+ * Feed it the bulk cached position once per loop. Reading the same cached position again within
+ * {@link #MIN_SAMPLE_PERIOD_MS} is ignored, so calling it a few times in the same loop doesn't
+ * pull the estimate towards zero.
+ */
+@Config
+public class VelocityEstimator {
+    public static int WINDOW_SIZE = 8;
+    public static double MIN_SAMPLE_PERIOD_MS = 5;
+
+    private static final int CAPACITY = 32;
+
+    private final double[] times = new double[CAPACITY];
+    private final double[] positions = new double[CAPACITY];
+    private int newest = -1;
+    private int count = 0;
+
+    private double velocity = 0.0;
+    private double acceleration = 0.0;
+
+    /**
+     * Forgets every sample, for when the encoder is reset.
+     */
+    public void reset() {
+        newest = -1;
+        count = 0;
+        velocity = 0.0;
+        acceleration = 0.0;
+    }
+
+    /**
+     * Adds a position read at the given time (in seconds, from any fixed origin) and refits.
+     */
+    public void addSample(double time, double position) {
+        if (count > 0) {
+            double sinceLast = time - times[newest];
+            if (sinceLast <= 0) return;
+            if (position == positions[newest] && sinceLast * 1000 < MIN_SAMPLE_PERIOD_MS) return;
+        }
+
+        newest = (newest + 1) % CAPACITY;
+        times[newest] = time;
+        positions[newest] = position;
+        if (count < CAPACITY) count++;
+
+        fit();
+    }
+
+    private void fit() {
+        int n = Math.min(Math.max(WINDOW_SIZE, 2), count);
+        if (n < 2) {
+            velocity = 0.0;
+            acceleration = 0.0;
+            return;
+        }
+
+        // Relative to the newest sample, so the fit's slope is the velocity now and the sums stay small
+        double t0 = times[newest], y0 = positions[newest];
+        double s1 = 0, s2 = 0, s3 = 0, s4 = 0, sy = 0, sty = 0, st2y = 0;
+        for (int k = 0, i = newest; k < n; k++, i = (i + CAPACITY - 1) % CAPACITY) {
+            double t = times[i] - t0;
+            double y = positions[i] - y0;
+            double t2 = t * t;
+            s1 += t;
+            s2 += t2;
+            s3 += t2 * t;
+            s4 += t2 * t2;
+            sy += y;
+            sty += t * y;
+            st2y += t2 * y;
+        }
+
+        if (n >= 3) {
+            // y = a + b t + c t^2, solved by Cramer's rule on the normal equations
+            double det = n * (s2 * s4 - s3 * s3) - s1 * (s1 * s4 - s3 * s2) + s2 * (s1 * s3 - s2 * s2);
+            if (Math.abs(det) > 0) {
+                double b = n * (sty * s4 - s3 * st2y) - sy * (s1 * s4 - s3 * s2) + s2 * (s1 * st2y - sty * s2);
+                double c = n * (s2 * st2y - sty * s3) - s1 * (s1 * st2y - sty * s2) + sy * (s1 * s3 - s2 * s2);
+                velocity = b / det;
+                acceleration = 2 * c / det;
+                return;
+            }
+        }
+
+        // too few samples for a parabola, fit a line
+        velocity = (n * sty - s1 * sy) / (n * s2 - s1 * s1);
+        acceleration = 0.0;
+    }
+
+    /**
+     * Position units per second, at the newest sample.
+     */
+    public double getVelocity() {
+        return velocity;
+    }
+
+    /**
+     * Position units per second squared, 0 until there are three samples.
+     */
+    public double getAcceleration() {
+        return acceleration;
+    }
+
+    public int getSampleCount() {
+        return count;
+    }
+}